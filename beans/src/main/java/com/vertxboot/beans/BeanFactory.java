@@ -1,12 +1,16 @@
 package com.vertxboot.beans;
 
+import io.vertx.core.Context;
 import io.vertx.core.Future;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class BeanFactory {
     private static final BeanFactory beanFactory = new BeanFactory();
+    private static Logger logger = LoggerFactory.getLogger(BeanFactory.class);
 
     protected Map<Class<?>, Bean<?>> beanMap = new ConcurrentHashMap<>();
 
@@ -35,6 +39,9 @@ public class BeanFactory {
 
     @SuppressWarnings("unchecked")
     public <T> T getSync(Class<T> beanClass) {
+        if (Context.isOnEventLoopThread() && !this.isInitialized(beanClass))
+            logger.warn("BeanFactory: blocking getSync on event loop thread " + Thread.currentThread().getName() +
+                    " for uninitialized bean class " + beanClass.getName());
         return (T) beanMap.computeIfAbsent(beanClass, key -> new PendingBean<T>()).getSync();
     }
 
@@ -0,0 +1,99 @@
+package com.vertxboot.benchmark;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * The stored results of a previous benchmark run on the same machine, one LoadResult per scenario name, kept as a json
+ * file. A result regresses from its baseline when its throughput drops by more than throughputTolerance, or its p99
+ * latency grows by more than latencyTolerance, both fractions of the baseline value, or when it has errors while its
+ * baseline had none. Throughput is only compared for closed loop scenarios, the throughput of an open loop scenario
+ * being its rate.
+ */
+public class Baseline {
+    protected static Logger logger = LoggerFactory.getLogger(Baseline.class);
+
+    protected final Map<String, LoadResult> loadResultMap = new TreeMap<>();
+
+    protected Baseline() {
+    }
+
+    /**
+     * Reads the baseline of the given file, or returns an empty baseline if there is no such file.
+     */
+    public static Baseline load(Path path) throws IOException {
+        Baseline baseline = new Baseline();
+        if (!Files.exists(path))
+            return baseline;
+
+        JsonObject json = new JsonObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        json.forEach(entry -> baseline.loadResultMap.put(entry.getKey(),
+                LoadResult.fromJson((JsonObject) entry.getValue())));
+        return baseline;
+    }
+
+    public static Baseline of(Collection<LoadResult> loadResults) {
+        Baseline baseline = new Baseline();
+        loadResults.forEach(loadResult -> baseline.loadResultMap.put(loadResult.getName(), loadResult));
+        return baseline;
+    }
+
+    public void save(Path path) throws IOException {
+        JsonObject json = new JsonObject();
+        this.loadResultMap.forEach((name, loadResult) -> json.put(name, loadResult.toJson()));
+        if (Objects.nonNull(path.getParent()))
+            Files.createDirectories(path.getParent());
+        Files.write(path, json.encodePrettily().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isEmpty() {
+        return this.loadResultMap.isEmpty();
+    }
+
+    public LoadResult get(String name) {
+        return this.loadResultMap.get(name);
+    }
+
+    /**
+     * Returns the regressions of the given result of the given scenario from its baseline, none if the scenario has
+     * no baseline.
+     */
+    public List<String> compare(Scenario scenario, LoadResult loadResult, double throughputTolerance,
+                                double latencyTolerance) {
+        List<String> regressions = new ArrayList<>();
+        LoadResult baseline = this.loadResultMap.get(loadResult.getName());
+        if (Objects.isNull(baseline)) {
+            logger.info("Baseline: no baseline for " + loadResult.getName());
+            return regressions;
+        }
+
+        if (scenario.getMode() == Scenario.Mode.CLOSED &&
+                loadResult.getThroughput() < baseline.getThroughput() * (1 - throughputTolerance))
+            regressions.add(String.format("%s: throughput %.1f req/s is %.1f%% below the baseline %.1f req/s",
+                    loadResult.getName(), loadResult.getThroughput(),
+                    100 * (1 - loadResult.getThroughput() / baseline.getThroughput()), baseline.getThroughput()));
+
+        if (baseline.getP99() > 0 && loadResult.getP99() > baseline.getP99() * (1 + latencyTolerance))
+            regressions.add(String.format("%s: p99 latency %.3f ms is %.1f%% above the baseline %.3f ms",
+                    loadResult.getName(), loadResult.getP99(), 100 * (loadResult.getP99() / baseline.getP99() - 1),
+                    baseline.getP99()));
+
+        if (loadResult.getErrors() > 0 && baseline.getErrors() == 0)
+            regressions.add(String.format("%s: %d errors, while the baseline has none", loadResult.getName(),
+                    loadResult.getErrors()));
+
+        return regressions;
+    }
+}
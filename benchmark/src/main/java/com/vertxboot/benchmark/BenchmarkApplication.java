@@ -0,0 +1,195 @@
+package com.vertxboot.benchmark;
+
+import com.vertxboot.VertxApplication;
+import com.vertxboot.beans.BeanConfig;
+import com.vertxboot.beans.BeanFactory;
+import com.vertxboot.commons.config.AppConfig;
+import com.vertxboot.web.ServerManager;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Boots the sample application of the app package through VertxApplication.run, drives it with the LoadGenerator,
+ * and compares the results with the stored Baseline, exiting with 1 if any of them regressed:
+ * <pre>
+ * java -cp ... com.vertxboot.benchmark.BenchmarkApplication [config.json] [--update-baseline]
+ * mvn -Pbenchmark verify -pl benchmark [-Dbenchmark.updateBaseline=true]
+ * </pre>
+ * The config defaults to the benchmark.json resource, its server block configures the sample application, and its
+ * benchmark block the load, for example:
+ * <pre>
+ * "benchmark": {
+ *   "host": "localhost", "threads": 2, "baseline": "benchmark-baseline.json",
+ *   "throughputTolerance": 0.1, "latencyTolerance": 0.5,
+ *   "defaults": {"connections": 64, "warmup": 5, "duration": 15, "timeout": 5000},
+ *   "scenarios": [{"name": "ping-closed", "path": "/ping"},
+ *                 {"name": "item-open", "path": "/items/42", "mode": "open", "rate": 20000}]
+ * }
+ * </pre>
+ * where threads defaults to half the available processors, the other half being left to the server. The baseline is
+ * written, instead of compared, when it does not exist yet, or --update-baseline or -Dbenchmark.updateBaseline=true is
+ * given. The benchmark profile of the module runs it with the benchmark-baseline.json next to its pom, and fails the
+ * build on a regression. Baselines only compare between runs on the same machine, so that file is not committed: the
+ * first run on a machine writes it, from the checkout of the release to compare to, and the later runs compare to it.
+ */
+public class BenchmarkApplication {
+    protected static final String CONFIG_RESOURCE = "benchmark.json";
+    protected static final String UPDATE_BASELINE_ARGUMENT = "--update-baseline";
+    protected static final String UPDATE_BASELINE_PROPERTY = "benchmark.updateBaseline";
+    protected static final String BENCHMARK_CONFIG_KEY = "benchmark";
+    protected static final String SERVER_CONFIG_KEY = "server";
+    protected static final String SERVER_PORT_CONFIG_KEY = "serverPort";
+    protected static final String HOST_CONFIG_KEY = "host";
+    protected static final String THREADS_CONFIG_KEY = "threads";
+    protected static final String BASELINE_CONFIG_KEY = "baseline";
+    protected static final String THROUGHPUT_TOLERANCE_CONFIG_KEY = "throughputTolerance";
+    protected static final String LATENCY_TOLERANCE_CONFIG_KEY = "latencyTolerance";
+    protected static final String DEFAULTS_CONFIG_KEY = "defaults";
+    protected static final String SCENARIOS_CONFIG_KEY = "scenarios";
+    protected static final String DEFAULT_BASELINE = "benchmark-baseline.json";
+    protected static final double DEFAULT_THROUGHPUT_TOLERANCE = 0.1;
+    protected static final double DEFAULT_LATENCY_TOLERANCE = 0.5;
+
+    protected static Logger logger = LoggerFactory.getLogger(BenchmarkApplication.class);
+    protected static volatile JsonObject config;
+
+    protected BenchmarkApplication() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean updateBaseline = arguments.remove(UPDATE_BASELINE_ARGUMENT) ||
+                Boolean.getBoolean(UPDATE_BASELINE_PROPERTY);
+        BenchmarkApplication.config = loadConfig(arguments.isEmpty() ? null : Paths.get(arguments.get(0)));
+
+        // the beans are scanned from the package of the primary source, which must be a top level package to cover
+        // the beans of the framework along with the sample application
+        VertxApplication.run(VertxApplication.class);
+        CompletableFuture<ServerManager> serverManagerFuture = new CompletableFuture<>();
+        BeanFactory.instance().get(ServerManager.class).setHandler(serverManagerAsyncResult -> {
+            if (serverManagerAsyncResult.failed())
+                serverManagerFuture.completeExceptionally(serverManagerAsyncResult.cause());
+            else serverManagerFuture.complete(serverManagerAsyncResult.result());
+        });
+        ServerManager serverManager = serverManagerFuture.get();
+
+        int exitCode;
+        Vertx loadVertx = Vertx.vertx();
+        try {
+            exitCode = run(loadVertx, updateBaseline);
+        } finally {
+            CompletableFuture<Void> stopFuture = new CompletableFuture<>();
+            serverManager.stopServer().setHandler(stopAsyncResult -> stopFuture.complete(null));
+            stopFuture.get();
+            loadVertx.close();
+            BeanFactory.instance().getSync(Vertx.class).close();
+        }
+
+        System.exit(exitCode);
+    }
+
+    protected static int run(Vertx loadVertx, boolean updateBaseline) throws Exception {
+        JsonObject benchmarkConfig = config.getJsonObject(BENCHMARK_CONFIG_KEY, new JsonObject());
+        JsonObject defaultsConfig = benchmarkConfig.getJsonObject(DEFAULTS_CONFIG_KEY, new JsonObject());
+        JsonArray scenariosConfig = benchmarkConfig.getJsonArray(SCENARIOS_CONFIG_KEY, new JsonArray());
+        double throughputTolerance = benchmarkConfig.getDouble(THROUGHPUT_TOLERANCE_CONFIG_KEY,
+                DEFAULT_THROUGHPUT_TOLERANCE);
+        double latencyTolerance = benchmarkConfig.getDouble(LATENCY_TOLERANCE_CONFIG_KEY, DEFAULT_LATENCY_TOLERANCE);
+        Path baselinePath = Paths.get(benchmarkConfig.getString(BASELINE_CONFIG_KEY, DEFAULT_BASELINE));
+
+        LoadGenerator loadGenerator = LoadGenerator.create(loadVertx,
+                benchmarkConfig.getString(HOST_CONFIG_KEY, "localhost"),
+                config.getJsonObject(SERVER_CONFIG_KEY, new JsonObject()).getInteger(SERVER_PORT_CONFIG_KEY, 8080),
+                benchmarkConfig.getInteger(THREADS_CONFIG_KEY, Runtime.getRuntime().availableProcessors() / 2));
+
+        Map<Scenario, LoadResult> loadResultMap = new LinkedHashMap<>();
+        for (int index = 0; index < scenariosConfig.size(); index++) {
+            Scenario scenario = Scenario.load(scenariosConfig.getJsonObject(index), defaultsConfig);
+            CompletableFuture<LoadResult> loadResultFuture = new CompletableFuture<>();
+            loadGenerator.run(scenario).setHandler(loadResultAsyncResult -> {
+                if (loadResultAsyncResult.failed())
+                    loadResultFuture.completeExceptionally(loadResultAsyncResult.cause());
+                else loadResultFuture.complete(loadResultAsyncResult.result());
+            });
+
+            LoadResult loadResult = loadResultFuture.get();
+            logger.info("BenchmarkApplication: " + loadResult);
+            loadResultMap.put(scenario, loadResult);
+        }
+
+        Baseline baseline = Baseline.load(baselinePath);
+        if (updateBaseline || baseline.isEmpty()) {
+            Baseline.of(loadResultMap.values()).save(baselinePath);
+            logger.info("BenchmarkApplication: baseline written to " + baselinePath.toAbsolutePath());
+            return 0;
+        }
+
+        List<String> regressions = new ArrayList<>();
+        loadResultMap.forEach((scenario, loadResult) -> regressions.addAll(
+                baseline.compare(scenario, loadResult, throughputTolerance, latencyTolerance)));
+        if (regressions.isEmpty()) {
+            logger.info("BenchmarkApplication: no regression from the baseline " + baselinePath.toAbsolutePath());
+            return 0;
+        }
+
+        regressions.forEach(regression -> logger.error("BenchmarkApplication: regression: " + regression));
+        return 1;
+    }
+
+    protected static JsonObject loadConfig(Path path) throws IOException {
+        if (Objects.nonNull(path))
+            return new JsonObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+
+        try (InputStream inputStream = BenchmarkApplication.class.getClassLoader().getResourceAsStream(
+                CONFIG_RESOURCE)) {
+            if (Objects.isNull(inputStream))
+                throw new IOException("Missing " + CONFIG_RESOURCE + " resource");
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] bytes = new byte[4096];
+            for (int read = inputStream.read(bytes); read >= 0; read = inputStream.read(bytes))
+                outputStream.write(bytes, 0, read);
+            return new JsonObject(new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @BeanConfig(async = false, overridable = true)
+    public static AppConfig appConfig() {
+        JsonObject config = BenchmarkApplication.config;
+        return new AppConfig() {
+            @Override
+            public JsonObject getSync() {
+                return config;
+            }
+
+            @Override
+            public Future<JsonObject> get() {
+                return Future.succeededFuture(config);
+            }
+        };
+    }
+
+    @BeanConfig(async = false, overridable = true)
+    public static Vertx vertx(AppConfig appConfig) {
+        return Vertx.vertx(ServerManager.vertxOptions(appConfig));
+    }
+}
@@ -0,0 +1,274 @@
+package com.vertxboot.benchmark;
+
+import com.vertxboot.commons.metrics.Histogram;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.net.SocketAddress;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Drives a Scenario against an http server, from the given number of threads, each running its own HttpClient on its
+ * own event loop, with its share of the connections, and of the rate of an open loop scenario. The requests sent
+ * during the warmup are not recorded.
+ * <p>
+ * The latencies are corrected for coordinated omission, so a stalled server is not hidden by the requests the load
+ * generator did not send while waiting for it. In an open loop, the latency of a request is measured from the time it
+ * was due to be sent, rather than from the time it was actually sent, which includes the time it waited for a
+ * connection. In a closed loop, every latency longer than the expected interval between two requests of a connection,
+ * the mean latency of the warmup, is completed with the latencies the requests held back by it would have seen, the
+ * way HdrHistogram records with an expected interval.
+ */
+public class LoadGenerator {
+    protected static final long TICK_INTERVAL = 1L;
+    protected static final long STOP_GRACE = 1000L;
+    protected static final CharSequence APPLICATION_JSON = HttpHeaders.createOptimized("application/json");
+
+    protected static Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    protected final Vertx vertx;
+    protected final String host;
+    protected final int port;
+    protected final int threads;
+
+    protected LoadGenerator(Vertx vertx, String host, int port, int threads) {
+        this.vertx = vertx;
+        this.host = host;
+        this.port = port;
+        this.threads = threads;
+    }
+
+    public static LoadGenerator create(Vertx vertx, String host, int port, int threads) {
+        return new LoadGenerator(vertx, host, port, Math.max(1, threads));
+    }
+
+    /**
+     * Runs the given scenario, and completes with its result once its duration is over and its last requests
+     * completed, or timed out.
+     */
+    public Future<LoadResult> run(Scenario scenario) {
+        Run run = new Run(scenario, Math.min(this.threads, scenario.getConnections()));
+        logger.info("LoadGenerator: running " + scenario + " for " + scenario.getWarmup() + " s of warmup and " +
+                scenario.getDuration() + " s");
+
+        Promise<LoadResult> resultPromise = Promise.promise();
+        AtomicInteger runnerIndex = new AtomicInteger();
+        this.vertx.deployVerticle(() -> new Runner(run, runnerIndex.getAndIncrement()),
+                new DeploymentOptions().setInstances(run.runners), deploymentAsyncResult -> {
+                    if (deploymentAsyncResult.failed()) {
+                        resultPromise.fail(deploymentAsyncResult.cause());
+                        return;
+                    }
+
+                    run.donePromise.future().setHandler(doneAsyncResult -> this.vertx.undeploy(
+                            deploymentAsyncResult.result(), undeploymentAsyncResult -> resultPromise.complete(
+                                    LoadResult.create(scenario.getName(), run.latencyHistogram, run.requests.sum(),
+                                            run.errors.sum(), run.measureEnd - run.measureStart))));
+                });
+
+        return resultPromise.future();
+    }
+
+    /**
+     * The state of a scenario run, shared by its runners.
+     */
+    protected static class Run {
+        protected final Scenario scenario;
+        protected final int runners;
+        protected final long startTime;
+        protected final long measureStart;
+        protected final long measureEnd;
+        protected final Histogram warmupHistogram = new Histogram();
+        protected final Histogram latencyHistogram = new Histogram();
+        protected final LongAdder requests = new LongAdder();
+        protected final LongAdder errors = new LongAdder();
+        protected final AtomicInteger pendingRunners;
+        protected final Promise<Void> donePromise = Promise.promise();
+        protected volatile long expectedInterval = -1;
+
+        protected Run(Scenario scenario, int runners) {
+            this.scenario = scenario;
+            this.runners = runners;
+            this.pendingRunners = new AtomicInteger(runners);
+            this.startTime = System.nanoTime();
+            this.measureStart = this.startTime + TimeUnit.SECONDS.toNanos(scenario.getWarmup());
+            this.measureEnd = this.measureStart + TimeUnit.SECONDS.toNanos(scenario.getDuration());
+        }
+
+        protected void record(long dueTime, long endTime, boolean succeeded, boolean corrected) {
+            if (dueTime < this.measureStart) {
+                if (succeeded)
+                    this.warmupHistogram.record(endTime - dueTime);
+                return;
+            }
+
+            if (dueTime >= this.measureEnd)
+                return;
+
+            if (!succeeded) {
+                this.errors.increment();
+                return;
+            }
+
+            long latency = endTime - dueTime;
+            this.requests.increment();
+            this.latencyHistogram.record(latency);
+            if (!corrected)
+                return;
+
+            long expectedInterval = this.expectedInterval;
+            if (expectedInterval < 0)
+                this.expectedInterval = expectedInterval = Math.round(this.warmupHistogram.mean());
+            if (expectedInterval <= 0)
+                return;
+
+            for (long missedLatency = latency - expectedInterval; missedLatency >= expectedInterval;
+                 missedLatency -= expectedInterval)
+                this.latencyHistogram.record(missedLatency);
+        }
+
+        protected void done() {
+            if (this.pendingRunners.decrementAndGet() == 0)
+                this.donePromise.tryComplete();
+        }
+
+        protected int share(int total, int index) {
+            return total / this.runners + (index < total % this.runners ? 1 : 0);
+        }
+    }
+
+    /**
+     * Sends the requests of its share of a scenario run, from its own event loop.
+     */
+    protected class Runner extends AbstractVerticle {
+        protected final Run run;
+        protected final int connections;
+        protected final int rate;
+        protected HttpClient httpClient;
+        protected SocketAddress serverAddress;
+        protected RequestOptions requestOptions;
+        protected int activeLoops;
+        protected long sent;
+        protected int inFlight;
+        protected boolean sending = true;
+        protected boolean done;
+
+        protected Runner(Run run, int index) {
+            this.run = run;
+            this.connections = Math.max(1, run.share(run.scenario.getConnections(), index));
+            this.rate = run.share(run.scenario.getRate(), index);
+        }
+
+        @Override
+        public void start() {
+            this.httpClient = this.vertx.createHttpClient(new HttpClientOptions()
+                    .setDefaultHost(LoadGenerator.this.host)
+                    .setDefaultPort(LoadGenerator.this.port)
+                    .setKeepAlive(true)
+                    .setTcpNoDelay(true)
+                    .setMaxPoolSize(this.connections));
+            this.serverAddress = SocketAddress.inetSocketAddress(LoadGenerator.this.port, LoadGenerator.this.host);
+            this.requestOptions = new RequestOptions()
+                    .setHost(LoadGenerator.this.host)
+                    .setPort(LoadGenerator.this.port)
+                    .setURI(this.run.scenario.getPath());
+
+            long stopDelay = TimeUnit.NANOSECONDS.toMillis(this.run.measureEnd - System.nanoTime()) +
+                    this.run.scenario.getTimeout() + STOP_GRACE;
+            this.vertx.setTimer(Math.max(1L, stopDelay), id -> this.done());
+
+            if (this.run.scenario.getMode() == Scenario.Mode.CLOSED) {
+                this.activeLoops = this.connections;
+                for (int loop = 0; loop < this.connections; loop++)
+                    this.loop();
+            } else if (this.rate > 0)
+                this.vertx.setPeriodic(TICK_INTERVAL, this::tick);
+            else this.done();
+        }
+
+        protected void loop() {
+            long now = System.nanoTime();
+            if (now >= this.run.measureEnd) {
+                if (--this.activeLoops == 0)
+                    this.done();
+                return;
+            }
+
+            this.send(now, succeeded -> this.loop());
+        }
+
+        protected void tick(long timerId) {
+            long now = System.nanoTime();
+            long due = Math.min(now, this.run.measureEnd) - this.run.startTime;
+            long dueRequests = due * this.rate / TimeUnit.SECONDS.toNanos(1);
+            while (this.sent < dueRequests) {
+                long dueTime = this.run.startTime + this.sent * TimeUnit.SECONDS.toNanos(1) / this.rate;
+                this.sent++;
+                this.inFlight++;
+                this.send(dueTime, succeeded -> {
+                    if (--this.inFlight == 0 && !this.sending)
+                        this.done();
+                });
+            }
+
+            if (now >= this.run.measureEnd) {
+                this.vertx.cancelTimer(timerId);
+                this.sending = false;
+                if (this.inFlight == 0)
+                    this.done();
+            }
+        }
+
+        protected void send(long dueTime, Consumer<Boolean> completion) {
+            boolean corrected = this.run.scenario.getMode() == Scenario.Mode.CLOSED;
+            boolean[] completed = new boolean[1];
+            Consumer<Boolean> complete = succeeded -> {
+                if (completed[0])
+                    return;
+
+                completed[0] = true;
+                this.run.record(dueTime, System.nanoTime(), succeeded, corrected);
+                if (!this.done)
+                    completion.accept(succeeded);
+            };
+
+            HttpClientRequest request = this.httpClient.request(this.run.scenario.getMethod(), this.serverAddress,
+                    this.requestOptions, response -> {
+                        response.handler(data -> {
+                        });
+                        response.exceptionHandler(throwable -> complete.accept(false));
+                        response.endHandler(v -> complete.accept(response.statusCode() >= 200 &&
+                                response.statusCode() < 300));
+                    });
+            request.exceptionHandler(throwable -> complete.accept(false));
+            request.setTimeout(this.run.scenario.getTimeout());
+            Buffer body = this.run.scenario.getBody();
+            if (Objects.nonNull(body))
+                request.putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON).end(body);
+            else request.end();
+        }
+
+        protected void done() {
+            if (this.done)
+                return;
+
+            this.done = true;
+            this.run.done();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.vertxboot.benchmark;
+
+import com.vertxboot.commons.metrics.Histogram;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a Scenario: the throughput of the recorded duration, the errors, and the latency percentiles in
+ * milliseconds, corrected for coordinated omission (see LoadGenerator). It is stored in, and read back from, the
+ * baseline file as json.
+ */
+public class LoadResult {
+    protected static final String NAME_FIELD = "name";
+    protected static final String REQUESTS_FIELD = "requests";
+    protected static final String ERRORS_FIELD = "errors";
+    protected static final String THROUGHPUT_FIELD = "throughput";
+    protected static final String MEAN_FIELD = "mean";
+    protected static final String P50_FIELD = "p50";
+    protected static final String P90_FIELD = "p90";
+    protected static final String P99_FIELD = "p99";
+    protected static final String P999_FIELD = "p999";
+    protected static final String MAX_FIELD = "max";
+
+    protected String name;
+    protected long requests;
+    protected long errors;
+    protected double throughput;
+    protected double mean;
+    protected double p50;
+    protected double p90;
+    protected double p99;
+    protected double p999;
+    protected double max;
+
+    protected LoadResult() {
+    }
+
+    /**
+     * Summarizes the given latency histogram, in nanoseconds, of the given number of requests and errors recorded
+     * during the given duration.
+     */
+    public static LoadResult create(String name, Histogram latencyHistogram, long requests, long errors,
+                                    long durationNanos) {
+        LoadResult loadResult = new LoadResult();
+        loadResult.name = name;
+        loadResult.requests = requests;
+        loadResult.errors = errors;
+        loadResult.throughput = durationNanos > 0 ? requests * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos : 0;
+        loadResult.mean = millis(latencyHistogram.mean());
+        loadResult.p50 = millis(latencyHistogram.valueAtPercentile(50));
+        loadResult.p90 = millis(latencyHistogram.valueAtPercentile(90));
+        loadResult.p99 = millis(latencyHistogram.valueAtPercentile(99));
+        loadResult.p999 = millis(latencyHistogram.valueAtPercentile(99.9));
+        loadResult.max = millis(latencyHistogram.max());
+        return loadResult;
+    }
+
+    public static LoadResult fromJson(JsonObject json) {
+        LoadResult loadResult = new LoadResult();
+        loadResult.name = json.getString(NAME_FIELD);
+        loadResult.requests = json.getLong(REQUESTS_FIELD, 0L);
+        loadResult.errors = json.getLong(ERRORS_FIELD, 0L);
+        loadResult.throughput = json.getDouble(THROUGHPUT_FIELD, 0.0);
+        loadResult.mean = json.getDouble(MEAN_FIELD, 0.0);
+        loadResult.p50 = json.getDouble(P50_FIELD, 0.0);
+        loadResult.p90 = json.getDouble(P90_FIELD, 0.0);
+        loadResult.p99 = json.getDouble(P99_FIELD, 0.0);
+        loadResult.p999 = json.getDouble(P999_FIELD, 0.0);
+        loadResult.max = json.getDouble(MAX_FIELD, 0.0);
+        return loadResult;
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put(NAME_FIELD, this.name)
+                .put(REQUESTS_FIELD, this.requests)
+                .put(ERRORS_FIELD, this.errors)
+                .put(THROUGHPUT_FIELD, this.throughput)
+                .put(MEAN_FIELD, this.mean)
+                .put(P50_FIELD, this.p50)
+                .put(P90_FIELD, this.p90)
+                .put(P99_FIELD, this.p99)
+                .put(P999_FIELD, this.p999)
+                .put(MAX_FIELD, this.max);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getRequests() {
+        return this.requests;
+    }
+
+    public long getErrors() {
+        return this.errors;
+    }
+
+    /**
+     * Returns the completed requests per second.
+     */
+    public double getThroughput() {
+        return this.throughput;
+    }
+
+    public double getP99() {
+        return this.p99;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d requests, %d errors, %.1f req/s, latency ms mean %.3f p50 %.3f p90 %.3f " +
+                        "p99 %.3f p99.9 %.3f max %.3f", this.name, this.requests, this.errors, this.throughput, this.mean,
+                this.p50, this.p90, this.p99, this.p999, this.max);
+    }
+
+    protected static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
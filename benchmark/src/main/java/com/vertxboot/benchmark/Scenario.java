@@ -0,0 +1,132 @@
+package com.vertxboot.benchmark;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Objects;
+
+/**
+ * One load of the benchmark, read from an entry of benchmark.scenarios, for example:
+ * <pre>
+ * {"name": "items-open", "method": "GET", "path": "/items/42", "mode": "open", "rate": 20000, "connections": 64,
+ *  "warmup": 5, "duration": 20, "timeout": 5000}
+ * </pre>
+ * where a closed loop scenario keeps one request in flight per connection, sending the next one as soon as the
+ * previous one completes, and an open loop scenario sends rate requests per second whatever the response times. The
+ * keys left out default to the scenario defaults of the benchmark block.
+ */
+public class Scenario {
+    public enum Mode {
+        CLOSED, OPEN
+    }
+
+    protected static final String NAME_CONFIG_KEY = "name";
+    protected static final String METHOD_CONFIG_KEY = "method";
+    protected static final String PATH_CONFIG_KEY = "path";
+    protected static final String BODY_CONFIG_KEY = "body";
+    protected static final String MODE_CONFIG_KEY = "mode";
+    protected static final String CONNECTIONS_CONFIG_KEY = "connections";
+    protected static final String RATE_CONFIG_KEY = "rate";
+    protected static final String WARMUP_CONFIG_KEY = "warmup";
+    protected static final String DURATION_CONFIG_KEY = "duration";
+    protected static final String TIMEOUT_CONFIG_KEY = "timeout";
+    protected static final int DEFAULT_CONNECTIONS = 64;
+    protected static final int DEFAULT_RATE = 10000;
+    protected static final long DEFAULT_WARMUP = 5L;
+    protected static final long DEFAULT_DURATION = 15L;
+    protected static final long DEFAULT_TIMEOUT = 5000L;
+
+    protected String name;
+    protected HttpMethod method;
+    protected String path;
+    protected Buffer body;
+    protected Mode mode;
+    protected int connections;
+    protected int rate;
+    protected long warmup;
+    protected long duration;
+    protected long timeout;
+
+    protected Scenario() {
+    }
+
+    /**
+     * Reads the given scenario config, falling back to the given defaults for the keys it leaves out.
+     */
+    public static Scenario load(JsonObject scenarioConfig, JsonObject defaultsConfig) {
+        JsonObject config = defaultsConfig.copy().mergeIn(scenarioConfig);
+        Scenario scenario = new Scenario();
+        scenario.path = Objects.requireNonNull(config.getString(PATH_CONFIG_KEY), "Scenario: missing path");
+        scenario.name = config.getString(NAME_CONFIG_KEY, scenario.path);
+        scenario.method = HttpMethod.valueOf(config.getString(METHOD_CONFIG_KEY, HttpMethod.GET.name()).toUpperCase());
+        Object body = config.getValue(BODY_CONFIG_KEY);
+        scenario.body = Objects.isNull(body) ? null : body instanceof JsonObject ? ((JsonObject) body).toBuffer() :
+                Buffer.buffer(body.toString());
+        scenario.mode = Mode.valueOf(config.getString(MODE_CONFIG_KEY, Mode.CLOSED.name()).toUpperCase());
+        scenario.connections = config.getInteger(CONNECTIONS_CONFIG_KEY, DEFAULT_CONNECTIONS);
+        scenario.rate = config.getInteger(RATE_CONFIG_KEY, DEFAULT_RATE);
+        scenario.warmup = config.getLong(WARMUP_CONFIG_KEY, DEFAULT_WARMUP);
+        scenario.duration = config.getLong(DURATION_CONFIG_KEY, DEFAULT_DURATION);
+        scenario.timeout = config.getLong(TIMEOUT_CONFIG_KEY, DEFAULT_TIMEOUT);
+        return scenario;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public HttpMethod getMethod() {
+        return this.method;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    public Buffer getBody() {
+        return this.body;
+    }
+
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    public int getConnections() {
+        return this.connections;
+    }
+
+    /**
+     * Returns the requests per second of an open loop scenario.
+     */
+    public int getRate() {
+        return this.rate;
+    }
+
+    /**
+     * Returns the warmup, in seconds, whose requests are not recorded.
+     */
+    public long getWarmup() {
+        return this.warmup;
+    }
+
+    /**
+     * Returns the recorded duration, in seconds.
+     */
+    public long getDuration() {
+        return this.duration;
+    }
+
+    /**
+     * Returns the request timeout, in milliseconds, after which a request is recorded as an error.
+     */
+    public long getTimeout() {
+        return this.timeout;
+    }
+
+    @Override
+    public String toString() {
+        return this.name + " (" + this.method + " " + this.path + ", " + this.mode.name().toLowerCase() + " loop, " +
+                this.connections + " connections" + (this.mode == Mode.OPEN ? ", " + this.rate + " req/s" : "") + ")";
+    }
+}
@@ -0,0 +1,27 @@
+package com.vertxboot.benchmark.app;
+
+import com.vertxboot.web.BaseRestHandler;
+import com.vertxboot.web.RestHandler;
+import com.vertxboot.web.RestMapping;
+import com.vertxboot.web.ResponseWriter;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Reads a json body and writes it back, measuring the body handling and the json decoding and encoding.
+ */
+@RestHandler
+@RestMapping(httpMethod = HttpMethod.POST, path = "/echo")
+public class EchoRestHandler extends BaseRestHandler {
+    public static EchoRestHandler instance() {
+        return new EchoRestHandler();
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        JsonObject body = routingContext.getBodyAsJson();
+        ResponseWriter.write(routingContext, HttpResponseStatus.OK.code(), body.getMap());
+    }
+}
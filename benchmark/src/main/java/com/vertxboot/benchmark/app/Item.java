@@ -0,0 +1,37 @@
+package com.vertxboot.benchmark.app;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class Item {
+    protected long id;
+    protected String name;
+    protected double price;
+    protected List<String> tags;
+
+    public Item() {
+    }
+
+    public Item(long id) {
+        this.id = id;
+        this.name = "item-" + id;
+        this.price = id * 0.25;
+        this.tags = Arrays.asList("benchmark", "item", Long.toHexString(id));
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public double getPrice() {
+        return this.price;
+    }
+
+    public List<String> getTags() {
+        return this.tags;
+    }
+}
@@ -0,0 +1,35 @@
+package com.vertxboot.benchmark.app;
+
+import com.vertxboot.web.PathParam;
+import com.vertxboot.web.QueryParam;
+import com.vertxboot.web.RestMapping;
+import io.vertx.core.Future;
+import io.vertx.core.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rest handler methods (see MethodRestHandler) answering with pojos, measuring the parameter binding and the cached
+ * ObjectWriters of the JsonMapper.
+ */
+public class ItemRestHandlers {
+    protected static final int MAX_COUNT = 1000;
+
+    protected ItemRestHandlers() {
+    }
+
+    @RestMapping(httpMethod = HttpMethod.GET, path = "/items/:id")
+    public static Item getItem(@PathParam("id") long id) {
+        return new Item(id);
+    }
+
+    @RestMapping(httpMethod = HttpMethod.GET, path = "/items")
+    public static Future<List<Item>> listItems(@QueryParam("count") Integer count) {
+        int size = Math.min(count == null ? 10 : count, MAX_COUNT);
+        List<Item> items = new ArrayList<>(size);
+        for (int id = 0; id < size; id++)
+            items.add(new Item(id));
+        return Future.succeededFuture(items);
+    }
+}
@@ -0,0 +1,26 @@
+package com.vertxboot.benchmark.app;
+
+import com.vertxboot.web.BaseRestHandler;
+import com.vertxboot.web.RestHandler;
+import com.vertxboot.web.RestMapping;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * The cheapest route, measuring the overhead of the router and the handler chain alone.
+ */
+@RestHandler
+@RestMapping(httpMethod = HttpMethod.GET, path = "/ping")
+public class PingRestHandler extends BaseRestHandler {
+    protected static final Buffer PONG = Buffer.buffer("pong");
+
+    public static PingRestHandler instance() {
+        return new PingRestHandler();
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        routingContext.response().end(PONG);
+    }
+}
@@ -0,0 +1,148 @@
+package com.vertxboot.commons.deadline;
+
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The point in time after which nobody waits for the result of a request any more, so the downstream calls made on its
+ * behalf should not start, or should give up, once it has passed.
+ * <p>
+ * The deadline of the request being handled is the current deadline of the calling thread (see current), set by the
+ * web module around the invocation of a rest handler, and by the event bus interceptors (see intercept) around the
+ * delivery of a message sent on behalf of a request. The handlers completed later, on another call stack, only see the
+ * deadline if they are bound to it (see bind), as the VaultClient does for its result handlers.
+ * <p>
+ * Across the event bus, the deadline travels as the remaining milliseconds in the DEADLINE_HEADER of the message, as the
+ * clocks of the nodes are not comparable.
+ */
+public class Deadline {
+    public static final String DEADLINE_HEADER = "x-vertxboot-deadline";
+
+    protected static final ThreadLocal<Deadline> currentDeadline = new ThreadLocal<>();
+
+    protected final long expiresAtNanos;
+
+    protected Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(long timeout, TimeUnit timeUnit) {
+        return new Deadline(System.nanoTime() + timeUnit.toNanos(timeout));
+    }
+
+    /**
+     * Returns the deadline of the request handled by the calling thread, or null if there is none.
+     */
+    public static Deadline current() {
+        return currentDeadline.get();
+    }
+
+    /**
+     * Runs the given runnable with the given deadline as the current one, and restores the previous one afterwards.
+     */
+    public static void run(Deadline deadline, Runnable runnable) {
+        Deadline previousDeadline = currentDeadline.get();
+        currentDeadline.set(deadline);
+        try {
+            runnable.run();
+        } finally {
+            if (Objects.isNull(previousDeadline))
+                currentDeadline.remove();
+            else currentDeadline.set(previousDeadline);
+        }
+    }
+
+    /**
+     * Binds the given handler to the given deadline, so it runs with it as the current deadline wherever it is called.
+     */
+    public static <T> Handler<T> bind(Deadline deadline, Handler<T> handler) {
+        if (Objects.isNull(deadline))
+            return handler;
+
+        return result -> Deadline.run(deadline, () -> handler.handle(result));
+    }
+
+    /**
+     * Binds the given runnable to the current deadline, for example to hand it over to an executor.
+     */
+    public static Runnable wrap(Runnable runnable) {
+        Deadline deadline = Deadline.current();
+        if (Objects.isNull(deadline))
+            return runnable;
+
+        return () -> Deadline.run(deadline, runnable);
+    }
+
+    public long remaining(TimeUnit timeUnit) {
+        return timeUnit.convert(Math.max(0, this.expiresAtNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return this.expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Bounds the send timeout of the given delivery options by the remaining time of the current deadline, if any, so
+     * the reply handler gives up when the request does.
+     */
+    public static DeliveryOptions deliveryOptions(DeliveryOptions deliveryOptions) {
+        Deadline deadline = Deadline.current();
+        if (Objects.nonNull(deadline))
+            deliveryOptions.setSendTimeout(Math.max(1, Math.min(deliveryOptions.getSendTimeout(),
+                    deadline.remaining(TimeUnit.MILLISECONDS))));
+        return deliveryOptions;
+    }
+
+    /**
+     * Returns the deadline carried by the given message, or null if it carries none.
+     */
+    public static Deadline of(Message<?> message) {
+        String remaining = message.headers().get(DEADLINE_HEADER);
+        if (Objects.isNull(remaining))
+            return null;
+
+        try {
+            return Deadline.after(Long.parseLong(remaining), TimeUnit.MILLISECONDS);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Adds the interceptors propagating the deadlines over the given event bus: the messages sent with a current
+     * deadline carry its remaining time, and their consumers are called with it as their current deadline, unless it
+     * has already expired, in which case the message is dropped, and failed with the given failure code if a reply is
+     * expected.
+     */
+    public static void intercept(EventBus eventBus, int expiredFailureCode) {
+        eventBus.addOutboundInterceptor(deliveryContext -> {
+            Deadline deadline = Deadline.current();
+            if (Objects.nonNull(deadline) && !deliveryContext.message().headers().contains(DEADLINE_HEADER))
+                deliveryContext.message().headers().add(DEADLINE_HEADER,
+                        Long.toString(deadline.remaining(TimeUnit.MILLISECONDS)));
+            deliveryContext.next();
+        });
+
+        eventBus.addInboundInterceptor(deliveryContext -> {
+            Message<Object> message = deliveryContext.message();
+            Deadline deadline = Deadline.of(message);
+            if (Objects.isNull(deadline)) {
+                deliveryContext.next();
+                return;
+            }
+
+            if (deadline.isExpired()) {
+                if (Objects.nonNull(message.replyAddress()))
+                    message.fail(expiredFailureCode, "Deadline expired before delivery to " + message.address());
+                return;
+            }
+
+            Deadline.run(deadline, deliveryContext::next);
+        });
+    }
+}
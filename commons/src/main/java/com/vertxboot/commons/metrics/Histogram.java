@@ -0,0 +1,119 @@
+package com.vertxboot.commons.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, log-linear histogram of non-negative long values (typically nanoseconds). Every power-of-two range is
+ * split into SUB_BUCKET_HALF_COUNT linear sub-buckets, which bounds the relative error of any reported percentile to
+ * roughly 1 / SUB_BUCKET_HALF_COUNT, the same trade-off made by HdrHistogram. Recording is lock-free and allocation
+ * free, values above MAX_TRACKABLE_VALUE are clamped to it.
+ */
+public class Histogram {
+    protected static final int SUB_BUCKET_BITS = 5;
+    protected static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    protected static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+    protected static final long MAX_TRACKABLE_VALUE = (1L << 42) - 1;
+    protected static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE_VALUE) + 1;
+
+    protected final AtomicLongArray buckets;
+    protected final AtomicLong totalCount;
+    protected final AtomicLong totalSum;
+    protected final AtomicLong maxValue;
+
+    public Histogram() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.totalCount = new AtomicLong();
+        this.totalSum = new AtomicLong();
+        this.maxValue = new AtomicLong();
+    }
+
+    public void record(long value) {
+        long clampedValue = Math.min(Math.max(value, 0), MAX_TRACKABLE_VALUE);
+        this.buckets.incrementAndGet(indexOf(clampedValue));
+        this.totalCount.incrementAndGet();
+        this.totalSum.addAndGet(clampedValue);
+
+        long currentMax = this.maxValue.get();
+        while (clampedValue > currentMax && !this.maxValue.compareAndSet(currentMax, clampedValue))
+            currentMax = this.maxValue.get();
+    }
+
+    public long count() {
+        return this.totalCount.get();
+    }
+
+    public long sum() {
+        return this.totalSum.get();
+    }
+
+    public long max() {
+        return this.maxValue.get();
+    }
+
+    public double mean() {
+        long count = this.totalCount.get();
+        return (count == 0) ? 0 : ((double) this.totalSum.get()) / count;
+    }
+
+    public long valueAtPercentile(double percentile) {
+        long count = this.totalCount.get();
+        if (count == 0)
+            return 0;
+
+        long targetCount = Math.max(1, (long) Math.ceil((Math.min(percentile, 100.0) / 100.0) * count));
+        long cumulativeCount = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            cumulativeCount += this.buckets.get(index);
+            if (cumulativeCount >= targetCount)
+                return Math.min(highestValueAt(index), this.maxValue.get());
+        }
+
+        return this.maxValue.get();
+    }
+
+    /**
+     * Adds the recorded values of the given histogram to this one, for example to merge the stripes of a
+     * StripedHistogram into a snapshot.
+     */
+    public void add(Histogram histogram) {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            long bucketCount = histogram.buckets.get(index);
+            if (bucketCount != 0)
+                this.buckets.addAndGet(index, bucketCount);
+        }
+
+        this.totalCount.addAndGet(histogram.totalCount.get());
+        this.totalSum.addAndGet(histogram.totalSum.get());
+
+        long histogramMax = histogram.maxValue.get();
+        long currentMax = this.maxValue.get();
+        while (histogramMax > currentMax && !this.maxValue.compareAndSet(currentMax, histogramMax))
+            currentMax = this.maxValue.get();
+    }
+
+    public void reset() {
+        for (int index = 0; index < BUCKET_COUNT; index++)
+            this.buckets.set(index, 0);
+        this.totalCount.set(0);
+        this.totalSum.set(0);
+        this.maxValue.set(0);
+    }
+
+    protected static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        return (shift * SUB_BUCKET_HALF_COUNT) + (int) (value >>> shift);
+    }
+
+    protected static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+
+        int shift = ((index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT) + 1;
+        long topBits = index - ((long) shift * SUB_BUCKET_HALF_COUNT);
+        return ((topBits + 1) << shift) - 1;
+    }
+}
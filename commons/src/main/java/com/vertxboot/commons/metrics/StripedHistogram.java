@@ -0,0 +1,58 @@
+package com.vertxboot.commons.metrics;
+
+/**
+ * A histogram recorded into several independent stripes, selected by the recording thread, so that the event loops
+ * recording the same metric do not contend on the same counters. Recording stays lock-free and allocation free, and the
+ * stripes are only merged when a snapshot is taken, typically by a metrics scrape.
+ */
+public class StripedHistogram {
+    protected static final int DEFAULT_STRIPE_COUNT = Integer.highestOneBit(
+            Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+
+    protected final Histogram[] stripes;
+    protected final int stripeMask;
+
+    public StripedHistogram() {
+        this(DEFAULT_STRIPE_COUNT);
+    }
+
+    /**
+     * Creates a histogram of the given number of stripes, rounded up to a power of two.
+     */
+    public StripedHistogram(int stripeCount) {
+        int roundedStripeCount = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        if (stripeCount <= 1)
+            roundedStripeCount = 1;
+
+        this.stripes = new Histogram[roundedStripeCount];
+        for (int index = 0; index < roundedStripeCount; index++)
+            this.stripes[index] = new Histogram();
+        this.stripeMask = roundedStripeCount - 1;
+    }
+
+    public void record(long value) {
+        this.stripes[(int) Thread.currentThread().getId() & this.stripeMask].record(value);
+    }
+
+    /**
+     * Returns a new histogram with the values recorded by all the stripes so far.
+     */
+    public Histogram snapshot() {
+        Histogram histogram = new Histogram();
+        for (Histogram stripe : this.stripes)
+            histogram.add(stripe);
+        return histogram;
+    }
+
+    public long count() {
+        long count = 0;
+        for (Histogram stripe : this.stripes)
+            count += stripe.count();
+        return count;
+    }
+
+    public void reset() {
+        for (Histogram stripe : this.stripes)
+            stripe.reset();
+    }
+}
@@ -0,0 +1,278 @@
+package com.vertxboot.core;
+
+import com.vertxboot.beans.BeanConfig;
+import com.vertxboot.commons.config.AppConfig;
+import com.vertxboot.commons.metrics.Histogram;
+import io.netty.util.concurrent.EventExecutor;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryContext;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Continuous event loop health probe. A self rescheduling task is armed on every event loop of the vertx instance, and
+ * the difference between the time it was due and the time it actually ran is recorded as the scheduling lag of that
+ * event loop. Time spent in handlers is attributed to the owning class, either explicitly through attribute(), or
+ * implicitly for event bus consumers of the verticles registered through registerDeployment().
+ * <p>
+ * The probe is disabled by default, and it is enabled by setting probe.enabled in the application config.
+ */
+public class EventLoopProbe {
+    protected static final String PROBE_CONFIG_KEY = "probe";
+    protected static final String ENABLED_CONFIG_KEY = "enabled";
+    protected static final String LAG_INTERVAL_CONFIG_KEY = "lagInterval";
+    protected static final String BLOCKED_THRESHOLD_CONFIG_KEY = "blockedThreshold";
+    protected static final String REPORT_INTERVAL_CONFIG_KEY = "reportInterval";
+    protected static final String TOP_OFFENDERS_CONFIG_KEY = "topOffenders";
+    protected static final long DEFAULT_LAG_INTERVAL = 100;
+    protected static final long DEFAULT_BLOCKED_THRESHOLD = 50;
+    protected static final long DEFAULT_REPORT_INTERVAL = 0;
+    protected static final int DEFAULT_TOP_OFFENDERS = 10;
+    protected static final String INTERNAL_ADDRESS_PREFIX = "__vertx.";
+
+    protected static Logger logger = LoggerFactory.getLogger(EventLoopProbe.class);
+
+    protected final Map<String, Histogram> lagHistogramMap = new ConcurrentHashMap<>();
+    protected final Map<Class<?>, Offender> offenderMap = new ConcurrentHashMap<>();
+    protected final Map<String, Class<?>> deploymentIdToOwnerMap = new ConcurrentHashMap<>();
+    protected final Map<String, AddressCounter> addressCounterMap = new ConcurrentHashMap<>();
+    protected Vertx vertx;
+    protected boolean enabled;
+    protected long lagIntervalNanos;
+    protected long blockedThresholdNanos;
+    protected int topOffenders;
+
+    protected EventLoopProbe() {
+    }
+
+    public static EventLoopProbe start(Vertx vertx, AppConfig config) {
+        EventLoopProbe eventLoopProbe = new EventLoopProbe();
+        JsonObject probeConfig = config.getSync().getJsonObject(PROBE_CONFIG_KEY, new JsonObject());
+
+        eventLoopProbe.vertx = vertx;
+        eventLoopProbe.enabled = probeConfig.getBoolean(ENABLED_CONFIG_KEY, false);
+        eventLoopProbe.lagIntervalNanos = TimeUnit.MILLISECONDS.toNanos(
+                probeConfig.getLong(LAG_INTERVAL_CONFIG_KEY, DEFAULT_LAG_INTERVAL));
+        eventLoopProbe.blockedThresholdNanos = TimeUnit.MILLISECONDS.toNanos(
+                probeConfig.getLong(BLOCKED_THRESHOLD_CONFIG_KEY, DEFAULT_BLOCKED_THRESHOLD));
+        eventLoopProbe.topOffenders = probeConfig.getInteger(TOP_OFFENDERS_CONFIG_KEY, DEFAULT_TOP_OFFENDERS);
+
+        if (!eventLoopProbe.enabled) {
+            logger.info("EventLoopProbe: probe is disabled");
+            return eventLoopProbe;
+        }
+
+        logger.info("EventLoopProbe: arming lag timers on event loops");
+        int eventLoopIndex = 0;
+        for (EventExecutor eventExecutor : vertx.nettyEventLoopGroup()) {
+            Histogram lagHistogram = new Histogram();
+            eventLoopProbe.lagHistogramMap.put("eventLoop-" + eventLoopIndex++, lagHistogram);
+            eventLoopProbe.scheduleLagTick(eventExecutor, lagHistogram);
+        }
+
+        vertx.eventBus().addInboundInterceptor(eventLoopProbe::interceptInbound);
+        vertx.eventBus().addOutboundInterceptor(eventLoopProbe::interceptOutbound);
+
+        long reportInterval = probeConfig.getLong(REPORT_INTERVAL_CONFIG_KEY, DEFAULT_REPORT_INTERVAL);
+        if (reportInterval > 0)
+            vertx.setPeriodic(reportInterval, timerId -> logger.info("EventLoopProbe: " + eventLoopProbe.report().encode()));
+
+        logger.info("EventLoopProbe: probe started");
+        return eventLoopProbe;
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void registerDeployment(String deploymentId, Class<?> ownerClass) {
+        if (this.enabled)
+            this.deploymentIdToOwnerMap.put(deploymentId, ownerClass);
+    }
+
+    public void unregisterDeployment(String deploymentId) {
+        this.deploymentIdToOwnerMap.remove(deploymentId);
+    }
+
+    public int getEventLoopCount() {
+        return this.lagHistogramMap.size();
+    }
+
+    /**
+     * Returns the total event loop time attributed to the given class since the probe started.
+     */
+    public long getBusyNanos(Class<?> ownerClass) {
+        Offender offender = this.offenderMap.get(ownerClass);
+        return Objects.isNull(offender) ? 0 : offender.totalNanos();
+    }
+
+    /**
+     * Returns the total event loop time attributed to any class since the probe started, which is the busy time of all
+     * the event loops, but for the handlers neither attributed nor consuming for a registered verticle.
+     */
+    public long getTotalBusyNanos() {
+        return this.offenderMap.values().stream().mapToLong(Offender::totalNanos).sum();
+    }
+
+    /**
+     * Returns the number of point to point event bus messages sent to the addresses consumed by the verticles of the
+     * given class and not delivered yet. Addresses are learned on their first delivery, and publications are ignored.
+     */
+    public long getPendingMessages(Class<?> ownerClass) {
+        return this.addressCounterMap.values().stream()
+                .filter(addressCounter -> addressCounter.ownerClass.equals(ownerClass))
+                .mapToLong(addressCounter -> Math.max(0, addressCounter.sentCount.sum() - addressCounter.deliveredCount.sum()))
+                .sum();
+    }
+
+    public <T> Handler<T> attribute(Class<?> ownerClass, Handler<T> handler) {
+        if (!this.enabled)
+            return handler;
+
+        Offender offender = this.offenderMap.computeIfAbsent(ownerClass, Offender::new);
+        return event -> {
+            if (!Context.isOnEventLoopThread()) {
+                handler.handle(event);
+                return;
+            }
+
+            long startTime = System.nanoTime();
+            try {
+                handler.handle(event);
+            } finally {
+                this.record(offender, System.nanoTime() - startTime);
+            }
+        };
+    }
+
+    public JsonObject report() {
+        JsonObject eventLoops = new JsonObject();
+        this.lagHistogramMap.forEach((eventLoopName, lagHistogram) ->
+                eventLoops.put(eventLoopName, toJson(lagHistogram)));
+
+        JsonArray offenders = new JsonArray();
+        this.offenderMap.values().stream()
+                .sorted(Comparator.comparingLong(Offender::totalNanos).reversed())
+                .limit(this.topOffenders)
+                .forEach(offender -> offenders.add(toJson(offender.histogram)
+                        .put("owner", offender.ownerClass.getName())
+                        .put("totalMs", nanosToMillis(offender.totalNanos()))
+                        .put("blocked", offender.blockedCount.sum())));
+
+        return new JsonObject().put("eventLoops", eventLoops).put("offenders", offenders);
+    }
+
+    protected void scheduleLagTick(EventExecutor eventExecutor, Histogram lagHistogram) {
+        long dueTime = System.nanoTime() + this.lagIntervalNanos;
+        eventExecutor.schedule(() -> {
+            lagHistogram.record(System.nanoTime() - dueTime);
+            if (!eventExecutor.isShuttingDown())
+                this.scheduleLagTick(eventExecutor, lagHistogram);
+        }, this.lagIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    protected void interceptInbound(DeliveryContext<Object> deliveryContext) {
+        Context context = Vertx.currentContext();
+        String deploymentId = Objects.isNull(context) ? null : context.deploymentID();
+        Class<?> ownerClass = Objects.isNull(deploymentId) ? null : this.deploymentIdToOwnerMap.get(deploymentId);
+        if (Objects.isNull(ownerClass)) {
+            deliveryContext.next();
+            return;
+        }
+
+        String address = deliveryContext.message().address();
+        if (deliveryContext.message().isSend() && !address.startsWith(INTERNAL_ADDRESS_PREFIX))
+            this.addressCounterMap.computeIfAbsent(address, key -> new AddressCounter(ownerClass))
+                    .deliveredCount.increment();
+
+        if (!Context.isOnEventLoopThread()) {
+            deliveryContext.next();
+            return;
+        }
+
+        Offender offender = this.offenderMap.computeIfAbsent(ownerClass, Offender::new);
+        long startTime = System.nanoTime();
+        try {
+            deliveryContext.next();
+        } finally {
+            this.record(offender, System.nanoTime() - startTime);
+        }
+    }
+
+    protected void interceptOutbound(DeliveryContext<Object> deliveryContext) {
+        if (deliveryContext.send()) {
+            AddressCounter addressCounter = this.addressCounterMap.get(deliveryContext.message().address());
+            if (Objects.nonNull(addressCounter))
+                addressCounter.sentCount.increment();
+        }
+
+        deliveryContext.next();
+    }
+
+    protected void record(Offender offender, long elapsedNanos) {
+        offender.histogram.record(elapsedNanos);
+        if (elapsedNanos >= this.blockedThresholdNanos) {
+            offender.blockedCount.increment();
+            logger.warn(String.format("EventLoopProbe: %s held the event loop %s for %.3f ms",
+                    offender.ownerClass.getName(), Thread.currentThread().getName(), nanosToMillis(elapsedNanos)));
+        }
+    }
+
+    protected static JsonObject toJson(Histogram histogram) {
+        return new JsonObject()
+                .put("count", histogram.count())
+                .put("meanMs", histogram.mean() / 1_000_000.0)
+                .put("p50Ms", nanosToMillis(histogram.valueAtPercentile(50.0)))
+                .put("p99Ms", nanosToMillis(histogram.valueAtPercentile(99.0)))
+                .put("p999Ms", nanosToMillis(histogram.valueAtPercentile(99.9)))
+                .put("maxMs", nanosToMillis(histogram.max()));
+    }
+
+    protected static double nanosToMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    protected static class Offender {
+        protected final Class<?> ownerClass;
+        protected final Histogram histogram;
+        protected final LongAdder blockedCount;
+
+        protected Offender(Class<?> ownerClass) {
+            this.ownerClass = ownerClass;
+            this.histogram = new Histogram();
+            this.blockedCount = new LongAdder();
+        }
+
+        protected long totalNanos() {
+            return this.histogram.sum();
+        }
+    }
+
+    protected static class AddressCounter {
+        protected final Class<?> ownerClass;
+        protected final LongAdder sentCount;
+        protected final LongAdder deliveredCount;
+
+        protected AddressCounter(Class<?> ownerClass) {
+            this.ownerClass = ownerClass;
+            this.sentCount = new LongAdder();
+            this.deliveredCount = new LongAdder();
+        }
+    }
+
+    @BeanConfig(async = false, overridable = true)
+    public static EventLoopProbe eventLoopProbe(Vertx vertx, AppConfig appConfig) {
+        return EventLoopProbe.start(vertx, appConfig);
+    }
+}
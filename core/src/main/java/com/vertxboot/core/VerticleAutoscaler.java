@@ -0,0 +1,283 @@
+package com.vertxboot.core;
+
+import com.vertxboot.beans.BeanConfig;
+import com.vertxboot.commons.config.AppConfig;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scales the instances of the verticles listed in the autoscaling config block between their configured bounds, by
+ * deploying or undeploying extra single-instance deployments of the verticle classes known to the VerticleLoader. The
+ * instances of the original deployment are never undeployed.
+ * <p>
+ * Every sample interval, the event loop utilization of each verticle is computed from the busy time attributed to it by
+ * the EventLoopProbe, divided by its instance count. A verticle is scaled up when its utilization or its pending
+ * message count stays above the scale up thresholds, and scaled down when both stay below the scale down thresholds,
+ * for a number of consecutive samples equal to the hysteresis. Scaling up is suspended while the utilization of all the
+ * event loops exceeds maxEventLoopUtilization, because adding instances would then only starve other verticles. That
+ * utilization is the total busy time the EventLoopProbe attributes to any class, autoscaled or not, divided by the
+ * number of event loops.
+ * <pre>
+ * "autoscaling": {
+ *   "enabled": true, "sampleInterval": 5000, "hysteresis": 3,
+ *   "verticles": {"com.example.ReportVerticle": {"minInstances": 2, "maxInstances": 8}}
+ * }
+ * </pre>
+ */
+public class VerticleAutoscaler {
+    protected static final String AUTOSCALING_CONFIG_KEY = "autoscaling";
+    protected static final String ENABLED_CONFIG_KEY = "enabled";
+    protected static final String SAMPLE_INTERVAL_CONFIG_KEY = "sampleInterval";
+    protected static final String HYSTERESIS_CONFIG_KEY = "hysteresis";
+    protected static final String SCALE_UP_UTILIZATION_CONFIG_KEY = "scaleUpUtilization";
+    protected static final String SCALE_DOWN_UTILIZATION_CONFIG_KEY = "scaleDownUtilization";
+    protected static final String SCALE_UP_PENDING_MESSAGES_CONFIG_KEY = "scaleUpPendingMessages";
+    protected static final String SCALE_DOWN_PENDING_MESSAGES_CONFIG_KEY = "scaleDownPendingMessages";
+    protected static final String MAX_EVENT_LOOP_UTILIZATION_CONFIG_KEY = "maxEventLoopUtilization";
+    protected static final String VERTICLES_CONFIG_KEY = "verticles";
+    protected static final String MIN_INSTANCES_CONFIG_KEY = "minInstances";
+    protected static final String MAX_INSTANCES_CONFIG_KEY = "maxInstances";
+    protected static final long DEFAULT_SAMPLE_INTERVAL = 5000;
+    protected static final int DEFAULT_HYSTERESIS = 3;
+    protected static final double DEFAULT_SCALE_UP_UTILIZATION = 0.75;
+    protected static final double DEFAULT_SCALE_DOWN_UTILIZATION = 0.25;
+    protected static final long DEFAULT_SCALE_UP_PENDING_MESSAGES = 1000;
+    protected static final long DEFAULT_SCALE_DOWN_PENDING_MESSAGES = 10;
+    protected static final double DEFAULT_MAX_EVENT_LOOP_UTILIZATION = 0.9;
+
+    protected static Logger logger = LoggerFactory.getLogger(VerticleAutoscaler.class);
+
+    protected final Map<Class<?>, ScalingState> scalingStateMap = new ConcurrentHashMap<>();
+    protected Vertx vertx;
+    protected VerticleLoader verticleLoader;
+    protected EventLoopProbe eventLoopProbe;
+    protected boolean enabled;
+    protected int hysteresis;
+    protected double scaleUpUtilization;
+    protected double scaleDownUtilization;
+    protected long scaleUpPendingMessages;
+    protected long scaleDownPendingMessages;
+    protected double maxEventLoopUtilization;
+    protected long lastSampleTime;
+    protected long lastTotalBusyNanos;
+
+    protected VerticleAutoscaler() {
+    }
+
+    public static VerticleAutoscaler start(Vertx vertx, AppConfig config, VerticleLoader verticleLoader,
+                                           EventLoopProbe eventLoopProbe) {
+        VerticleAutoscaler verticleAutoscaler = new VerticleAutoscaler();
+        JsonObject autoscalingConfig = config.getSync().getJsonObject(AUTOSCALING_CONFIG_KEY, new JsonObject());
+        long sampleInterval = autoscalingConfig.getLong(SAMPLE_INTERVAL_CONFIG_KEY, DEFAULT_SAMPLE_INTERVAL);
+
+        verticleAutoscaler.vertx = vertx;
+        verticleAutoscaler.verticleLoader = verticleLoader;
+        verticleAutoscaler.eventLoopProbe = eventLoopProbe;
+        verticleAutoscaler.enabled = autoscalingConfig.getBoolean(ENABLED_CONFIG_KEY, false);
+        verticleAutoscaler.hysteresis = autoscalingConfig.getInteger(HYSTERESIS_CONFIG_KEY, DEFAULT_HYSTERESIS);
+        verticleAutoscaler.scaleUpUtilization = autoscalingConfig.getDouble(
+                SCALE_UP_UTILIZATION_CONFIG_KEY, DEFAULT_SCALE_UP_UTILIZATION);
+        verticleAutoscaler.scaleDownUtilization = autoscalingConfig.getDouble(
+                SCALE_DOWN_UTILIZATION_CONFIG_KEY, DEFAULT_SCALE_DOWN_UTILIZATION);
+        verticleAutoscaler.scaleUpPendingMessages = autoscalingConfig.getLong(
+                SCALE_UP_PENDING_MESSAGES_CONFIG_KEY, DEFAULT_SCALE_UP_PENDING_MESSAGES);
+        verticleAutoscaler.scaleDownPendingMessages = autoscalingConfig.getLong(
+                SCALE_DOWN_PENDING_MESSAGES_CONFIG_KEY, DEFAULT_SCALE_DOWN_PENDING_MESSAGES);
+        verticleAutoscaler.maxEventLoopUtilization = autoscalingConfig.getDouble(
+                MAX_EVENT_LOOP_UTILIZATION_CONFIG_KEY, DEFAULT_MAX_EVENT_LOOP_UTILIZATION);
+
+        if (!verticleAutoscaler.enabled) {
+            logger.info("VerticleAutoscaler: autoscaling is disabled");
+            return verticleAutoscaler;
+        }
+
+        if (!eventLoopProbe.isEnabled()) {
+            logger.warn("VerticleAutoscaler: autoscaling requires the event loop probe, autoscaling is disabled");
+            verticleAutoscaler.enabled = false;
+            return verticleAutoscaler;
+        }
+
+        JsonObject verticlesConfig = autoscalingConfig.getJsonObject(VERTICLES_CONFIG_KEY, new JsonObject());
+        // the autoscaler's own future, not shared with the other subscribers (see getDeploymentFuture)
+        Future<Void> deploymentFuture = verticleLoader.getDeploymentFuture();
+        deploymentFuture.setHandler(deploymentAsyncResult -> {
+            if (deploymentAsyncResult.failed()) {
+                logger.error("VerticleAutoscaler: verticles deployment failed, autoscaling is disabled");
+                return;
+            }
+
+            verticleLoader.getDeploymentIds().keySet().forEach(verticleClass -> {
+                JsonObject verticleConfig = VerticleLoader.verticleConfig(verticlesConfig, verticleClass,
+                        verticleLoader.getDeploymentIds().keySet());
+                if (Objects.isNull(verticleConfig))
+                    return;
+
+                int baseInstances = verticleLoader.getDeploymentOptions(verticleClass).getInstances();
+                ScalingState scalingState = new ScalingState(verticleClass.asSubclass(AbstractVerticle.class),
+                        baseInstances,
+                        Math.max(baseInstances, verticleConfig.getInteger(MIN_INSTANCES_CONFIG_KEY, baseInstances)),
+                        Math.max(baseInstances, verticleConfig.getInteger(MAX_INSTANCES_CONFIG_KEY, baseInstances)),
+                        eventLoopProbe.getBusyNanos(verticleClass));
+                verticleAutoscaler.scalingStateMap.put(verticleClass, scalingState);
+                logger.info(String.format("VerticleAutoscaler: autoscaling %s between %d and %d instances",
+                        verticleClass.getName(), scalingState.minInstances, scalingState.maxInstances));
+            });
+
+            verticleAutoscaler.scalingStateMap.values().forEach(verticleAutoscaler::scaleToMinimum);
+            verticleAutoscaler.lastSampleTime = System.nanoTime();
+            verticleAutoscaler.lastTotalBusyNanos = eventLoopProbe.getTotalBusyNanos();
+            vertx.setPeriodic(sampleInterval, timerId -> verticleAutoscaler.sample());
+        });
+
+        return verticleAutoscaler;
+    }
+
+    public int getInstances(Class<?> verticleClass) {
+        ScalingState scalingState = this.scalingStateMap.get(verticleClass);
+        return Objects.isNull(scalingState) ? 0 : scalingState.instances();
+    }
+
+    protected void sample() {
+        long sampleTime = System.nanoTime();
+        long elapsedNanos = Math.max(1, sampleTime - this.lastSampleTime);
+        this.lastSampleTime = sampleTime;
+
+        for (ScalingState scalingState : this.scalingStateMap.values()) {
+            long busyNanos = this.eventLoopProbe.getBusyNanos(scalingState.verticleClass);
+            scalingState.lastSampleUtilization = ((double) (busyNanos - scalingState.lastBusyNanos)) /
+                    (elapsedNanos * (double) scalingState.instances());
+            scalingState.lastBusyNanos = busyNanos;
+        }
+
+        long totalBusyNanos = this.eventLoopProbe.getTotalBusyNanos();
+        double eventLoopUtilization = ((double) (totalBusyNanos - this.lastTotalBusyNanos)) /
+                (elapsedNanos * (double) Math.max(1, this.eventLoopProbe.getEventLoopCount()));
+        this.lastTotalBusyNanos = totalBusyNanos;
+
+        this.scalingStateMap.values().forEach(scalingState -> {
+            if (scalingState.scaling)
+                return;
+
+            double utilization = scalingState.lastSampleUtilization;
+            long pendingMessages = this.eventLoopProbe.getPendingMessages(scalingState.verticleClass);
+
+            if ((utilization >= this.scaleUpUtilization) || (pendingMessages >= this.scaleUpPendingMessages)) {
+                scalingState.scaleDownStreak = 0;
+                scalingState.scaleUpStreak++;
+            } else if ((utilization <= this.scaleDownUtilization) && (pendingMessages <= this.scaleDownPendingMessages)) {
+                scalingState.scaleUpStreak = 0;
+                scalingState.scaleDownStreak++;
+            } else {
+                scalingState.scaleUpStreak = 0;
+                scalingState.scaleDownStreak = 0;
+            }
+
+            if ((scalingState.scaleUpStreak >= this.hysteresis) && (scalingState.instances() < scalingState.maxInstances)) {
+                if (eventLoopUtilization >= this.maxEventLoopUtilization) {
+                    logger.warn(String.format("VerticleAutoscaler: event loops are saturated (%.2f), not scaling up %s",
+                            eventLoopUtilization, scalingState.verticleClass.getName()));
+                    return;
+                }
+
+                logger.info(String.format("VerticleAutoscaler: scaling up %s from %d instances, utilization: %.2f " +
+                                "pending messages: %d", scalingState.verticleClass.getName(), scalingState.instances(),
+                        utilization, pendingMessages));
+                this.scaleUp(scalingState);
+            } else if ((scalingState.scaleDownStreak >= this.hysteresis) &&
+                    (scalingState.instances() > scalingState.minInstances)) {
+                logger.info(String.format("VerticleAutoscaler: scaling down %s from %d instances, utilization: %.2f " +
+                                "pending messages: %d", scalingState.verticleClass.getName(), scalingState.instances(),
+                        utilization, pendingMessages));
+                this.scaleDown(scalingState);
+            }
+        });
+    }
+
+    protected void scaleUp(ScalingState scalingState) {
+        scalingState.scaling = true;
+        scalingState.scaleUpStreak = 0;
+        DeploymentOptions deploymentOptions = new DeploymentOptions(
+                this.verticleLoader.getDeploymentOptions(scalingState.verticleClass)).setInstances(1);
+
+        this.verticleLoader.deploy(this.vertx, scalingState.verticleClass, deploymentOptions, this.eventLoopProbe)
+                .setHandler(deploymentAsyncResult -> {
+                    if (deploymentAsyncResult.succeeded())
+                        scalingState.extraDeploymentIds.push(deploymentAsyncResult.result());
+                    scalingState.scaling = false;
+                });
+    }
+
+    protected void scaleDown(ScalingState scalingState) {
+        scalingState.scaling = true;
+        scalingState.scaleDownStreak = 0;
+        String deploymentId = scalingState.extraDeploymentIds.pop();
+
+        this.verticleLoader.undeploy(this.vertx, scalingState.verticleClass, deploymentId, this.eventLoopProbe)
+                .setHandler(undeploymentAsyncResult -> {
+                    if (undeploymentAsyncResult.failed())
+                        scalingState.extraDeploymentIds.push(deploymentId);
+                    scalingState.scaling = false;
+                });
+    }
+
+    protected void scaleToMinimum(ScalingState scalingState) {
+        if (scalingState.instances() >= scalingState.minInstances)
+            return;
+
+        DeploymentOptions deploymentOptions = new DeploymentOptions(this.verticleLoader
+                .getDeploymentOptions(scalingState.verticleClass))
+                .setInstances(scalingState.minInstances - scalingState.instances());
+
+        scalingState.scaling = true;
+        this.verticleLoader.deploy(this.vertx, scalingState.verticleClass, deploymentOptions, this.eventLoopProbe)
+                .setHandler(deploymentAsyncResult -> {
+                    if (deploymentAsyncResult.succeeded())
+                        scalingState.baseInstances += deploymentOptions.getInstances();
+                    scalingState.scaling = false;
+                });
+    }
+
+    protected static class ScalingState {
+        protected final Class<? extends AbstractVerticle> verticleClass;
+        protected final int minInstances;
+        protected final int maxInstances;
+        protected final Deque<String> extraDeploymentIds;
+        protected int baseInstances;
+        protected long lastBusyNanos;
+        protected double lastSampleUtilization;
+        protected int scaleUpStreak;
+        protected int scaleDownStreak;
+        protected volatile boolean scaling;
+
+        protected ScalingState(Class<? extends AbstractVerticle> verticleClass, int baseInstances, int minInstances,
+                               int maxInstances, long lastBusyNanos) {
+            this.verticleClass = verticleClass;
+            this.baseInstances = baseInstances;
+            this.minInstances = minInstances;
+            this.maxInstances = Math.max(minInstances, maxInstances);
+            this.lastBusyNanos = lastBusyNanos;
+            this.extraDeploymentIds = new ArrayDeque<>();
+        }
+
+        protected int instances() {
+            return this.baseInstances + this.extraDeploymentIds.size();
+        }
+    }
+
+    @BeanConfig(async = false, overridable = true)
+    public static VerticleAutoscaler verticleAutoscaler(Vertx vertx, AppConfig appConfig, VerticleLoader verticleLoader,
+                                                        EventLoopProbe eventLoopProbe) {
+        return VerticleAutoscaler.start(vertx, appConfig, verticleLoader, eventLoopProbe);
+    }
+}
@@ -2,34 +2,91 @@ package com.vertxboot.core;
 
 import com.vertxboot.beans.BeanConfig;
 import com.vertxboot.beans.BeanFactory;
+import com.vertxboot.commons.config.AppConfig;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import org.reflections.Reflections;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 public class VerticleLoader {
 
     protected static final String STATIC_DEPLOYMENT_OPTIONS_GETTER = "getDeploymentOptions";
+    protected static final String VERTICLES_CONFIG_KEY = "verticles";
+    protected static final String INSTANCES_CONFIG_KEY = "instances";
+    protected static final String WORKER_CONFIG_KEY = "worker";
+    protected static final String WORKER_POOL_NAME_CONFIG_KEY = "workerPoolName";
+    protected static final String WORKER_POOL_SIZE_CONFIG_KEY = "workerPoolSize";
+    protected static final String MAX_WORKER_EXECUTE_TIME_CONFIG_KEY = "maxWorkerExecuteTime";
+    protected static final String HA_CONFIG_KEY = "ha";
 
     protected static Logger logger = LoggerFactory.getLogger(VerticleLoader.class);
 
+    protected final Map<Class<?>, List<String>> deploymentIdMap = new ConcurrentHashMap<>();
+    protected final Map<Class<?>, DeploymentOptions> deploymentOptionsMap = new ConcurrentHashMap<>();
+    protected final Map<String, Class<?>> deploymentIdToVerticleClassMap = new ConcurrentHashMap<>();
+    protected final List<Promise<Void>> deploymentPromises = new ArrayList<>();
+    protected AsyncResult<Void> deploymentResult;
+
     protected VerticleLoader() {
     }
 
-    @SuppressWarnings("unchecked")
     public static VerticleLoader load(Vertx vertx, DeploymentOptions deploymentOptions) {
+        return VerticleLoader.load(vertx, deploymentOptions, null, null);
+    }
+
+    /**
+     * Deploys all the classes annotated with Verticle in parallel, and returns without waiting for any of them. The
+     * deployment options of each verticle are the given default options, or the options returned by its static
+     * getDeploymentOptions method if useDefaultOptions is false, overridden by the entry of its fully qualified class
+     * name, or its simple name if no other verticle has the same, in the verticles block of the application config,
+     * for example:
+     * <pre>
+     * "verticles": {
+     *   "com.example.ReportVerticle": {"instances": 2, "worker": true, "workerPoolName": "reports",
+     *                                  "workerPoolSize": 8, "maxWorkerExecuteTime": 30000}
+     * }
+     * </pre>
+     * where maxWorkerExecuteTime is in milliseconds. The futures returned by getDeploymentFuture complete once every
+     * instance of every verticle has started, or fail with the first deployment failure.
+     */
+    public static VerticleLoader load(Vertx vertx, DeploymentOptions deploymentOptions, AppConfig config,
+                                      EventLoopProbe eventLoopProbe) {
         logger.info("VerticleLoader: loading verticles start...");
         VerticleLoader verticleLoader = new VerticleLoader();
+        JsonObject verticlesConfig = Objects.isNull(config) ? new JsonObject() :
+                config.getSync().getJsonObject(VERTICLES_CONFIG_KEY, new JsonObject());
+        List<Future<?>> deploymentFutureList = new ArrayList<>();
         logger.info("VerticleLoader: scanning for verticles");
         Reflections reflections = BeanFactory.instance().getSync(Reflections.class);
         Set<Class<?>> set = reflections.getTypesAnnotatedWith(Verticle.class);
 
         set.forEach(verticleClass -> {
+            if (!AbstractVerticle.class.isAssignableFrom(verticleClass)) {
+                ClassCastException e = new ClassCastException(verticleClass.getName() + " is not an AbstractVerticle");
+                logger.error("VerticleLoader: cannot deploy " + verticleClass.getName(), e);
+                deploymentFutureList.add(Future.failedFuture(e));
+                return;
+            }
+
             DeploymentOptions verticleDeploymentOptions = deploymentOptions;
             Verticle verticleAnnotation = verticleClass.getAnnotation(Verticle.class);
 
@@ -40,28 +97,181 @@ public class VerticleLoader {
                             STATIC_DEPLOYMENT_OPTIONS_GETTER).invoke(null);
                 } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
                     logger.error("VerticleLoader: failed to get deployment options for " + verticleClass.getName(), e);
+                    deploymentFutureList.add(Future.failedFuture(e));
                     return;
                 }
 
                 if (verticleDeploymentOptions == null) {
-                    logger.error("VerticleLoader: null deployment options for " + verticleClass.getName(),
-                            new NullPointerException("Deployment options cannot be null"));
+                    NullPointerException e = new NullPointerException("Deployment options cannot be null");
+                    logger.error("VerticleLoader: null deployment options for " + verticleClass.getName(), e);
+                    deploymentFutureList.add(Future.failedFuture(e));
                     return;
                 }
             }
 
-            try {
-                logger.info("VerticleLoader: deploying " + verticleClass.getName());
-                vertx.deployVerticle((Class<? extends AbstractVerticle>) verticleClass, verticleDeploymentOptions);
-            } catch (Exception e) {
-                logger.error("VerticleLoader: deployment failed: " + verticleClass.getName(), e);
+            JsonObject verticleConfig = verticleConfig(verticlesConfig, verticleClass, set);
+            if (Objects.nonNull(verticleConfig)) {
+                logger.info("VerticleLoader: applying configured deployment options for " + verticleClass.getName());
+                verticleDeploymentOptions = applyConfig(new DeploymentOptions(verticleDeploymentOptions), verticleConfig);
             }
+
+            verticleLoader.deploymentOptionsMap.put(verticleClass, verticleDeploymentOptions);
+            deploymentFutureList.add(verticleLoader.deploy(vertx, verticleClass.asSubclass(AbstractVerticle.class),
+                    verticleDeploymentOptions, eventLoopProbe));
+        });
+
+        all(deploymentFutureList).setHandler(deploymentAsyncResult -> {
+            if (deploymentAsyncResult.succeeded())
+                logger.info("VerticleLoader: all verticles are deployed");
+            verticleLoader.deployed(deploymentAsyncResult.mapEmpty());
         });
 
         logger.info("VerticleLoader: loading verticles done");
         return verticleLoader;
     }
 
+    /**
+     * Returns the entry of the given verticle class in the given config block, by its fully qualified name, or by its
+     * simple name if none of the other given verticle classes has the same. An entry of a simple name shared by
+     * several verticles is ignored with a warning, since it cannot tell which one it configures.
+     */
+    protected static JsonObject verticleConfig(JsonObject config, Class<?> verticleClass,
+                                               Collection<Class<?>> verticleClasses) {
+        JsonObject verticleConfig = config.getJsonObject(verticleClass.getName());
+        if (Objects.nonNull(verticleConfig) || !config.containsKey(verticleClass.getSimpleName()))
+            return verticleConfig;
+
+        for (Class<?> otherVerticleClass : verticleClasses)
+            if (otherVerticleClass != verticleClass &&
+                    otherVerticleClass.getSimpleName().equals(verticleClass.getSimpleName())) {
+                logger.warn("VerticleLoader: ignoring the config entry " + verticleClass.getSimpleName() + " for " +
+                        verticleClass.getName() + ", several verticles have this simple name, use their fully " +
+                        "qualified name instead");
+                return null;
+            }
+
+        return config.getJsonObject(verticleClass.getSimpleName());
+    }
+
+    /**
+     * Returns a new future of the deployment of the verticles. A future has a single handler, which setHandler
+     * replaces, so each caller gets its own future rather than sharing one whose handler another caller would replace.
+     */
+    public synchronized Future<Void> getDeploymentFuture() {
+        Promise<Void> deploymentPromise = Promise.promise();
+        if (Objects.nonNull(this.deploymentResult))
+            deploymentPromise.handle(this.deploymentResult);
+        else this.deploymentPromises.add(deploymentPromise);
+
+        return deploymentPromise.future();
+    }
+
+    protected void deployed(AsyncResult<Void> deploymentResult) {
+        List<Promise<Void>> deploymentPromises;
+        synchronized (this) {
+            this.deploymentResult = deploymentResult;
+            deploymentPromises = new ArrayList<>(this.deploymentPromises);
+            this.deploymentPromises.clear();
+        }
+
+        deploymentPromises.forEach(deploymentPromise -> deploymentPromise.handle(deploymentResult));
+    }
+
+    public Map<Class<?>, List<String>> getDeploymentIds() {
+        return Collections.unmodifiableMap(this.deploymentIdMap);
+    }
+
+    public Class<?> getVerticleClass(String deploymentId) {
+        return this.deploymentIdToVerticleClassMap.get(deploymentId);
+    }
+
+    public DeploymentOptions getDeploymentOptions(Class<?> verticleClass) {
+        return this.deploymentOptionsMap.get(verticleClass);
+    }
+
+    /**
+     * Returns CompositeFuture.all of the given futures, whose signature takes a raw list in this version of vertx.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    protected static CompositeFuture all(List<Future<?>> futures) {
+        return CompositeFuture.all((List) futures);
+    }
+
+    protected Future<String> deploy(Vertx vertx, Class<? extends AbstractVerticle> verticleClass,
+                                    DeploymentOptions deploymentOptions, EventLoopProbe eventLoopProbe) {
+        Promise<String> deploymentPromise = Promise.promise();
+        try {
+            logger.info("VerticleLoader: deploying " + verticleClass.getName() +
+                    " instances: " + deploymentOptions.getInstances());
+            vertx.deployVerticle(verticleClass, deploymentOptions, deploymentAsyncResult -> {
+                if (deploymentAsyncResult.failed()) {
+                    logger.error("VerticleLoader: deployment failed: " + verticleClass.getName(),
+                            deploymentAsyncResult.cause());
+                    deploymentPromise.fail(deploymentAsyncResult.cause());
+                    return;
+                }
+
+                this.deploymentIdMap.computeIfAbsent(verticleClass, key -> new CopyOnWriteArrayList<>())
+                        .add(deploymentAsyncResult.result());
+                this.deploymentIdToVerticleClassMap.put(deploymentAsyncResult.result(), verticleClass);
+                if (Objects.nonNull(eventLoopProbe))
+                    eventLoopProbe.registerDeployment(deploymentAsyncResult.result(), verticleClass);
+                deploymentPromise.complete(deploymentAsyncResult.result());
+            });
+        } catch (Exception e) {
+            logger.error("VerticleLoader: deployment failed: " + verticleClass.getName(), e);
+            deploymentPromise.fail(e);
+        }
+
+        return deploymentPromise.future();
+    }
+
+    protected Future<Void> undeploy(Vertx vertx, Class<?> verticleClass, String deploymentId,
+                                    EventLoopProbe eventLoopProbe) {
+        Promise<Void> undeploymentPromise = Promise.promise();
+        logger.info("VerticleLoader: undeploying " + verticleClass.getName() + " deployment: " + deploymentId);
+        vertx.undeploy(deploymentId, undeploymentAsyncResult -> {
+            if (undeploymentAsyncResult.failed()) {
+                logger.error("VerticleLoader: undeployment failed: " + verticleClass.getName(),
+                        undeploymentAsyncResult.cause());
+                undeploymentPromise.fail(undeploymentAsyncResult.cause());
+                return;
+            }
+
+            this.deploymentIdMap.getOrDefault(verticleClass, Collections.emptyList()).remove(deploymentId);
+            this.deploymentIdToVerticleClassMap.remove(deploymentId);
+            if (Objects.nonNull(eventLoopProbe))
+                eventLoopProbe.unregisterDeployment(deploymentId);
+            undeploymentPromise.complete();
+        });
+
+        return undeploymentPromise.future();
+    }
+
+    protected static DeploymentOptions applyConfig(DeploymentOptions deploymentOptions, JsonObject verticleConfig) {
+        if (verticleConfig.containsKey(INSTANCES_CONFIG_KEY))
+            deploymentOptions.setInstances(verticleConfig.getInteger(INSTANCES_CONFIG_KEY));
+
+        if (verticleConfig.containsKey(WORKER_CONFIG_KEY))
+            deploymentOptions.setWorker(verticleConfig.getBoolean(WORKER_CONFIG_KEY));
+
+        if (verticleConfig.containsKey(WORKER_POOL_NAME_CONFIG_KEY))
+            deploymentOptions.setWorkerPoolName(verticleConfig.getString(WORKER_POOL_NAME_CONFIG_KEY));
+
+        if (verticleConfig.containsKey(WORKER_POOL_SIZE_CONFIG_KEY))
+            deploymentOptions.setWorkerPoolSize(verticleConfig.getInteger(WORKER_POOL_SIZE_CONFIG_KEY));
+
+        if (verticleConfig.containsKey(MAX_WORKER_EXECUTE_TIME_CONFIG_KEY))
+            deploymentOptions
+                    .setMaxWorkerExecuteTime(verticleConfig.getLong(MAX_WORKER_EXECUTE_TIME_CONFIG_KEY))
+                    .setMaxWorkerExecuteTimeUnit(TimeUnit.MILLISECONDS);
+
+        if (verticleConfig.containsKey(HA_CONFIG_KEY))
+            deploymentOptions.setHa(verticleConfig.getBoolean(HA_CONFIG_KEY));
+
+        return deploymentOptions;
+    }
+
     @BeanConfig(async = false, overridable = true)
     public static DeploymentOptions defaultDeploymentOptions() {
         logger.info("VerticleLoader: no deployment options bean is found, creating default deployment options");
@@ -71,7 +281,8 @@ public class VerticleLoader {
     }
 
     @BeanConfig(async = false, overridable = true)
-    public static VerticleLoader verticleLoader(Vertx vertx, DeploymentOptions deploymentOptions) {
-        return VerticleLoader.load(vertx, deploymentOptions);
+    public static VerticleLoader verticleLoader(Vertx vertx, DeploymentOptions deploymentOptions, AppConfig appConfig,
+                                                EventLoopProbe eventLoopProbe) {
+        return VerticleLoader.load(vertx, deploymentOptions, appConfig, eventLoopProbe);
     }
 }
@@ -1,5 +1,6 @@
 package com.vertxboot.vault.repository;
 
+import com.vertxboot.commons.deadline.Deadline;
 import io.vertx.config.vault.client.*;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
@@ -17,11 +18,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class VaultClient {
     public static final String TOKEN_HEADER = "X-Vault-Token";
     private static final String NULL_TOKEN_ERROR_MESSAGE = "The token must not be null";
     private static final String VAULT_ACCESS_FAILED_ERROR_MESSAGE = "Unable to access vault";
+    private static final String DEADLINE_EXPIRED_ERROR_MESSAGE = "The request deadline expired before calling vault";
 
     private final WebClient client;
 
@@ -45,44 +49,43 @@ public class VaultClient {
     public void read(String token, String path, Handler<AsyncResult<Secret>> responseHandler) {
         Objects.requireNonNull(responseHandler);
 
-        client.get("/v1/" + Objects.requireNonNull(path))
-                .putHeader(TOKEN_HEADER, Objects.requireNonNull(token, NULL_TOKEN_ERROR_MESSAGE))
-                .send(response -> {
-                    if (response.failed()) {
-                        responseHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, response.cause()));
-                        return;
-                    }
-
-                    HttpResponse<Buffer> result = response.result();
-                    if (result.statusCode() != 200) {
-                        responseHandler.handle(VaultException.toFailure(result.statusMessage(), result.statusCode(),
-                                result.bodyAsString()));
-                    } else {
-                        Secret secret = result.bodyAsJson(Secret.class);
-                        responseHandler.handle(Future.succeededFuture(secret));
-                    }
-                });
+        HttpRequest<Buffer> request = client.get("/v1/" + Objects.requireNonNull(path))
+                .putHeader(TOKEN_HEADER, Objects.requireNonNull(token, NULL_TOKEN_ERROR_MESSAGE));
+        send(request, null, response -> {
+            if (response.failed()) {
+                responseHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, response.cause()));
+                return;
+            }
+
+            HttpResponse<Buffer> result = response.result();
+            if (result.statusCode() != 200) {
+                responseHandler.handle(VaultException.toFailure(result.statusMessage(), result.statusCode(),
+                        result.bodyAsString()));
+            } else {
+                Secret secret = result.bodyAsJson(Secret.class);
+                responseHandler.handle(Future.succeededFuture(secret));
+            }
+        });
     }
 
     public void write(String token, String path, JsonObject secrets, Handler<AsyncResult<Secret>> resultHandler) {
         Objects.requireNonNull(resultHandler);
-        client.post("/v1/" + Objects.requireNonNull(path))
-                .putHeader(TOKEN_HEADER, Objects.requireNonNull(token, NULL_TOKEN_ERROR_MESSAGE))
-                .sendJsonObject(Objects.requireNonNull(secrets, "The secret must be set"),
-                        ar -> {
-                            if (ar.failed()) {
-                                resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
-                                return;
-                            }
-
-                            HttpResponse<Buffer> response = ar.result();
-                            if (response.statusCode() == 200 || response.statusCode() == 204) {
-                                resultHandler.handle(Future.succeededFuture(response.bodyAsJson(Secret.class)));
-                            } else {
-                                resultHandler.handle(VaultException.toFailure(response.statusMessage(), response.statusCode(),
-                                        response.bodyAsString()));
-                            }
-                        });
+        HttpRequest<Buffer> request = client.post("/v1/" + Objects.requireNonNull(path))
+                .putHeader(TOKEN_HEADER, Objects.requireNonNull(token, NULL_TOKEN_ERROR_MESSAGE));
+        send(request, Objects.requireNonNull(secrets, "The secret must be set"), ar -> {
+            if (ar.failed()) {
+                resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
+                return;
+            }
+
+            HttpResponse<Buffer> response = ar.result();
+            if (response.statusCode() == 200 || response.statusCode() == 204) {
+                resultHandler.handle(Future.succeededFuture(response.bodyAsJson(Secret.class)));
+            } else {
+                resultHandler.handle(VaultException.toFailure(response.statusMessage(), response.statusCode(),
+                        response.bodyAsString()));
+            }
+        });
     }
 
     public void list(String token, String path, Handler<AsyncResult<List<String>>> resultHandler) {
@@ -114,34 +117,35 @@ public class VaultClient {
 
     public void delete(String token, String path, Handler<AsyncResult<Void>> resultHandler) {
         Objects.requireNonNull(resultHandler);
-        client.delete("/v1/" + Objects.requireNonNull(path))
-                .putHeader(TOKEN_HEADER, Objects.requireNonNull(token, NULL_TOKEN_ERROR_MESSAGE))
-                .send(ar -> {
-                    if (ar.failed()) {
-                        resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
-                        return;
-                    }
-
-                    HttpResponse<Buffer> response = ar.result();
-                    if (response.statusCode() != 204) {
-                        resultHandler.handle(VaultException.toFailure(response.statusMessage(), response.statusCode(),
-                                response.bodyAsString()));
-                    } else {
-                        resultHandler.handle(Future.succeededFuture());
-                    }
-                });
+        HttpRequest<Buffer> request = client.delete("/v1/" + Objects.requireNonNull(path))
+                .putHeader(TOKEN_HEADER, Objects.requireNonNull(token, NULL_TOKEN_ERROR_MESSAGE));
+        send(request, null, ar -> {
+            if (ar.failed()) {
+                resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
+                return;
+            }
+
+            HttpResponse<Buffer> response = ar.result();
+            if (response.statusCode() != 204) {
+                resultHandler.handle(VaultException.toFailure(response.statusMessage(), response.statusCode(),
+                        response.bodyAsString()));
+            } else {
+                resultHandler.handle(Future.succeededFuture());
+            }
+        });
     }
 
     public void createToken(String token, TokenRequest tokenRequest, Handler<AsyncResult<Auth>> resultHandler) {
-        client.post("/v1/auth/token/create" + ((tokenRequest.getRole() == null) ? "" : "/" + tokenRequest.getRole()))
-                .putHeader(TOKEN_HEADER, Objects.requireNonNull(token, NULL_TOKEN_ERROR_MESSAGE))
-                .sendJsonObject(tokenRequest.toPayload(), ar -> {
-                    if (ar.failed()) {
-                        resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
-                        return;
-                    }
-                    manageAuthResult(resultHandler, ar.result());
-                });
+        HttpRequest<Buffer> request = client.post("/v1/auth/token/create" +
+                ((tokenRequest.getRole() == null) ? "" : "/" + tokenRequest.getRole()))
+                .putHeader(TOKEN_HEADER, Objects.requireNonNull(token, NULL_TOKEN_ERROR_MESSAGE));
+        send(request, tokenRequest.toPayload(), ar -> {
+            if (ar.failed()) {
+                resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
+                return;
+            }
+            manageAuthResult(resultHandler, ar.result());
+        });
     }
 
     private void manageAuthResult(Handler<AsyncResult<Auth>> resultHandler, HttpResponse<Buffer> response) {
@@ -161,15 +165,15 @@ public class VaultClient {
                 .put("role_id", Objects.requireNonNull(roleId, "The role must not be null"))
                 .put("secret_id", Objects.requireNonNull(secretId, "The secret must not be null"));
 
-        client.post("/v1/auth/approle/login")
-                .sendJsonObject(payload, ar -> {
-                    if (ar.failed()) {
-                        resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
-                        return;
-                    }
+        HttpRequest<Buffer> request = client.post("/v1/auth/approle/login");
+        send(request, payload, ar -> {
+            if (ar.failed()) {
+                resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
+                return;
+            }
 
-                    manageAuthResult(resultHandler, ar.result());
-                });
+            manageAuthResult(resultHandler, ar.result());
+        });
     }
 
     public void loginWithUserCredentials(String username, String password, Handler<AsyncResult<Auth>>
@@ -177,27 +181,28 @@ public class VaultClient {
         JsonObject payload = new JsonObject()
                 .put("password", Objects.requireNonNull(password, "The password must not be null"));
 
-        client.post("/v1/auth/userpass/login/" + Objects.requireNonNull(username, "The username must not be null"))
-                .sendJsonObject(payload, ar -> {
-                    if (ar.failed()) {
-                        resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
-                        return;
-                    }
+        HttpRequest<Buffer> request = client.post("/v1/auth/userpass/login/" +
+                Objects.requireNonNull(username, "The username must not be null"));
+        send(request, payload, ar -> {
+            if (ar.failed()) {
+                resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
+                return;
+            }
 
-                    manageAuthResult(resultHandler, ar.result());
-                });
+            manageAuthResult(resultHandler, ar.result());
+        });
     }
 
     public void loginWithCert(Handler<AsyncResult<Auth>> resultHandler) {
-        client.post("/v1/auth/cert/login")
-                .send(ar -> {
-                    if (ar.failed()) {
-                        resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
-                        return;
-                    }
-
-                    manageAuthResult(resultHandler, ar.result());
-                });
+        HttpRequest<Buffer> request = client.post("/v1/auth/cert/login");
+        send(request, null, ar -> {
+            if (ar.failed()) {
+                resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
+                return;
+            }
+
+            manageAuthResult(resultHandler, ar.result());
+        });
     }
 
     public void renewSelf(String token, long leaseDurationInSecond, Handler<AsyncResult<Auth>> resultHandler) {
@@ -216,30 +221,51 @@ public class VaultClient {
             manageAuthResult(resultHandler, ar.result());
         };
 
+        send(request, payload, handler);
+    }
+
+    public void lookupSelf(String token, Handler<AsyncResult<Lookup>> resultHandler) {
+        HttpRequest<Buffer> request = client.get("/v1/auth/token/lookup-self")
+                .putHeader(TOKEN_HEADER, Objects.requireNonNull(token, NULL_TOKEN_ERROR_MESSAGE));
+        send(request, null, ar -> {
+            if (ar.failed()) {
+                resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
+                return;
+            }
+            HttpResponse<Buffer> response = ar.result();
+            if (response.statusCode() != 200) {
+                resultHandler.handle(VaultException.toFailure(response.statusMessage(), response.statusCode(),
+                        response.bodyAsString()));
+            } else {
+                JsonObject object = response.bodyAsJsonObject();
+                Lookup lookup = object.getJsonObject("data").mapTo(Lookup.class);
+                resultHandler.handle(Future.succeededFuture(lookup));
+            }
+        });
+    }
+
+    /**
+     * Sends the given request within the current Deadline, if any: the request times out when the deadline passes, and
+     * is not sent at all if it has already passed, and the given handler is called with the deadline as the current
+     * one, so the calls it chains are bounded by it as well.
+     */
+    private void send(HttpRequest<Buffer> request, JsonObject payload,
+                      Handler<AsyncResult<HttpResponse<Buffer>>> handler) {
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            if (deadline.isExpired()) {
+                handler.handle(Future.failedFuture(new TimeoutException(DEADLINE_EXPIRED_ERROR_MESSAGE)));
+                return;
+            }
+
+            request.timeout(Math.max(1, deadline.remaining(TimeUnit.MILLISECONDS)));
+            handler = Deadline.bind(deadline, handler);
+        }
+
         if (payload != null) {
             request.sendJsonObject(payload, handler);
         } else {
             request.send(handler);
         }
     }
-
-    public void lookupSelf(String token, Handler<AsyncResult<Lookup>> resultHandler) {
-        client.get("/v1/auth/token/lookup-self")
-                .putHeader(TOKEN_HEADER, Objects.requireNonNull(token, NULL_TOKEN_ERROR_MESSAGE))
-                .send(ar -> {
-                    if (ar.failed()) {
-                        resultHandler.handle(VaultException.toFailure(VAULT_ACCESS_FAILED_ERROR_MESSAGE, ar.cause()));
-                        return;
-                    }
-                    HttpResponse<Buffer> response = ar.result();
-                    if (response.statusCode() != 200) {
-                        resultHandler.handle(VaultException.toFailure(response.statusMessage(), response.statusCode(),
-                                response.bodyAsString()));
-                    } else {
-                        JsonObject object = response.bodyAsJsonObject();
-                        Lookup lookup = object.getJsonObject("data").mapTo(Lookup.class);
-                        resultHandler.handle(Future.succeededFuture(lookup));
-                    }
-                });
-    }
 }
@@ -0,0 +1,21 @@
+package com.vertxboot.virtualthreads;
+
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Java 8 variant, virtual threads are not available. The java 21 variant of this class is packaged under
+ * META-INF/versions/21 of the multi-release jar, and it is picked up by the JVM instead of this one on java 21+.
+ */
+class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * Returns null, as there is no virtual thread per task executor to create on this JVM.
+     */
+    static Function<String, ExecutorService> virtualThreadExecutorFactory() {
+        return null;
+    }
+}
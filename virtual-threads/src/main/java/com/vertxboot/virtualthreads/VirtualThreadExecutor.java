@@ -0,0 +1,279 @@
+package com.vertxboot.virtualthreads;
+
+import com.vertxboot.beans.BeanConfig;
+import com.vertxboot.commons.config.AppConfig;
+import com.vertxboot.commons.deadline.Deadline;
+import com.vertxboot.core.VerticleLoader;
+import com.vertxboot.web.BaseRestHandler;
+import com.vertxboot.web.Blocking;
+import com.vertxboot.web.RestHandlerDecorator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryContext;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs every invocation of the rest handlers and the event bus consumers of the verticles annotated with
+ * RunOnVirtualThread on its own virtual thread, where blocking calls, including BeanFactory.getSync, are safe. On JVMs
+ * older than java 21, or when virtualThreads.forceFallback is set, invocations run on a bounded worker pool instead,
+ * sized by virtualThreads.fallbackPoolSize and virtualThreads.fallbackQueueSize, and invocations rejected by a full
+ * pool fail with 503. The implementation is selected once, when this class is loaded, and if virtualThreads.required is
+ * set, start fails with an IllegalStateException instead of falling back.
+ * <p>
+ * Rest handlers are only dispatched if this executor is listed in InterceptorConfig.decorators(). A rest handler also
+ * annotated with Blocking is left to its BlockingPool, which takes precedence, and RunOnVirtualThread is ignored for it
+ * with a warning. Event bus consumers of an annotated verticle instance are dispatched one message at a time, in their
+ * delivery order, as on its event loop, and the messages arriving while one is handled are queued behind it.
+ * <p>
+ * The invocations run without a vertx context, as virtual threads cannot carry one: a failure of a rest handler is
+ * reported on the context of its request, and handlers resume on the context they were dispatched from with
+ * VirtualThreadExecutor.context().runOnContext, for example to use the vertx apis bound to their verticle.
+ * <pre>
+ * "virtualThreads": {
+ *     "required": false,
+ *     "forceFallback": false,
+ *     "fallbackPoolSize": 64,
+ *     "fallbackQueueSize": 10000
+ * }
+ * </pre>
+ */
+public class VirtualThreadExecutor implements RestHandlerDecorator {
+    protected static final String VIRTUAL_THREADS_CONFIG_KEY = "virtualThreads";
+    protected static final String REQUIRED_CONFIG_KEY = "required";
+    protected static final String FORCE_FALLBACK_CONFIG_KEY = "forceFallback";
+    protected static final String FALLBACK_POOL_SIZE_CONFIG_KEY = "fallbackPoolSize";
+    protected static final String FALLBACK_QUEUE_SIZE_CONFIG_KEY = "fallbackQueueSize";
+    protected static final String THREAD_NAME_PREFIX = "vertx-boot-virtual-";
+    protected static final int DEFAULT_FALLBACK_POOL_SIZE = 64;
+    protected static final int DEFAULT_FALLBACK_QUEUE_SIZE = 10000;
+
+    protected static Logger logger = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+
+    // null on JVMs without virtual threads, see the java 8 and java 21 variants of ThreadFactories
+    protected static final Function<String, ExecutorService> virtualThreadExecutorFactory =
+            ThreadFactories.virtualThreadExecutorFactory();
+
+    // the context each invocation was dispatched from, see context()
+    protected static final ThreadLocal<Context> invocationContext = new ThreadLocal<>();
+
+    // the messages queued behind the one handled for each verticle context, guarded by itself
+    protected final Map<Context, Deque<Runnable>> orderedTaskMap = new HashMap<>();
+    protected ExecutorService executorService;
+    protected boolean virtual;
+
+    protected VirtualThreadExecutor() {
+    }
+
+    public static VirtualThreadExecutor start(Vertx vertx, AppConfig config, VerticleLoader verticleLoader) {
+        VirtualThreadExecutor virtualThreadExecutor = new VirtualThreadExecutor();
+        JsonObject virtualThreadsConfig = config.getSync().getJsonObject(VIRTUAL_THREADS_CONFIG_KEY, new JsonObject());
+
+        boolean forceFallback = virtualThreadsConfig.getBoolean(FORCE_FALLBACK_CONFIG_KEY, false);
+        if (virtualThreadsConfig.getBoolean(REQUIRED_CONFIG_KEY, false)) {
+            if (Objects.isNull(virtualThreadExecutorFactory))
+                throw new IllegalStateException("VirtualThreadExecutor: virtualThreads.required is set, but virtual " +
+                        "threads are not available on java " + System.getProperty("java.specification.version") +
+                        ", they require java 21 or later");
+            if (forceFallback)
+                throw new IllegalStateException("VirtualThreadExecutor: virtualThreads.required and " +
+                        "virtualThreads.forceFallback cannot both be set");
+        }
+
+        if (Objects.nonNull(virtualThreadExecutorFactory) && !forceFallback) {
+            logger.info("VirtualThreadExecutor: running blocking invocations on virtual threads");
+            virtualThreadExecutor.virtual = true;
+            virtualThreadExecutor.executorService = virtualThreadExecutorFactory.apply(THREAD_NAME_PREFIX);
+        } else {
+            int poolSize = virtualThreadsConfig.getInteger(FALLBACK_POOL_SIZE_CONFIG_KEY, DEFAULT_FALLBACK_POOL_SIZE);
+            int queueSize = virtualThreadsConfig.getInteger(FALLBACK_QUEUE_SIZE_CONFIG_KEY, DEFAULT_FALLBACK_QUEUE_SIZE);
+            logger.info(String.format("VirtualThreadExecutor: virtual threads are not available, running blocking " +
+                    "invocations on a worker pool of %d threads and %d queued tasks", poolSize, queueSize));
+            virtualThreadExecutor.virtual = false;
+            virtualThreadExecutor.executorService = newFallbackExecutorService(poolSize, queueSize);
+        }
+
+        if (Objects.nonNull(verticleLoader))
+            vertx.eventBus().addInboundInterceptor(deliveryContext ->
+                    virtualThreadExecutor.interceptInbound(verticleLoader, deliveryContext));
+
+        return virtualThreadExecutor;
+    }
+
+    public boolean isVirtual() {
+        return this.virtual;
+    }
+
+    /**
+     * Returns the vertx context the invocation running on the current thread was dispatched from, or the current
+     * vertx context outside of the invocations.
+     */
+    public static Context context() {
+        Context context = invocationContext.get();
+        return Objects.isNull(context) ? Vertx.currentContext() : context;
+    }
+
+    /**
+     * Runs the given callable on a virtual thread (or a fallback worker), and completes the returned future on the
+     * calling context, if any.
+     */
+    public <T> Future<T> submit(Callable<T> callable) {
+        Promise<T> promise = Promise.promise();
+        Context context = Vertx.currentContext();
+        this.execute(context, Deadline.wrap(() -> {
+            try {
+                T result = callable.call();
+                complete(context, () -> promise.complete(result));
+            } catch (Throwable throwable) {
+                complete(context, () -> promise.fail(throwable));
+            }
+        }), rejection -> complete(context, () -> promise.fail(rejection)));
+        return promise.future();
+    }
+
+    @Override
+    public Handler<RoutingContext> decorate(BaseRestHandler baseRestHandler, Handler<RoutingContext> handler) {
+        if (Objects.isNull(baseRestHandler.getHandlerAnnotation(RunOnVirtualThread.class)))
+            return handler;
+        if (Objects.nonNull(baseRestHandler.getHandlerAnnotation(Blocking.class))) {
+            logger.warn("VirtualThreadExecutor: " + baseRestHandler.getHandlerClass().getName() + " is annotated with " +
+                    "both RunOnVirtualThread and Blocking, it is dispatched to its BlockingPool only");
+            return handler;
+        }
+
+        logger.info("VirtualThreadExecutor: dispatching " + baseRestHandler.getHandlerClass().getName() +
+                (this.virtual ? " to virtual threads" : " to the fallback worker pool"));
+        return routingContext -> {
+            Context context = Vertx.currentContext();
+            this.execute(context, Deadline.wrap(() -> {
+                try {
+                    handler.handle(routingContext);
+                } catch (Throwable throwable) {
+                    complete(context, () -> routingContext.fail(throwable));
+                }
+            }), rejection -> routingContext.fail(HttpResponseStatus.SERVICE_UNAVAILABLE.code()));
+        };
+    }
+
+    public void close() {
+        this.executorService.shutdown();
+    }
+
+    /**
+     * Runs the given invocation, dispatched from the given context, on a virtual thread (or a fallback worker), or
+     * calls the given rejection handler if the fallback pool is full.
+     */
+    protected void execute(Context context, Runnable invocation, Handler<Throwable> rejectionHandler) {
+        try {
+            this.executorService.execute(() -> {
+                invocationContext.set(context);
+                try {
+                    invocation.run();
+                } finally {
+                    invocationContext.remove();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("VirtualThreadExecutor: blocking invocation rejected, the worker pool is full");
+            rejectionHandler.handle(e);
+        }
+    }
+
+    /**
+     * Runs the given invocation after the ones already dispatched from the given context, so the invocations of a
+     * context run one at a time, in order, all on the thread of the first one.
+     */
+    protected void executeOrdered(Context context, Runnable invocation, Handler<Throwable> rejectionHandler) {
+        synchronized (this.orderedTaskMap) {
+            Deque<Runnable> taskQueue = this.orderedTaskMap.get(context);
+            if (Objects.nonNull(taskQueue)) {
+                taskQueue.add(invocation);
+                return;
+            }
+            this.orderedTaskMap.put(context, new ArrayDeque<>());
+        }
+
+        this.execute(context, () -> this.runOrdered(context, invocation), rejection -> {
+            synchronized (this.orderedTaskMap) {
+                this.orderedTaskMap.remove(context);
+            }
+            rejectionHandler.handle(rejection);
+        });
+    }
+
+    protected void runOrdered(Context context, Runnable invocation) {
+        Runnable next = invocation;
+        while (Objects.nonNull(next)) {
+            try {
+                next.run();
+            } catch (Throwable throwable) {
+                logger.error("VirtualThreadExecutor: blocking invocation failed", throwable);
+            }
+
+            synchronized (this.orderedTaskMap) {
+                next = this.orderedTaskMap.get(context).poll();
+                if (Objects.isNull(next))
+                    this.orderedTaskMap.remove(context);
+            }
+        }
+    }
+
+    protected void interceptInbound(VerticleLoader verticleLoader, DeliveryContext<Object> deliveryContext) {
+        Context context = Vertx.currentContext();
+        String deploymentId = Objects.isNull(context) ? null : context.deploymentID();
+        Class<?> verticleClass = Objects.isNull(deploymentId) ? null : verticleLoader.getVerticleClass(deploymentId);
+        if (Objects.isNull(verticleClass) || !verticleClass.isAnnotationPresent(RunOnVirtualThread.class)) {
+            deliveryContext.next();
+            return;
+        }
+
+        this.executeOrdered(context, Deadline.wrap(deliveryContext::next), rejection -> {
+            if (Objects.nonNull(deliveryContext.message().replyAddress()))
+                deliveryContext.message().fail(HttpResponseStatus.SERVICE_UNAVAILABLE.code(), rejection.getMessage());
+        });
+    }
+
+    protected static void complete(Context context, Runnable completion) {
+        if (Objects.isNull(context))
+            completion.run();
+        else context.runOnContext(v -> completion.run());
+    }
+
+    protected static ExecutorService newFallbackExecutorService(int poolSize, int queueSize) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
+    @BeanConfig(async = false, overridable = true)
+    public static VirtualThreadExecutor virtualThreadExecutor(Vertx vertx, AppConfig appConfig,
+                                                              VerticleLoader verticleLoader) {
+        return VirtualThreadExecutor.start(vertx, appConfig, verticleLoader);
+    }
+}
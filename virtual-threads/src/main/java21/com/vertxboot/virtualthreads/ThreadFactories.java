@@ -0,0 +1,21 @@
+package com.vertxboot.virtualthreads;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Java 21 variant, every task submitted to the executors created by the returned factory runs on a new virtual thread.
+ */
+class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * Returns the factory of virtual thread per task executors, taking the name prefix of their threads.
+     */
+    static Function<String, ExecutorService> virtualThreadExecutorFactory() {
+        return namePrefix -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 0).factory());
+    }
+}
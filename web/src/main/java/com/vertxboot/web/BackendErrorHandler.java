@@ -0,0 +1,33 @@
+package com.vertxboot.web;
+
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * An error handler writing the failures of all the routes through the ResponseWriter, to be listed in
+ * InterceptorConfig.errorHandlers(). BackendExceptions are written with their ErrorCode and details, failures with a
+ * status code are written with that status, and any other failure is logged and written as OPERATION_FAILED.
+ */
+@RestMapping(path = "/*")
+public class BackendErrorHandler extends BaseInterceptor {
+    public static BackendErrorHandler instance() {
+        return new BackendErrorHandler();
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        Throwable failure = routingContext.failure();
+        if (failure instanceof BackendException) {
+            ResponseWriter.writeError(routingContext, (BackendException) failure);
+            return;
+        }
+
+        if (routingContext.statusCode() > 0) {
+            ResponseWriter.writeError(routingContext, routingContext.statusCode());
+            return;
+        }
+
+        logger.error("Unexpected failure: " + routingContext.request().method() + " " + routingContext.normalisedPath(),
+                failure);
+        ResponseWriter.writeError(routingContext, ErrorCode.OPERATION_FAILED);
+    }
+}
@@ -33,6 +33,13 @@ public class BackendException extends RuntimeException {
         this.details = details;
     }
 
+    protected BackendException(ErrorCode errorCode, List<String> details, Throwable throwable,
+                               boolean writableStackTrace) {
+        super(errorCode.toString(), throwable, true, writableStackTrace);
+        this.errorCode = errorCode;
+        this.details = details;
+    }
+
     public ErrorCode getErrorCode() {
         return errorCode;
     }
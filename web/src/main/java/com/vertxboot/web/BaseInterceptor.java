@@ -1,4 +1,10 @@
 package com.vertxboot.web;
 
 public abstract class BaseInterceptor extends BaseRestHandler {
+    /**
+     * Returns the strategy deciding, per request, whether this interceptor is skipped, or null if it is never skipped.
+     */
+    public RequestSkipStrategy getRequestSkipStrategy() {
+        return null;
+    }
 }
@@ -7,6 +7,7 @@ import io.vertx.core.logging.LoggerFactory;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.api.validation.HTTPRequestValidationHandler;
 
+import java.lang.annotation.Annotation;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Set;
@@ -26,10 +27,20 @@ public abstract class BaseRestHandler implements Handler<RoutingContext> {
     protected Logger logger;
     protected final EnumSet<HttpMethod> httpMethods;
     protected final String path;
+    protected final RestMapping restMapping;
 
     protected BaseRestHandler() {
+        this(null);
+    }
+
+    /**
+     * Initializes the rest handler from the given RestMapping, or from the RestMapping annotation of its class if the
+     * given one is null.
+     */
+    protected BaseRestHandler(RestMapping restMapping) {
         logger = LoggerFactory.getLogger(this.getClass());
-        RestMapping restMapping = this.getClass().getAnnotation(RestMapping.class);
+        if (restMapping == null)
+            restMapping = this.getClass().getAnnotation(RestMapping.class);
 
         if (restMapping == null) {
             logger.fatal("Error initializing rest handler due to missing RestMapping annotation");
@@ -48,6 +59,7 @@ public abstract class BaseRestHandler implements Handler<RoutingContext> {
         }
 
         path = restMapping.path();
+        this.restMapping = restMapping;
         logger.info("Rest handler initialized: class: " + this.getClass().getName() +
                 " path: " + path + " HTTP methods: " + httpMethods.toString());
     }
@@ -56,6 +68,20 @@ public abstract class BaseRestHandler implements Handler<RoutingContext> {
         return null;
     }
 
+    /**
+     * Returns the class owning the handler logic, used to attribute the handler, for example in metrics and logs.
+     */
+    public Class<?> getHandlerClass() {
+        return this.getClass();
+    }
+
+    /**
+     * Returns the given annotation of the handler logic, for example BodyMapping, or null if it is not present.
+     */
+    public <A extends Annotation> A getHandlerAnnotation(Class<A> annotationClass) {
+        return this.getClass().getAnnotation(annotationClass);
+    }
+
     public final Set<HttpMethod> getHttpMethods() {
         return this.httpMethods;
     }
@@ -63,4 +89,8 @@ public abstract class BaseRestHandler implements Handler<RoutingContext> {
     public final String getPath() {
         return this.path;
     }
+
+    public final RestMapping getRestMapping() {
+        return this.restMapping;
+    }
 }
@@ -0,0 +1,28 @@
+package com.vertxboot.web;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation dispatches the invocations of a rest handler to a named, bounded pool of worker threads, so its
+ * blocking calls (JDBC, files, legacy clients) stall neither the event loops nor the rest handlers of the other pools.
+ * It complements RestMapping on the rest handler class or method, and the pools are configured by server.blocking (see
+ * BlockingPool).
+ * <p>
+ * Blocking takes precedence over other dispatching decorators: BlockingPool.dispatch wraps the handler after the
+ * InterceptorConfig.decorators() are applied, and VirtualThreadExecutor ignores RunOnVirtualThread on a rest handler
+ * that is also annotated with Blocking, so each invocation hops to one worker thread only.
+ * <p>
+ * The member fields are:
+ * String pool(): the name of the pool, defaults to "default".
+ * boolean ordered(): whether the invocations dispatched by the same event loop run one at a time, in order, defaults
+ * to false.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Blocking {
+    String pool() default BlockingPool.DEFAULT_POOL_NAME;
+    boolean ordered() default false;
+}
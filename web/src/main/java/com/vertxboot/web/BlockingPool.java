@@ -0,0 +1,185 @@
+package com.vertxboot.web;
+
+import com.vertxboot.commons.deadline.Deadline;
+import com.vertxboot.commons.metrics.Histogram;
+import com.vertxboot.commons.metrics.StripedHistogram;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named pool of worker threads running the invocations of the rest handlers annotated with Blocking, shared by all
+ * the http server instances of a ServerManager, which creates the pools on first use, and closes them once its http
+ * servers are stopped (see ServerManager.blockingPool). The pools are configured by the blocking block of the server
+ * config, for example:
+ * <pre>
+ * "server": {
+ *   "blocking": {"default": {"size": 20, "queueSize": 100, "maxExecuteTime": 60000},
+ *                "jdbc": {"size": 32, "queueSize": 256}}
+ * }
+ * </pre>
+ * where size is the number of threads of the pool, and queueSize the number of invocations waiting for a thread, over
+ * which the invocations are rejected with SERVICE_UNAVAILABLE, so a saturated pool sheds its load instead of queueing
+ * it without bounds. maxExecuteTime is the time in milliseconds after which vertx warns about a blocked worker. A pool
+ * used by a rest handler but missing from the config gets these default values.
+ * <p>
+ * Every pool records its active and queued invocations, the completed and rejected ones, and the time they waited for
+ * a thread, which are exposed by the RouteMetrics scrape.
+ */
+public class BlockingPool {
+    public static final String DEFAULT_POOL_NAME = "default";
+
+    protected static final String BLOCKING_CONFIG_KEY = "blocking";
+    protected static final String SIZE_CONFIG_KEY = "size";
+    protected static final String QUEUE_SIZE_CONFIG_KEY = "queueSize";
+    protected static final String MAX_EXECUTE_TIME_CONFIG_KEY = "maxExecuteTime";
+    protected static final String WORKER_POOL_NAME_PREFIX = "vertxboot-blocking-";
+    protected static final int DEFAULT_SIZE = 20;
+    protected static final int DEFAULT_QUEUE_SIZE = 100;
+    protected static final long DEFAULT_MAX_EXECUTE_TIME = 60000L;
+
+    protected static Logger logger = LoggerFactory.getLogger(BlockingPool.class);
+
+    protected final String name;
+    protected final int size;
+    protected final int queueSize;
+    protected final WorkerExecutor workerExecutor;
+    protected final AtomicInteger inFlight = new AtomicInteger();
+    protected final AtomicInteger active = new AtomicInteger();
+    protected final LongAdder completed = new LongAdder();
+    protected final LongAdder rejected = new LongAdder();
+    protected final StripedHistogram waitHistogram = new StripedHistogram();
+
+    protected BlockingPool(String name, int size, int queueSize, WorkerExecutor workerExecutor) {
+        this.name = name;
+        this.size = size;
+        this.queueSize = queueSize;
+        this.workerExecutor = workerExecutor;
+    }
+
+    /**
+     * Creates the pool of the given name, configured by the given server config, with worker threads named after the
+     * port of the server, so the pools of the same name of two servers sharing a vertx are not shared.
+     */
+    public static BlockingPool create(Vertx vertx, JsonObject serverConfig, int port, String name) {
+        JsonObject blockingConfig = serverConfig.getJsonObject(BLOCKING_CONFIG_KEY, new JsonObject());
+        if (!blockingConfig.containsKey(name))
+            logger.warn("BlockingPool: pool " + name + " is not configured in server.blocking, using the defaults");
+
+        JsonObject poolConfig = blockingConfig.getJsonObject(name, new JsonObject());
+        int size = poolConfig.getInteger(SIZE_CONFIG_KEY, DEFAULT_SIZE);
+        int queueSize = poolConfig.getInteger(QUEUE_SIZE_CONFIG_KEY, DEFAULT_QUEUE_SIZE);
+        logger.info("BlockingPool: creating pool " + name + " of " + size + " threads and " + queueSize +
+                " queued invocations");
+        return new BlockingPool(name, size, queueSize, vertx.createSharedWorkerExecutor(
+                WORKER_POOL_NAME_PREFIX + port + "-" + name, size,
+                poolConfig.getLong(MAX_EXECUTE_TIME_CONFIG_KEY, DEFAULT_MAX_EXECUTE_TIME), TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Wraps the given handler of the given rest handler, so it is invoked on the pool of its Blocking annotation, taken
+     * from the given server manager, or returns it as is if the rest handler is not annotated with Blocking, or is not
+     * loaded by a server manager.
+     */
+    public static Handler<RoutingContext> dispatch(ServerManager serverManager, BaseRestHandler baseRestHandler,
+                                                   Handler<RoutingContext> handler) {
+        Blocking blocking = baseRestHandler.getHandlerAnnotation(Blocking.class);
+        if (Objects.isNull(blocking))
+            return handler;
+
+        if (Objects.isNull(serverManager)) {
+            logger.warn("BlockingPool: " + baseRestHandler.getHandlerClass().getName() + " is not loaded by a " +
+                    "ServerManager, it runs on the event loop");
+            return handler;
+        }
+
+        BlockingPool blockingPool = serverManager.blockingPool(blocking.pool());
+        logger.info("BlockingPool: dispatching " + baseRestHandler.getHandlerClass().getName() + " to pool " +
+                blockingPool.name + (blocking.ordered() ? " in order" : ""));
+        boolean ordered = blocking.ordered();
+        return routingContext -> blockingPool.execute(routingContext, handler, ordered);
+    }
+
+    /**
+     * Invokes the given handler on a thread of the pool, or rejects the request with SERVICE_UNAVAILABLE if the queue
+     * of the pool is full. The handler is invoked with the current Deadline of the calling thread.
+     */
+    public void execute(RoutingContext routingContext, Handler<RoutingContext> handler, boolean ordered) {
+        int current = this.inFlight.incrementAndGet();
+        if (current > this.size + this.queueSize) {
+            this.inFlight.decrementAndGet();
+            this.rejected.increment();
+            if (logger.isDebugEnabled())
+                logger.debug("BlockingPool: pool " + this.name + " rejected " + routingContext.normalisedPath());
+            ResponseWriter.writeError(routingContext, ErrorCode.SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        long submitTime = System.nanoTime();
+        Runnable invocation = Deadline.wrap(() -> handler.handle(routingContext));
+        this.workerExecutor.<Void>executeBlocking(promise -> {
+            this.waitHistogram.record(System.nanoTime() - submitTime);
+            this.active.incrementAndGet();
+            try {
+                invocation.run();
+                promise.complete();
+            } catch (Throwable throwable) {
+                promise.fail(throwable);
+            } finally {
+                this.active.decrementAndGet();
+                this.inFlight.decrementAndGet();
+                this.completed.increment();
+            }
+        }, ordered, invocationAsyncResult -> {
+            if (invocationAsyncResult.failed())
+                routingContext.fail(invocationAsyncResult.cause());
+        });
+    }
+
+    /**
+     * Closes the worker threads of the pool, once no rest handler dispatches to it any more.
+     */
+    public void close() {
+        this.workerExecutor.close();
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    public int getActive() {
+        return this.active.get();
+    }
+
+    public int getQueued() {
+        return Math.max(0, this.inFlight.get() - this.active.get());
+    }
+
+    public long getCompleted() {
+        return this.completed.sum();
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * Returns the histogram of the time in nanoseconds the invocations waited for a thread of the pool.
+     */
+    public Histogram snapshotWait() {
+        return this.waitHistogram.snapshot();
+    }
+}
@@ -0,0 +1,28 @@
+package com.vertxboot.web;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation specifies how the request body of a rest handler is received, and it complements RestMapping on the
+ * rest handler class. Rest handlers without this annotation get a buffered body with the server defaults.
+ * <p>
+ * The member fields are:
+ * BodyPolicy policy(): BUFFERED, STREAMED, or NONE, defaults to BUFFERED.
+ * long maxSize(): the maximum body size in bytes, where larger bodies are rejected with 413, defaults to -1, which
+ * stands for the server.body.maxSize config value.
+ * long timeout(): the time in milliseconds allowed to receive a buffered body, where slower bodies are rejected with
+ * 408, defaults to -1, which stands for the server.body.timeout config value, and 0 disables it.
+ * boolean handleFileUploads(): whether multipart file uploads of a buffered body are written to the uploads
+ * directory, defaults to false.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface BodyMapping {
+    BodyPolicy policy() default BodyPolicy.BUFFERED;
+    long maxSize() default -1;
+    long timeout() default -1;
+    boolean handleFileUploads() default false;
+}
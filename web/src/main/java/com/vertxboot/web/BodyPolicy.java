@@ -0,0 +1,20 @@
+package com.vertxboot.web;
+
+public enum BodyPolicy {
+    /**
+     * The request body is buffered in memory, up to the maximum body size, before the handler chain runs, and it is
+     * available through RoutingContext.getBody() and its variants.
+     */
+    BUFFERED,
+
+    /**
+     * The request body is not buffered, and the handler reads it as a ReadStream, see BodyPolicyHandler.stream(), or
+     * streams it to disk, see BodyPolicyHandler.toFile().
+     */
+    STREAMED,
+
+    /**
+     * The request body is never read.
+     */
+    NONE
+}
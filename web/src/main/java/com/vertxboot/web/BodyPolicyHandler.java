@@ -0,0 +1,285 @@
+package com.vertxboot.web;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.FileSystem;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.BodyHandler;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Receives the request body of a rest handler according to its BodyMapping, after the metrics, deadline, concurrency
+ * limit and compression handlers of its chain, and before its interceptors (see RestLoader.load).
+ * The server defaults are read from the body block of the server config, for example:
+ * <pre>
+ * "server": {
+ *   "body": {"maxSize": 10485760, "timeout": 30000, "handleFileUploads": true, "uploadsDirectory": "file-uploads",
+ *            "deleteUploadedFilesOnEnd": false}
+ * }
+ * </pre>
+ * where handleFileUploads applies only to the rest handlers without a BodyMapping, uploadsDirectory is also where
+ * toFile writes the bodies of the rest handlers with the STREAMED body policy, and deleteUploadedFilesOnEnd deletes
+ * the file uploads of BUFFERED bodies once the response is sent. The timeout applies to both BUFFERED and STREAMED
+ * bodies, and fails the request with 408 if its body is not fully received in time.
+ */
+public class BodyPolicyHandler implements Handler<RoutingContext> {
+    protected static final String BODY_CONFIG_KEY = "body";
+    protected static final String MAX_SIZE_CONFIG_KEY = "maxSize";
+    protected static final String TIMEOUT_CONFIG_KEY = "timeout";
+    protected static final String HANDLE_FILE_UPLOADS_CONFIG_KEY = "handleFileUploads";
+    protected static final String UPLOADS_DIRECTORY_CONFIG_KEY = "uploadsDirectory";
+    protected static final String DELETE_UPLOADED_FILES_ON_END_CONFIG_KEY = "deleteUploadedFilesOnEnd";
+    protected static final long DEFAULT_MAX_SIZE = 10 * 1024 * 1024;
+    protected static final long DEFAULT_TIMEOUT = 30000;
+    protected static final String BODY_STREAM_CONTEXT_KEY = "vertxboot.bodyStream";
+
+    protected static Logger logger = LoggerFactory.getLogger(BodyPolicyHandler.class);
+
+    protected BodyPolicy bodyPolicy;
+    protected long maxSize;
+    protected long timeout;
+    protected String uploadsDirectory;
+    protected BodyHandler bodyHandler;
+
+    protected BodyPolicyHandler() {
+    }
+
+    /**
+     * Returns the body handler of the given rest handler, or null if its body policy is NONE.
+     */
+    public static BodyPolicyHandler create(JsonObject serverConfig, BaseRestHandler baseRestHandler) {
+        JsonObject bodyConfig = serverConfig.getJsonObject(BODY_CONFIG_KEY, new JsonObject());
+        BodyMapping bodyMapping = baseRestHandler.getHandlerAnnotation(BodyMapping.class);
+        BodyPolicyHandler bodyPolicyHandler = new BodyPolicyHandler();
+
+        bodyPolicyHandler.bodyPolicy = Objects.isNull(bodyMapping) ? BodyPolicy.BUFFERED : bodyMapping.policy();
+        if (bodyPolicyHandler.bodyPolicy == BodyPolicy.NONE)
+            return null;
+
+        bodyPolicyHandler.maxSize = (Objects.isNull(bodyMapping) || bodyMapping.maxSize() < 0) ?
+                bodyConfig.getLong(MAX_SIZE_CONFIG_KEY, DEFAULT_MAX_SIZE) : bodyMapping.maxSize();
+        bodyPolicyHandler.timeout = (Objects.isNull(bodyMapping) || bodyMapping.timeout() < 0) ?
+                bodyConfig.getLong(TIMEOUT_CONFIG_KEY, DEFAULT_TIMEOUT) : bodyMapping.timeout();
+        bodyPolicyHandler.uploadsDirectory = bodyConfig.getString(UPLOADS_DIRECTORY_CONFIG_KEY,
+                BodyHandler.DEFAULT_UPLOADS_DIRECTORY);
+
+        if (bodyPolicyHandler.bodyPolicy == BodyPolicy.BUFFERED) {
+            boolean handleFileUploads = Objects.isNull(bodyMapping) ?
+                    bodyConfig.getBoolean(HANDLE_FILE_UPLOADS_CONFIG_KEY, true) : bodyMapping.handleFileUploads();
+            bodyPolicyHandler.bodyHandler = BodyHandler.create(handleFileUploads)
+                    .setBodyLimit(bodyPolicyHandler.maxSize)
+                    .setDeleteUploadedFilesOnEnd(bodyConfig.getBoolean(DELETE_UPLOADED_FILES_ON_END_CONFIG_KEY, false))
+                    .setUploadsDirectory(bodyPolicyHandler.uploadsDirectory);
+        }
+
+        return bodyPolicyHandler;
+    }
+
+    /**
+     * Returns the request body stream of a rest handler with the STREAMED body policy. The request is paused until a
+     * data handler is set on the stream, and the stream fails the routing context with 413 once more than the maximum
+     * body size is received.
+     */
+    public static ReadStream<Buffer> stream(RoutingContext routingContext) {
+        return routingContext.get(BODY_STREAM_CONTEXT_KEY);
+    }
+
+    /**
+     * Writes the request body of a rest handler with the STREAMED body policy to a new file of the uploads directory,
+     * and completes with the path of the file once the whole body is written. See toFile with a path.
+     */
+    public static Future<String> toFile(RoutingContext routingContext) {
+        BodyStream bodyStream = routingContext.get(BODY_STREAM_CONTEXT_KEY);
+        if (Objects.isNull(bodyStream))
+            return Future.failedFuture(new IllegalStateException("BodyPolicyHandler: request body of " +
+                    routingContext.normalisedPath() + " is not STREAMED"));
+
+        return BodyPolicyHandler.toFile(routingContext,
+                Paths.get(bodyStream.uploadsDirectory, UUID.randomUUID().toString()).toString());
+    }
+
+    /**
+     * Writes the request body of a rest handler with the STREAMED body policy to the given new file, creating its
+     * directory if needed, and completes with its path once the whole body is written. The body is piped to the file,
+     * so the request is paused while the disk falls behind, and at most a few buffers of it are held in memory
+     * whatever its size. The file is deleted if the body exceeds the maximum body size or the connection is closed
+     * before the body is received, and is otherwise left to the rest handler.
+     */
+    public static Future<String> toFile(RoutingContext routingContext, String path) {
+        BodyStream bodyStream = routingContext.get(BODY_STREAM_CONTEXT_KEY);
+        if (Objects.isNull(bodyStream))
+            return Future.failedFuture(new IllegalStateException("BodyPolicyHandler: request body of " +
+                    routingContext.normalisedPath() + " is not STREAMED"));
+
+        Promise<String> filePromise = Promise.promise();
+        FileSystem fileSystem = routingContext.vertx().fileSystem();
+        Path directory = Paths.get(path).toAbsolutePath().getParent();
+        fileSystem.mkdirs(directory.toString(), mkdirsAsyncResult -> {
+            if (mkdirsAsyncResult.failed()) {
+                filePromise.fail(mkdirsAsyncResult.cause());
+                return;
+            }
+
+            fileSystem.open(path, new OpenOptions().setCreateNew(true).setWrite(true), openAsyncResult -> {
+                if (openAsyncResult.failed()) {
+                    filePromise.fail(openAsyncResult.cause());
+                    return;
+                }
+
+                bodyStream.pipeTo(openAsyncResult.result(), pipeAsyncResult -> {
+                    if (pipeAsyncResult.succeeded()) {
+                        filePromise.complete(path);
+                        return;
+                    }
+
+                    logger.warn("BodyPolicyHandler: request body of " + routingContext.normalisedPath() +
+                            " was not written to " + path + ": " + pipeAsyncResult.cause().getMessage());
+                    fileSystem.delete(path, deleteAsyncResult -> filePromise.fail(pipeAsyncResult.cause()));
+                });
+            });
+        });
+
+        return filePromise.future();
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        BodyStream bodyStream = null;
+        if (this.bodyPolicy == BodyPolicy.STREAMED) {
+            if (this.maxSize >= 0 && contentLength(routingContext.request()) > this.maxSize) {
+                routingContext.fail(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code());
+                return;
+            }
+
+            routingContext.request().pause();
+            bodyStream = new BodyStream(routingContext, this.maxSize, this.uploadsDirectory);
+            routingContext.put(BODY_STREAM_CONTEXT_KEY, bodyStream);
+        }
+
+        if (this.timeout > 0 && !routingContext.request().isEnded()) {
+            BodyStream timedBodyStream = bodyStream;
+            long timerId = routingContext.vertx().setTimer(this.timeout, id -> {
+                if (routingContext.request().isEnded() || routingContext.response().ended() ||
+                        routingContext.response().closed())
+                    return;
+
+                logger.warn("BodyPolicyHandler: request body of " + routingContext.normalisedPath() +
+                        " was not received in " + this.timeout + " ms");
+                if (Objects.nonNull(timedBodyStream))
+                    timedBodyStream.fail(new BackendException(ErrorCode.INVALID_INPUT, "Request body was not " +
+                            "received in " + this.timeout + " ms"), HttpResponseStatus.REQUEST_TIMEOUT);
+                else routingContext.fail(HttpResponseStatus.REQUEST_TIMEOUT.code());
+            });
+            routingContext.addBodyEndHandler(v -> routingContext.vertx().cancelTimer(timerId));
+        }
+
+        if (Objects.nonNull(bodyStream))
+            routingContext.next();
+        else this.bodyHandler.handle(routingContext);
+    }
+
+    protected static long contentLength(HttpServerRequest request) {
+        String contentLength = request.getHeader(HttpHeaderNames.CONTENT_LENGTH);
+        try {
+            return Objects.isNull(contentLength) ? -1 : Long.parseLong(contentLength);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    protected static class BodyStream implements ReadStream<Buffer> {
+        protected final RoutingContext routingContext;
+        protected final HttpServerRequest request;
+        protected final long maxSize;
+        protected final String uploadsDirectory;
+        protected long receivedSize;
+        protected Handler<Throwable> exceptionHandler;
+
+        protected BodyStream(RoutingContext routingContext, long maxSize, String uploadsDirectory) {
+            this.routingContext = routingContext;
+            this.request = routingContext.request();
+            this.maxSize = maxSize;
+            this.uploadsDirectory = uploadsDirectory;
+            this.receivedSize = 0;
+        }
+
+        @Override
+        public ReadStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+            this.exceptionHandler = handler;
+            this.request.exceptionHandler(handler);
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> handler(Handler<Buffer> handler) {
+            if (Objects.isNull(handler)) {
+                this.request.handler(null);
+                return this;
+            }
+
+            this.request.handler(buffer -> {
+                this.receivedSize += buffer.length();
+                if (this.maxSize < 0 || this.receivedSize <= this.maxSize) {
+                    handler.handle(buffer);
+                    return;
+                }
+
+                this.fail(new BackendException(ErrorCode.INVALID_INPUT, "Request body exceeds " + this.maxSize +
+                        " bytes"), HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE);
+            });
+            this.request.resume();
+            return this;
+        }
+
+        /**
+         * Stops reading the request body, notifies the exception handler of the stream, so a pipe reading it fails, and
+         * fails the routing context with the given status unless the response is already ended.
+         */
+        protected void fail(BackendException e, HttpResponseStatus httpResponseStatus) {
+            this.request.handler(null);
+            this.request.pause();
+            if (Objects.nonNull(this.exceptionHandler))
+                this.exceptionHandler.handle(e);
+            if (!this.routingContext.failed() && !this.routingContext.response().ended())
+                this.routingContext.fail(httpResponseStatus.code());
+        }
+
+        @Override
+        public ReadStream<Buffer> pause() {
+            this.request.pause();
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> resume() {
+            this.request.resume();
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> fetch(long amount) {
+            this.request.fetch(amount);
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> endHandler(Handler<Void> endHandler) {
+            this.request.endHandler(endHandler);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.vertxboot.web;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation opts the GET and HEAD responses of a rest handler into the ResponseCache, and it complements
+ * RestMapping on the rest handler class or method. Only the 200 responses written through the ResponseWriter are
+ * cached, which includes the results of the rest handler methods.
+ * <p>
+ * The member fields are:
+ * long ttl(): the time in milliseconds a cached response is served for, mandatory.
+ * String[] varyBy(): the request headers that select different cached responses of the same path and query, for
+ * example Accept-Language, defaults to an empty array.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Cacheable {
+    long ttl();
+    String[] varyBy() default {};
+}
@@ -0,0 +1,171 @@
+package com.vertxboot.web;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sheds the requests over the adaptive concurrency limits, right after the RouteMetricsHandler and the DeadlineHandler
+ * of each rest handler chain, and before its body is read, so the rejected requests are measured and bounded by their
+ * deadline, but cost neither their body nor their interceptors. The limits are configured by the limiter block of
+ * the server config, for example:
+ * <pre>
+ * "server": {
+ *   "limiter": {"enabled": true, "algorithm": "gradient", "initialLimit": 200, "minLimit": 20, "maxLimit": 2000,
+ *               "perRoute": true, "routeInitialLimit": 50, "routeMinLimit": 5, "routeMaxLimit": 500,
+ *               "queueSize": 100, "queueTimeout": 50, "rejectStatus": 503,
+ *               "latencyThreshold": 1000, "backoffRatio": 0.9, "smoothing": 0.2, "tolerance": 1.5}
+ * }
+ * </pre>
+ * where a request must be admitted by the global limiter, and by the limiter of its route if perRoute is set, according
+ * to the priority of its RestMapping, and is otherwise rejected with rejectStatus. Only the global limiter queues the
+ * requests, the route limiters reject them right away. See ConcurrencyLimiter for the algorithms and their keys.
+ */
+public class ConcurrencyLimitHandler implements Handler<RoutingContext> {
+    protected static final String LIMITER_CONFIG_KEY = "limiter";
+    protected static final String ENABLED_CONFIG_KEY = "enabled";
+    protected static final String PER_ROUTE_CONFIG_KEY = "perRoute";
+    protected static final String ROUTE_INITIAL_LIMIT_CONFIG_KEY = "routeInitialLimit";
+    protected static final String ROUTE_MIN_LIMIT_CONFIG_KEY = "routeMinLimit";
+    protected static final String ROUTE_MAX_LIMIT_CONFIG_KEY = "routeMaxLimit";
+    protected static final String REJECT_STATUS_CONFIG_KEY = "rejectStatus";
+    protected static final String GLOBAL_LIMITER_NAME = "global";
+
+    protected static Logger logger = LoggerFactory.getLogger(ConcurrencyLimitHandler.class);
+
+    protected final ConcurrencyLimiter globalLimiter;
+    protected final ConcurrencyLimiter routeLimiter;
+    protected final RequestPriority priority;
+    protected final int rejectStatus;
+
+    protected ConcurrencyLimitHandler(ConcurrencyLimiter globalLimiter, ConcurrencyLimiter routeLimiter,
+                                      RequestPriority priority, int rejectStatus) {
+        this.globalLimiter = globalLimiter;
+        this.routeLimiter = routeLimiter;
+        this.priority = priority;
+        this.rejectStatus = rejectStatus;
+    }
+
+    /**
+     * Creates the limiters of a ServerManager from the given server config, shared by all its http server instances,
+     * or returns null if the limiter is not enabled.
+     */
+    public static Registry load(JsonObject serverConfig) {
+        JsonObject limiterConfig = serverConfig.getJsonObject(LIMITER_CONFIG_KEY, new JsonObject());
+        if (!limiterConfig.getBoolean(ENABLED_CONFIG_KEY, false))
+            return null;
+
+        Registry registry = new Registry(limiterConfig, ConcurrencyLimiter.create(GLOBAL_LIMITER_NAME, limiterConfig,
+                200, 20, 2000));
+        logger.info("ConcurrencyLimitHandler: limiting the concurrent requests starting from " +
+                registry.globalLimiter.getLimit());
+        return registry;
+    }
+
+    /**
+     * Returns the limit handler of the given rest handler, with the given limiters, or null if there are none.
+     */
+    public static ConcurrencyLimitHandler create(Registry registry, BaseRestHandler baseRestHandler) {
+        if (Objects.isNull(registry))
+            return null;
+
+        JsonObject limiterConfig = registry.limiterConfig;
+        ConcurrencyLimiter routeLimiter = null;
+        if (limiterConfig.getBoolean(PER_ROUTE_CONFIG_KEY, false))
+            routeLimiter = registry.routeLimiter(baseRestHandler.getHttpMethods() + " " + baseRestHandler.getPath());
+
+        return new ConcurrencyLimitHandler(registry.globalLimiter, routeLimiter,
+                baseRestHandler.getRestMapping().priority(),
+                limiterConfig.getInteger(REJECT_STATUS_CONFIG_KEY, HttpResponseStatus.SERVICE_UNAVAILABLE.code()));
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        ConcurrencyLimiter globalLimiter = this.globalLimiter;
+        if (globalLimiter.tryAcquire(this.priority)) {
+            this.admit(routingContext, globalLimiter);
+            return;
+        }
+
+        boolean paused = !routingContext.request().isEnded();
+        if (paused)
+            routingContext.request().pause();
+        globalLimiter.acquire(routingContext.vertx(), this.priority, admitted -> {
+            if (paused)
+                routingContext.request().resume();
+
+            if (admitted)
+                this.admit(routingContext, globalLimiter);
+            else this.reject(routingContext, globalLimiter);
+        });
+    }
+
+    protected void admit(RoutingContext routingContext, ConcurrencyLimiter globalLimiter) {
+        if (routingContext.response().ended() || routingContext.response().closed()) {
+            globalLimiter.cancel(routingContext.vertx());
+            return;
+        }
+
+        if (Objects.nonNull(this.routeLimiter) && !this.routeLimiter.tryAcquire(this.priority)) {
+            globalLimiter.cancel(routingContext.vertx());
+            this.routeLimiter.rejected.increment();
+            this.reject(routingContext, this.routeLimiter);
+            return;
+        }
+
+        long start = System.nanoTime();
+        ResponseWriter.addEndHandler(routingContext, v -> {
+            long latency = System.nanoTime() - start;
+            boolean failed = !routingContext.response().ended() ||
+                    routingContext.response().getStatusCode() >= HttpResponseStatus.INTERNAL_SERVER_ERROR.code();
+            globalLimiter.release(routingContext.vertx(), latency, failed);
+            if (Objects.nonNull(this.routeLimiter))
+                this.routeLimiter.release(routingContext.vertx(), latency, failed);
+        });
+        routingContext.next();
+    }
+
+    protected void reject(RoutingContext routingContext, ConcurrencyLimiter concurrencyLimiter) {
+        if (logger.isDebugEnabled())
+            logger.debug("ConcurrencyLimitHandler: " + concurrencyLimiter.getName() + " limiter rejected " +
+                    routingContext.normalisedPath() + " at limit " + concurrencyLimiter.getLimit());
+        ResponseWriter.writeError(routingContext, this.rejectStatus);
+    }
+
+    /**
+     * The global limiter of a ServerManager, and the limiters of its routes, created by the first rest handler of each
+     * route, and shared by all its http server instances.
+     */
+    public static class Registry {
+        protected final JsonObject limiterConfig;
+        protected final ConcurrencyLimiter globalLimiter;
+        protected final Map<String, ConcurrencyLimiter> routeLimiterMap = new ConcurrentHashMap<>();
+
+        protected Registry(JsonObject limiterConfig, ConcurrencyLimiter globalLimiter) {
+            this.limiterConfig = limiterConfig;
+            this.globalLimiter = globalLimiter;
+        }
+
+        protected ConcurrencyLimiter routeLimiter(String name) {
+            return this.routeLimiterMap.computeIfAbsent(name, key -> new ConcurrencyLimiter(key, this.limiterConfig,
+                    this.limiterConfig.getInteger(ROUTE_INITIAL_LIMIT_CONFIG_KEY, 50),
+                    this.limiterConfig.getInteger(ROUTE_MIN_LIMIT_CONFIG_KEY, 5),
+                    this.limiterConfig.getInteger(ROUTE_MAX_LIMIT_CONFIG_KEY, 500)));
+        }
+
+        public ConcurrencyLimiter getGlobalLimiter() {
+            return this.globalLimiter;
+        }
+
+        public Map<String, ConcurrencyLimiter> getRouteLimiters() {
+            return this.routeLimiterMap;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.vertxboot.web;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An adaptive limit of the concurrent in flight requests, shared by the event loops of all the http server instances.
+ * The limit is adjusted after every request from its latency, with one of two algorithms:
+ * <p>
+ * gradient: the limit follows the ratio of the long term average latency to the short term one, so it shrinks as soon
+ * as the requests queue up somewhere and the latency grows, and grows back by the square root of the limit otherwise.
+ * <p>
+ * aimd: the limit is multiplied by the backoff ratio when a request is slower than the latency threshold or fails, and
+ * incremented by one when a request completes in time while at least half of the limit is in use.
+ * <p>
+ * A request of a given RequestPriority is admitted while the in flight requests are below its share of the limit,
+ * otherwise it waits in a bounded queue, ordered by priority, for at most the queue timeout, and is rejected when the
+ * queue is full or the timeout expires.
+ */
+public class ConcurrencyLimiter {
+    protected static final String ALGORITHM_CONFIG_KEY = "algorithm";
+    protected static final String INITIAL_LIMIT_CONFIG_KEY = "initialLimit";
+    protected static final String MIN_LIMIT_CONFIG_KEY = "minLimit";
+    protected static final String MAX_LIMIT_CONFIG_KEY = "maxLimit";
+    protected static final String QUEUE_SIZE_CONFIG_KEY = "queueSize";
+    protected static final String QUEUE_TIMEOUT_CONFIG_KEY = "queueTimeout";
+    protected static final String LATENCY_THRESHOLD_CONFIG_KEY = "latencyThreshold";
+    protected static final String BACKOFF_RATIO_CONFIG_KEY = "backoffRatio";
+    protected static final String SMOOTHING_CONFIG_KEY = "smoothing";
+    protected static final String TOLERANCE_CONFIG_KEY = "tolerance";
+    protected static final String GRADIENT_ALGORITHM = "gradient";
+    protected static final String AIMD_ALGORITHM = "aimd";
+    protected static final double SHORT_LATENCY_WEIGHT = 0.1;
+    protected static final double LONG_LATENCY_WEIGHT = 0.01;
+
+    protected final String name;
+    protected final boolean gradient;
+    protected final int minLimit;
+    protected final int maxLimit;
+    protected final int queueSize;
+    protected final long queueTimeout;
+    protected final long latencyThreshold;
+    protected final double backoffRatio;
+    protected final double smoothing;
+    protected final double tolerance;
+
+    protected final AtomicInteger inFlight = new AtomicInteger();
+    protected final LongAdder rejected = new LongAdder();
+    protected final PriorityQueue<Waiter> waiterQueue = new PriorityQueue<>();
+    protected volatile double limit;
+    protected double shortLatency;
+    protected double longLatency;
+    protected long waiterSequence;
+
+    protected ConcurrencyLimiter(String name, JsonObject limiterConfig, int initialLimit, int minLimit, int maxLimit) {
+        this.name = name;
+        this.gradient = !AIMD_ALGORITHM.equals(limiterConfig.getString(ALGORITHM_CONFIG_KEY, GRADIENT_ALGORITHM));
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.queueSize = limiterConfig.getInteger(QUEUE_SIZE_CONFIG_KEY, 0);
+        this.queueTimeout = limiterConfig.getLong(QUEUE_TIMEOUT_CONFIG_KEY, 50L);
+        this.latencyThreshold = TimeUnit.MILLISECONDS.toNanos(limiterConfig.getLong(LATENCY_THRESHOLD_CONFIG_KEY, 1000L));
+        this.backoffRatio = limiterConfig.getDouble(BACKOFF_RATIO_CONFIG_KEY, 0.9);
+        this.smoothing = limiterConfig.getDouble(SMOOTHING_CONFIG_KEY, 0.2);
+        this.tolerance = limiterConfig.getDouble(TOLERANCE_CONFIG_KEY, 1.5);
+    }
+
+    /**
+     * Creates a limiter from the initialLimit, minLimit, and maxLimit keys of the given config, with the given defaults.
+     */
+    public static ConcurrencyLimiter create(String name, JsonObject limiterConfig, int defaultInitialLimit,
+                                            int defaultMinLimit, int defaultMaxLimit) {
+        return new ConcurrencyLimiter(name, limiterConfig,
+                limiterConfig.getInteger(INITIAL_LIMIT_CONFIG_KEY, defaultInitialLimit),
+                limiterConfig.getInteger(MIN_LIMIT_CONFIG_KEY, defaultMinLimit),
+                limiterConfig.getInteger(MAX_LIMIT_CONFIG_KEY, defaultMaxLimit));
+    }
+
+    /**
+     * Admits a request of the given priority without waiting, returns false if it is over its share of the limit.
+     */
+    public boolean tryAcquire(RequestPriority priority) {
+        int priorityLimit = Math.max(1, (int) (this.limit * priority.getShare()));
+        while (true) {
+            int current = this.inFlight.get();
+            if (current >= priorityLimit)
+                return false;
+            if (this.inFlight.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    /**
+     * Admits a request of the given priority, possibly after waiting in the queue, and calls the given handler on the
+     * calling context with true once it is admitted, or with false if it is rejected. When the queue is full, the
+     * request takes the place of the latest waiting request of a lower priority, which is rejected instead.
+     */
+    public void acquire(Vertx vertx, RequestPriority priority, Handler<Boolean> admissionHandler) {
+        if (this.tryAcquire(priority)) {
+            admissionHandler.handle(true);
+            return;
+        }
+
+        if (this.queueSize <= 0) {
+            this.rejected.increment();
+            admissionHandler.handle(false);
+            return;
+        }
+
+        Waiter waiter = new Waiter(priority, vertx.getOrCreateContext(), admissionHandler);
+        // the timer is set before the waiter is queued, so a drain or an eviction never reads an unset timer id, and
+        // its expiry is a no-op once the waiter is out of the queue
+        waiter.timerId = vertx.setTimer(Math.max(1, this.queueTimeout), id -> {
+            synchronized (this.waiterQueue) {
+                if (!this.waiterQueue.remove(waiter))
+                    return;
+            }
+
+            this.rejected.increment();
+            admissionHandler.handle(false);
+        });
+
+        Waiter evictedWaiter = null;
+        boolean queued = true;
+        synchronized (this.waiterQueue) {
+            if (this.waiterQueue.size() >= this.queueSize) {
+                for (Waiter queuedWaiter : this.waiterQueue)
+                    if (Objects.isNull(evictedWaiter) || queuedWaiter.compareTo(evictedWaiter) > 0)
+                        evictedWaiter = queuedWaiter;
+
+                if (Objects.isNull(evictedWaiter) || evictedWaiter.priority.compareTo(priority) <= 0) {
+                    queued = false;
+                    evictedWaiter = null;
+                } else this.waiterQueue.remove(evictedWaiter);
+            }
+
+            if (queued) {
+                waiter.sequence = this.waiterSequence++;
+                this.waiterQueue.add(waiter);
+            }
+        }
+
+        if (Objects.nonNull(evictedWaiter))
+            this.evict(vertx, evictedWaiter);
+
+        if (!queued) {
+            vertx.cancelTimer(waiter.timerId);
+            this.rejected.increment();
+            admissionHandler.handle(false);
+            return;
+        }
+
+        this.drain(vertx);
+    }
+
+    /**
+     * Releases an admitted request, adjusting the limit from its latency, and admits the waiting requests that fit in
+     * the new limit.
+     */
+    public void release(Vertx vertx, long latencyNanos, boolean failed) {
+        int current = this.inFlight.decrementAndGet();
+        synchronized (this) {
+            if (this.gradient)
+                this.updateGradient(latencyNanos, current);
+            else this.updateAimd(latencyNanos, failed, current);
+        }
+
+        this.drain(vertx);
+    }
+
+    /**
+     * Releases an admitted request that was not processed, without adjusting the limit.
+     */
+    public void cancel(Vertx vertx) {
+        this.inFlight.decrementAndGet();
+        this.drain(vertx);
+    }
+
+    protected void updateGradient(long latencyNanos, int current) {
+        if (this.longLatency == 0) {
+            this.shortLatency = latencyNanos;
+            this.longLatency = latencyNanos;
+            return;
+        }
+
+        this.shortLatency += (latencyNanos - this.shortLatency) * SHORT_LATENCY_WEIGHT;
+        this.longLatency += (latencyNanos - this.longLatency) * LONG_LATENCY_WEIGHT;
+        if (this.longLatency > this.shortLatency * 2)
+            this.longLatency = this.shortLatency * 2;
+
+        double limit = this.limit;
+        if (current < limit / 2)
+            return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, this.tolerance * this.longLatency / this.shortLatency));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        this.limit = this.clamp(limit * (1 - this.smoothing) + newLimit * this.smoothing);
+    }
+
+    protected void updateAimd(long latencyNanos, boolean failed, int current) {
+        if (failed || latencyNanos > this.latencyThreshold)
+            this.limit = this.clamp(this.limit * this.backoffRatio);
+        else if (current * 2 >= this.limit)
+            this.limit = this.clamp(this.limit + 1);
+    }
+
+    protected double clamp(double limit) {
+        return Math.min(this.maxLimit, Math.max(this.minLimit, limit));
+    }
+
+    protected void evict(Vertx vertx, Waiter waiter) {
+        this.rejected.increment();
+        waiter.context.runOnContext(v -> {
+            vertx.cancelTimer(waiter.timerId);
+            waiter.admissionHandler.handle(false);
+        });
+    }
+
+    protected void drain(Vertx vertx) {
+        while (true) {
+            Waiter waiter;
+            synchronized (this.waiterQueue) {
+                waiter = this.waiterQueue.peek();
+                if (Objects.isNull(waiter) || !this.tryAcquire(waiter.priority))
+                    return;
+                this.waiterQueue.poll();
+            }
+
+            waiter.context.runOnContext(v -> {
+                vertx.cancelTimer(waiter.timerId);
+                waiter.admissionHandler.handle(true);
+            });
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int getLimit() {
+        return (int) this.limit;
+    }
+
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    public int getQueued() {
+        synchronized (this.waiterQueue) {
+            return this.waiterQueue.size();
+        }
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    protected static class Waiter implements Comparable<Waiter> {
+        protected final RequestPriority priority;
+        protected final Context context;
+        protected final Handler<Boolean> admissionHandler;
+        protected long sequence;
+        protected long timerId;
+
+        protected Waiter(RequestPriority priority, Context context, Handler<Boolean> admissionHandler) {
+            this.priority = priority;
+            this.context = context;
+            this.admissionHandler = admissionHandler;
+        }
+
+        @Override
+        public int compareTo(Waiter waiter) {
+            int priorityComparison = this.priority.compareTo(waiter.priority);
+            return priorityComparison != 0 ? priorityComparison : Long.compare(this.sequence, waiter.sequence);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.vertxboot.web;
+
+import com.vertxboot.commons.deadline.Deadline;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sets the Deadline of the requests of a rest handler, from the timeout of its RestMapping, or the default timeout of
+ * the deadline block of the server config, for example:
+ * <pre>
+ * "server": {
+ *   "deadline": {"defaultTimeout": 10000, "propagate": true}
+ * }
+ * </pre>
+ * where a defaultTimeout of 0 (the default) leaves the handlers without a timeout of their own unbounded. When the
+ * deadline passes before the response is written, the request is answered with SERVICE_UNAVAILABLE if the rest handler
+ * was not invoked yet, for example while it waited for the concurrency limiter or its body, and with DEADLINE_EXCEEDED
+ * otherwise. The response written by the rest handler afterwards is ignored by the ResponseWriter, while a response
+ * already streaming (see JsonStreamWriter) is left to complete. A rest handler ending routingContext.response() itself
+ * rather than through the ResponseWriter must check response().ended() first, since vertx throws an
+ * IllegalStateException when a response that timed out is ended again.
+ * <p>
+ * The rest handler is invoked with the deadline as the current deadline (see scope), so the VaultClient calls and the
+ * event bus messages it sends carry the remaining time, if propagate is set, and the downstream work stops once nobody
+ * is waiting for it any more.
+ */
+public class DeadlineHandler implements Handler<RoutingContext> {
+    protected static final String DEADLINE_CONFIG_KEY = "deadline";
+    protected static final String DEFAULT_TIMEOUT_CONFIG_KEY = "defaultTimeout";
+    protected static final String PROPAGATE_CONFIG_KEY = "propagate";
+    protected static final String DEADLINE_CONTEXT_KEY = "vertxboot.deadline";
+    protected static final String INVOKED_CONTEXT_KEY = "vertxboot.deadlineInvoked";
+
+    protected static Logger logger = LoggerFactory.getLogger(DeadlineHandler.class);
+    protected static final Set<EventBus> interceptedEventBusSet = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    protected final long timeout;
+
+    protected DeadlineHandler(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Adds the event bus interceptors propagating the deadlines to the event bus of the given vertx, once, if
+     * propagate is set in the given server config.
+     */
+    public static void load(Vertx vertx, JsonObject serverConfig) {
+        JsonObject deadlineConfig = serverConfig.getJsonObject(DEADLINE_CONFIG_KEY, new JsonObject());
+        long defaultTimeout = deadlineConfig.getLong(DEFAULT_TIMEOUT_CONFIG_KEY, 0L);
+        if (defaultTimeout > 0)
+            logger.info("DeadlineHandler: default request timeout " + defaultTimeout + " ms");
+
+        if (deadlineConfig.getBoolean(PROPAGATE_CONFIG_KEY, true) && interceptedEventBusSet.add(vertx.eventBus())) {
+            logger.info("DeadlineHandler: propagating the request deadlines over the event bus");
+            Deadline.intercept(vertx.eventBus(), HttpResponseStatus.GATEWAY_TIMEOUT.code());
+        }
+    }
+
+    /**
+     * Returns the deadline handler of the given rest handler, with the default timeout of the given server config, or
+     * null if its requests have no timeout.
+     */
+    public static DeadlineHandler create(JsonObject serverConfig, BaseRestHandler baseRestHandler) {
+        long timeout = baseRestHandler.getRestMapping().timeout();
+        if (timeout < 0)
+            timeout = serverConfig.getJsonObject(DEADLINE_CONFIG_KEY, new JsonObject())
+                    .getLong(DEFAULT_TIMEOUT_CONFIG_KEY, 0L);
+
+        return timeout > 0 ? new DeadlineHandler(timeout) : null;
+    }
+
+    /**
+     * Returns the deadline of the given request, or null if it has none.
+     */
+    public static Deadline deadline(RoutingContext routingContext) {
+        return routingContext.get(DEADLINE_CONTEXT_KEY);
+    }
+
+    /**
+     * Wraps the given rest handler, so it is invoked with the deadline of the request as the current deadline, and not
+     * invoked at all once the deadline has passed.
+     */
+    public static Handler<RoutingContext> scope(Handler<RoutingContext> handler) {
+        return routingContext -> {
+            Deadline deadline = DeadlineHandler.deadline(routingContext);
+            if (Objects.isNull(deadline)) {
+                handler.handle(routingContext);
+                return;
+            }
+
+            if (deadline.isExpired()) {
+                ResponseWriter.writeError(routingContext, ErrorCode.SERVICE_UNAVAILABLE);
+                return;
+            }
+
+            routingContext.put(INVOKED_CONTEXT_KEY, Boolean.TRUE);
+            Deadline.run(deadline, () -> handler.handle(routingContext));
+        };
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        routingContext.put(DEADLINE_CONTEXT_KEY, Deadline.after(this.timeout, TimeUnit.MILLISECONDS));
+        long timerId = routingContext.vertx().setTimer(this.timeout, id -> this.expire(routingContext));
+        ResponseWriter.addEndHandler(routingContext, v -> routingContext.vertx().cancelTimer(timerId));
+        routingContext.next();
+    }
+
+    protected void expire(RoutingContext routingContext) {
+        HttpServerResponse response = routingContext.response();
+        if (response.ended() || response.closed() || response.headWritten())
+            return;
+
+        boolean invoked = Objects.nonNull(routingContext.get(INVOKED_CONTEXT_KEY));
+        if (logger.isDebugEnabled())
+            logger.debug("DeadlineHandler: " + routingContext.normalisedPath() + " expired after " + this.timeout +
+                    " ms" + (invoked ? "" : " before its rest handler was invoked"));
+        ResponseWriter.writeError(routingContext, invoked ? ErrorCode.DEADLINE_EXCEEDED : ErrorCode.SERVICE_UNAVAILABLE);
+    }
+}
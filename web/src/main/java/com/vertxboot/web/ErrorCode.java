@@ -7,11 +7,14 @@ public enum ErrorCode {
     OPERATION_FAILED(HttpResponseStatus.INTERNAL_SERVER_ERROR.code()),
     INVALID_INPUT(HttpResponseStatus.BAD_REQUEST.code()),
     ENTITY_NOT_FOUND(HttpResponseStatus.BAD_REQUEST.code()),
+    RESOURCE_NOT_FOUND(HttpResponseStatus.NOT_FOUND.code()),
     ENTITY_LOCKED(HttpResponseStatus.LOCKED.code()),
     PRECONDITION_FAILED(HttpResponseStatus.PRECONDITION_FAILED.code()),
     DATA_ACCESS_FAILED(HttpResponseStatus.INTERNAL_SERVER_ERROR.code()),
     DATA_PERSISTENCE_CONFLICT(HttpResponseStatus.CONFLICT.code()),
-    DATA_PERSISTENCE_FAILED(HttpResponseStatus.INTERNAL_SERVER_ERROR.code());
+    DATA_PERSISTENCE_FAILED(HttpResponseStatus.INTERNAL_SERVER_ERROR.code()),
+    SERVICE_UNAVAILABLE(HttpResponseStatus.SERVICE_UNAVAILABLE.code()),
+    DEADLINE_EXCEEDED(HttpResponseStatus.GATEWAY_TIMEOUT.code());
 
     private final int statusCode;
 
@@ -0,0 +1,188 @@
+package com.vertxboot.web;
+
+import com.vertxboot.core.EventLoopProbe;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One instance of the HTTP server, deployed by the ServerManager once per configured instance. Every instance runs on
+ * its own event loop, with its own HttpServer, Router, and rest handlers, and vertx balances the connections of the
+ * shared port between the instances.
+ * <p>
+ * If server.socket.maxRequestsPerConnection is set, an HTTP/1.x connection is closed after serving that many requests,
+ * and its last response carries "Connection: close", so that long lived keep-alive connections are rebalanced.
+ * <p>
+ * When undeployed, the instance drains its connections before its HttpServer is closed: the HTTP/1.x connections are
+ * closed as soon as they have no request in flight, and the responses of the requests they still receive carry
+ * "Connection: close", while the HTTP/2 connections are sent a GOAWAY and closed once their streams complete. The
+ * instance stops once no request is in flight, or after the shutdownTimeout of ServerHealth, whichever comes first.
+ * The instance first waits for the drainDelay of ServerHealth only if it is undeployed by ServerManager.stopServer,
+ * which turns its server not ready, and undeploying a single instance leaves the readiness of the server unchanged.
+ */
+public class HttpServerVerticle extends AbstractVerticle {
+    protected static final String SOCKET_CONFIG_KEY = "socket";
+    protected static final String MAX_REQUESTS_PER_CONNECTION_CONFIG_KEY = "maxRequestsPerConnection";
+
+    protected static Logger logger = LoggerFactory.getLogger(HttpServerVerticle.class);
+
+    protected final ServerManager serverManager;
+    protected final JsonObject serverConfig;
+    protected final HttpServerOptions httpServerOptions;
+    protected final InterceptorConfig interceptorConfig;
+    protected final EventLoopProbe eventLoopProbe;
+    protected final int port;
+    protected Router router;
+    protected HttpServer httpServer;
+    protected int maxRequestsPerConnection;
+    protected final Map<HttpConnection, ConnectionState> connectionStateMap = new IdentityHashMap<>();
+    protected int inFlight;
+    protected boolean draining;
+    protected Promise<Void> stopPromise;
+    protected long shutdownTimerId;
+
+    protected HttpServerVerticle(ServerManager serverManager, JsonObject serverConfig,
+                                 HttpServerOptions httpServerOptions, InterceptorConfig interceptorConfig,
+                                 EventLoopProbe eventLoopProbe, int port) {
+        this.serverManager = serverManager;
+        this.serverConfig = serverConfig;
+        this.httpServerOptions = httpServerOptions;
+        this.interceptorConfig = interceptorConfig;
+        this.eventLoopProbe = eventLoopProbe;
+        this.port = port;
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        this.router = Router.router(this.vertx);
+        this.router.errorHandler(HttpResponseStatus.NOT_FOUND.code(), routingContext ->
+                ResponseWriter.writeError(routingContext, ErrorCode.RESOURCE_NOT_FOUND));
+        ServerHealth serverHealth = this.serverManager.getServerHealth();
+        if (serverHealth.isExposed()) {
+            this.router.get(serverHealth.getReadinessPath()).handler(serverHealth::readiness);
+            this.router.get(serverHealth.getLivenessPath()).handler(serverHealth::liveness);
+        }
+        RestLoader.load(this.vertx, this.router, this.serverConfig, this.serverManager, this.interceptorConfig,
+                this.eventLoopProbe);
+
+        this.maxRequestsPerConnection = this.serverConfig.getJsonObject(SOCKET_CONFIG_KEY, new JsonObject())
+                .getInteger(MAX_REQUESTS_PER_CONNECTION_CONFIG_KEY, 0);
+        this.router.route().order(-1).handler(this::trackRequest);
+
+        this.httpServer = this.vertx.createHttpServer(this.httpServerOptions);
+        this.httpServer.connectionHandler(this::trackConnection);
+        this.httpServer.requestHandler(this.router).listen(this.port, listenAsyncResult -> {
+            if (listenAsyncResult.failed())
+                startPromise.fail(listenAsyncResult.cause());
+            else startPromise.complete();
+        });
+    }
+
+    @Override
+    public void stop(Promise<Void> stopPromise) {
+        ServerHealth serverHealth = this.serverManager.getServerHealth();
+        long drainDelay = serverHealth.isDraining() ? serverHealth.getDrainDelay() : 0L;
+        if (drainDelay > 0)
+            this.vertx.setTimer(drainDelay, id -> this.drain(stopPromise));
+        else this.drain(stopPromise);
+    }
+
+    protected void trackConnection(HttpConnection connection) {
+        ServerTls serverTls = this.serverManager.getServerTls();
+        if (Objects.nonNull(serverTls))
+            serverTls.configure(connection);
+
+        this.connectionStateMap.put(connection, new ConnectionState());
+        connection.closeHandler(v -> this.connectionStateMap.remove(connection));
+    }
+
+    protected void trackRequest(RoutingContext routingContext) {
+        routingContext.put(ServerManager.SERVER_MANAGER_CONTEXT_KEY, this.serverManager);
+        HttpServerRequest request = routingContext.request();
+        HttpConnection connection = request.connection();
+        ConnectionState connectionState = Objects.isNull(connection) ? null : this.connectionStateMap.get(connection);
+        if (Objects.isNull(connectionState)) {
+            routingContext.next();
+            return;
+        }
+
+        this.inFlight++;
+        connectionState.inFlight++;
+        connectionState.requests++;
+        connectionState.http2 = request.version() == HttpVersion.HTTP_2;
+        ResponseWriter.addEndHandler(routingContext, v -> {
+            this.inFlight--;
+            connectionState.inFlight--;
+            if (this.draining)
+                this.drained(connection, connectionState);
+        });
+
+        if (connectionState.http2) {
+            if (this.draining && connectionState.requests == 1)
+                connection.shutdown(this.serverManager.getServerHealth().getShutdownTimeout());
+        } else if (this.draining || (this.maxRequestsPerConnection > 0 &&
+                connectionState.requests >= this.maxRequestsPerConnection)) {
+            request.response().putHeader(HttpHeaders.CONNECTION, HttpHeaders.CLOSE);
+            routingContext.addBodyEndHandler(v -> connection.close());
+        }
+
+        routingContext.next();
+    }
+
+    protected void drain(Promise<Void> stopPromise) {
+        logger.info("HttpServerVerticle: draining " + this.inFlight + " requests in flight on " +
+                this.connectionStateMap.size() + " connections");
+        this.draining = true;
+        this.stopPromise = stopPromise;
+        long shutdownTimeout = this.serverManager.getServerHealth().getShutdownTimeout();
+        new ArrayList<>(this.connectionStateMap.keySet()).forEach(connection -> {
+            ConnectionState connectionState = this.connectionStateMap.get(connection);
+            if (connectionState.http2)
+                connection.shutdown(shutdownTimeout);
+            else this.drained(connection, connectionState);
+        });
+
+        this.shutdownTimerId = this.vertx.setTimer(Math.max(1L, shutdownTimeout), id -> {
+            logger.warn("HttpServerVerticle: shutdown timeout, closing " + this.connectionStateMap.size() +
+                    " connections with " + this.inFlight + " requests in flight");
+            this.stopPromise.tryComplete();
+        });
+        this.drained(null, null);
+    }
+
+    /**
+     * Closes the given HTTP/1.x connection if it has no request in flight, and completes the stop promise once no
+     * request is in flight at all.
+     */
+    protected void drained(HttpConnection connection, ConnectionState connectionState) {
+        if (Objects.nonNull(connection) && !connectionState.http2 && connectionState.inFlight == 0)
+            connection.close();
+
+        if (this.inFlight == 0 && this.stopPromise.tryComplete()) {
+            this.vertx.cancelTimer(this.shutdownTimerId);
+            logger.info("HttpServerVerticle: drained");
+        }
+    }
+
+    protected static class ConnectionState {
+        protected int requests;
+        protected int inFlight;
+        protected boolean http2;
+    }
+}
@@ -0,0 +1,183 @@
+package com.vertxboot.web;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Compiles the interceptors into the handler chain of each rest handler at load time, instead of routing them as
+ * separate routes matched on every request. An interceptor is attached to a rest handler only if its path and HTTP
+ * methods can match the requests of that handler. When this can only be decided per request, for example for a
+ * parameterized handler path, the attached interceptor checks the request path or method inline and skips itself by
+ * calling RoutingContext.next(). The RequestSkipStrategy of an interceptor, if any, is evaluated inline the same way.
+ * <p>
+ * Interceptors whose path contains path parameters cannot be compiled, and they are returned by getUncompiled() to be
+ * routed on the router as before, wrapped by skipping so their RequestSkipStrategy is still evaluated.
+ */
+public class InterceptorChain {
+    protected static final String WILDCARD = "*";
+    protected static final String PARAM_PREFIX = ":";
+
+    protected final List<CompiledInterceptor> compiledInterceptors = new ArrayList<>();
+    protected final List<BaseInterceptor> uncompiledInterceptors = new ArrayList<>();
+
+    protected InterceptorChain() {
+    }
+
+    public static InterceptorChain compile(List<BaseInterceptor> interceptors,
+                                           Function<BaseInterceptor, Handler<RoutingContext>> decorator) {
+        InterceptorChain interceptorChain = new InterceptorChain();
+        interceptors.forEach(baseInterceptor -> {
+            if (baseInterceptor.getPath().contains(PARAM_PREFIX))
+                interceptorChain.uncompiledInterceptors.add(baseInterceptor);
+            else interceptorChain.compiledInterceptors.add(
+                    new CompiledInterceptor(baseInterceptor, decorator.apply(baseInterceptor)));
+        });
+
+        return interceptorChain;
+    }
+
+    public List<BaseInterceptor> getUncompiled() {
+        return Collections.unmodifiableList(this.uncompiledInterceptors);
+    }
+
+    /**
+     * Returns the given handler of an interceptor routed on its own, skipping it by calling RoutingContext.next() for
+     * the requests its RequestSkipStrategy skips, or the handler itself if it has none.
+     */
+    public static Handler<RoutingContext> skipping(BaseInterceptor baseInterceptor, Handler<RoutingContext> handler) {
+        RequestSkipStrategy requestSkipStrategy = baseInterceptor.getRequestSkipStrategy();
+        if (Objects.isNull(requestSkipStrategy))
+            return handler;
+
+        return routingContext -> {
+            if (requestSkipStrategy.doSkip(routingContext)) {
+                routingContext.next();
+                return;
+            }
+
+            handler.handle(routingContext);
+        };
+    }
+
+    /**
+     * Returns the handlers of the compiled interceptors that apply to the given rest handler, in order.
+     */
+    public List<Handler<RoutingContext>> handlersFor(BaseRestHandler baseRestHandler) {
+        return this.handlersFor(baseRestHandler.getHttpMethods(), baseRestHandler.getPath());
+    }
+
+    /**
+     * Returns the handlers of the compiled interceptors that apply to a route of the given HTTP methods and path, in
+     * order, for the routes that are not rest handlers, such as the metrics scrape and the static files.
+     */
+    public List<Handler<RoutingContext>> handlersFor(Set<HttpMethod> httpMethods, String path) {
+        List<Handler<RoutingContext>> handlers = new ArrayList<>();
+        for (CompiledInterceptor compiledInterceptor : this.compiledInterceptors) {
+            Handler<RoutingContext> handler = compiledInterceptor.bind(httpMethods, path);
+            if (Objects.nonNull(handler))
+                handlers.add(handler);
+        }
+
+        return handlers;
+    }
+
+    protected static String staticPrefix(String path) {
+        int end = path.length();
+        int paramIndex = path.indexOf(PARAM_PREFIX);
+        int wildcardIndex = path.indexOf(WILDCARD);
+        if (paramIndex >= 0)
+            end = paramIndex;
+        if (wildcardIndex >= 0)
+            end = Math.min(end, wildcardIndex);
+        return path.substring(0, end);
+    }
+
+    protected static String trimTrailingSlash(String path) {
+        return (path.length() > 1 && path.endsWith("/")) ? path.substring(0, path.length() - 1) : path;
+    }
+
+    protected enum Applicability {
+        ALWAYS, NEVER, PER_REQUEST
+    }
+
+    protected static class CompiledInterceptor {
+        protected final BaseInterceptor baseInterceptor;
+        protected final Handler<RoutingContext> handler;
+        protected final RequestSkipStrategy requestSkipStrategy;
+        protected final boolean prefix;
+        protected final String path;
+
+        protected CompiledInterceptor(BaseInterceptor baseInterceptor, Handler<RoutingContext> handler) {
+            this.baseInterceptor = baseInterceptor;
+            this.handler = handler;
+            this.requestSkipStrategy = baseInterceptor.getRequestSkipStrategy();
+            this.prefix = baseInterceptor.getPath().endsWith(WILDCARD);
+            this.path = this.prefix ? staticPrefix(baseInterceptor.getPath()) :
+                    trimTrailingSlash(baseInterceptor.getPath());
+        }
+
+        protected Handler<RoutingContext> bind(Set<HttpMethod> httpMethods, String path) {
+            Applicability methodApplicability = this.methodApplicability(httpMethods);
+            Applicability pathApplicability = this.pathApplicability(path);
+            if (methodApplicability == Applicability.NEVER || pathApplicability == Applicability.NEVER)
+                return null;
+
+            boolean checkMethod = methodApplicability == Applicability.PER_REQUEST;
+            boolean checkPath = pathApplicability == Applicability.PER_REQUEST;
+            if (!checkMethod && !checkPath && Objects.isNull(this.requestSkipStrategy))
+                return this.handler;
+
+            return routingContext -> {
+                if ((checkMethod && !this.baseInterceptor.getHttpMethods().contains(routingContext.request().method())) ||
+                        (checkPath && !this.matches(routingContext.normalisedPath())) ||
+                        (Objects.nonNull(this.requestSkipStrategy) && this.requestSkipStrategy.doSkip(routingContext))) {
+                    routingContext.next();
+                    return;
+                }
+
+                this.handler.handle(routingContext);
+            };
+        }
+
+        protected Applicability methodApplicability(Set<HttpMethod> httpMethods) {
+            boolean all = true;
+            boolean any = false;
+            for (HttpMethod httpMethod : httpMethods) {
+                boolean contained = this.baseInterceptor.getHttpMethods().contains(httpMethod);
+                all &= contained;
+                any |= contained;
+            }
+
+            return all ? Applicability.ALWAYS : (any ? Applicability.PER_REQUEST : Applicability.NEVER);
+        }
+
+        protected Applicability pathApplicability(String handlerPath) {
+            String handlerPrefix = staticPrefix(handlerPath);
+            if (handlerPrefix.equals(handlerPath))
+                return this.matches(trimTrailingSlash(handlerPath)) ? Applicability.ALWAYS : Applicability.NEVER;
+
+            if (this.prefix && handlerPrefix.startsWith(this.path))
+                return Applicability.ALWAYS;
+
+            boolean overlapping = this.prefix ? this.path.startsWith(handlerPrefix) :
+                    this.path.startsWith(trimTrailingSlash(handlerPrefix));
+            return overlapping ? Applicability.PER_REQUEST : Applicability.NEVER;
+        }
+
+        protected boolean matches(String requestPath) {
+            if (!this.prefix)
+                return trimTrailingSlash(requestPath).equals(this.path);
+
+            return requestPath.startsWith(this.path) ||
+                    (this.path.endsWith("/") && requestPath.equals(trimTrailingSlash(this.path)));
+        }
+    }
+}
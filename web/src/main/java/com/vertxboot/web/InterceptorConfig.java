@@ -14,6 +14,10 @@ public interface InterceptorConfig {
         return Collections.emptyList();
     }
 
+    default List<RestHandlerDecorator> decorators() {
+        return Collections.emptyList();
+    }
+
     @BeanConfig(async = false, overridable = true)
     static InterceptorConfig interceptorConfig() {
         return new InterceptorConfig() {
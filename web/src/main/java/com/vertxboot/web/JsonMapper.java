@@ -0,0 +1,137 @@
+package com.vertxboot.web;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.vertxboot.beans.BeanConfig;
+import com.vertxboot.commons.config.AppConfig;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The shared, thread safe, jackson object mapper of the web module, with its object readers and writers cached per
+ * target type. The mapper is configured by the json block of the application config, for example:
+ * <pre>
+ * "json": {"failOnUnknownProperties": false, "writeDatesAsTimestamps": false, "serializationInclusion": "NON_NULL"}
+ * </pre>
+ * The mapper must not be reconfigured after it is shared, as the cached readers and writers would not observe it. The
+ * ServerManager hands its json mapper to the rest handlers it loads, and the ResponseWriter and the JsonStreamWriter
+ * find it with of.
+ */
+public class JsonMapper {
+    protected static final String JSON_CONFIG_KEY = "json";
+    protected static final String FAIL_ON_UNKNOWN_PROPERTIES_CONFIG_KEY = "failOnUnknownProperties";
+    protected static final String WRITE_DATES_AS_TIMESTAMPS_CONFIG_KEY = "writeDatesAsTimestamps";
+    protected static final String SERIALIZATION_INCLUSION_CONFIG_KEY = "serializationInclusion";
+
+    protected static Logger logger = LoggerFactory.getLogger(JsonMapper.class);
+    protected static final JsonMapper DEFAULT = new JsonMapper(new ObjectMapper());
+
+    protected final ObjectMapper objectMapper;
+    protected final Map<Type, ObjectReader> objectReaderMap = new ConcurrentHashMap<>();
+    protected final Map<Type, ObjectWriter> objectWriterMap = new ConcurrentHashMap<>();
+
+    protected JsonMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Creates the shared json mapper from the given config.
+     */
+    public static JsonMapper load(AppConfig config) {
+        JsonObject jsonConfig = config.getSync().getJsonObject(JSON_CONFIG_KEY, new JsonObject());
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        if (jsonConfig.containsKey(FAIL_ON_UNKNOWN_PROPERTIES_CONFIG_KEY))
+            objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
+                    jsonConfig.getBoolean(FAIL_ON_UNKNOWN_PROPERTIES_CONFIG_KEY));
+
+        if (jsonConfig.containsKey(WRITE_DATES_AS_TIMESTAMPS_CONFIG_KEY))
+            objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS,
+                    jsonConfig.getBoolean(WRITE_DATES_AS_TIMESTAMPS_CONFIG_KEY));
+
+        if (jsonConfig.containsKey(SERIALIZATION_INCLUSION_CONFIG_KEY))
+            objectMapper.setSerializationInclusion(
+                    JsonInclude.Include.valueOf(jsonConfig.getString(SERIALIZATION_INCLUSION_CONFIG_KEY)));
+
+        logger.info("JsonMapper: shared object mapper created");
+        return JsonMapper.share(objectMapper);
+    }
+
+    /**
+     * Wraps the given object mapper, for applications overriding the json mapper bean with their own configuration.
+     */
+    public static JsonMapper share(ObjectMapper objectMapper) {
+        return new JsonMapper(objectMapper);
+    }
+
+    /**
+     * Returns the json mapper of the server of the given request, or a json mapper with the jackson defaults if the
+     * request is not served by a ServerManager.
+     */
+    public static JsonMapper of(RoutingContext routingContext) {
+        ServerManager serverManager = ServerManager.of(routingContext);
+        return Objects.isNull(serverManager) ? DEFAULT : serverManager.getJsonMapper();
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return this.objectMapper;
+    }
+
+    public <T> ObjectReader reader(TypeReference<T> typeReference) {
+        return this.reader(typeReference.getType());
+    }
+
+    public ObjectReader reader(Type type) {
+        return this.objectReaderMap.computeIfAbsent(type, key ->
+                this.objectMapper.readerFor(this.objectMapper.getTypeFactory().constructType(key)));
+    }
+
+    public ObjectWriter writer(Type type) {
+        return this.objectWriterMap.computeIfAbsent(type, key ->
+                this.objectMapper.writerFor(this.objectMapper.getTypeFactory().constructType(key)));
+    }
+
+    /**
+     * Parses the given buffer directly from its bytes, without decoding it into a string first.
+     */
+    public <T> T read(Buffer buffer, TypeReference<T> typeReference) throws IOException {
+        return JsonMapper.read(buffer, this.reader(typeReference));
+    }
+
+    public <T> T read(Buffer buffer, Type type) throws IOException {
+        return JsonMapper.read(buffer, this.reader(type));
+    }
+
+    protected static <T> T read(Buffer buffer, ObjectReader objectReader) throws IOException {
+        ByteBuf byteBuf = buffer.getByteBuf();
+        if (byteBuf.hasArray())
+            return objectReader.readValue(byteBuf.array(), byteBuf.arrayOffset() + byteBuf.readerIndex(),
+                    byteBuf.readableBytes());
+
+        try (InputStream inputStream = new ByteBufInputStream(byteBuf)) {
+            return objectReader.readValue(inputStream);
+        }
+    }
+
+    @BeanConfig(async = false, overridable = true)
+    public static JsonMapper jsonMapper(AppConfig appConfig) {
+        return JsonMapper.load(appConfig);
+    }
+}
@@ -0,0 +1,322 @@
+package com.vertxboot.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Streams a collection as a chunked json array, or as newline delimited json (NDJSON), one element at a time, so large
+ * collections are written in constant memory, and their first bytes are sent before the last element is read. The
+ * elements are encoded by a jackson generator with the cached ObjectWriter of their type, into a chunk that is written
+ * to the response once it reaches CHUNK_SIZE bytes.
+ * <p>
+ * The elements come either from a ReadStream, which is paused while the write queue of the response is full, or from a
+ * page supplier, called with the index of the next page once the previous one is written and the write queue drained,
+ * until it supplies an empty page. If the source fails or the connection is closed, the source is stopped, and a
+ * response already started is cut short by closing the connection, so the client cannot take it for a complete one.
+ * <p>
+ * Example:
+ * <pre>
+ * &#64;RestMapping(httpMethod = HttpMethod.GET, path = "/export")
+ * public void export(RoutingContext routingContext) {
+ *     JsonStreamWriter.writeArray(routingContext, page -&gt; repository.findPage(page, 1000), Record.class);
+ * }
+ * </pre>
+ * MethodRestHandler streams the ReadStream results of the rest handler methods this way, as NDJSON if the request
+ * accepts it, and as a json array otherwise.
+ */
+public class JsonStreamWriter<T> {
+    public static final CharSequence APPLICATION_NDJSON = HttpHeaders.createOptimized("application/x-ndjson");
+
+    protected static final int CHUNK_SIZE = 16 * 1024;
+    protected static final byte NEWLINE = '\n';
+
+    protected static Logger logger = LoggerFactory.getLogger(JsonStreamWriter.class);
+
+    protected final RoutingContext routingContext;
+    protected final HttpServerResponse response;
+    protected final ObjectWriter objectWriter;
+    protected final boolean ndjson;
+    protected final ChunkOutputStream chunkOutputStream = new ChunkOutputStream();
+    protected JsonGenerator jsonGenerator;
+    protected boolean stopped;
+
+    protected JsonStreamWriter(RoutingContext routingContext, ObjectWriter objectWriter, boolean ndjson) {
+        this.routingContext = routingContext;
+        this.response = routingContext.response();
+        this.objectWriter = objectWriter;
+        this.ndjson = ndjson;
+    }
+
+    public static <T> void writeArray(RoutingContext routingContext, ReadStream<T> readStream, Type elementType) {
+        new JsonStreamWriter<T>(routingContext, JsonMapper.of(routingContext).writer(elementType), false)
+                .stream(readStream);
+    }
+
+    public static <T> void writeNdjson(RoutingContext routingContext, ReadStream<T> readStream, Type elementType) {
+        new JsonStreamWriter<T>(routingContext, JsonMapper.of(routingContext).writer(elementType), true)
+                .stream(readStream);
+    }
+
+    public static <T> void writeArray(RoutingContext routingContext, Function<Integer, Future<List<T>>> pageSupplier,
+                                      Type elementType) {
+        new JsonStreamWriter<T>(routingContext, JsonMapper.of(routingContext).writer(elementType), false)
+                .page(pageSupplier);
+    }
+
+    public static <T> void writeNdjson(RoutingContext routingContext, Function<Integer, Future<List<T>>> pageSupplier,
+                                       Type elementType) {
+        new JsonStreamWriter<T>(routingContext, JsonMapper.of(routingContext).writer(elementType), true)
+                .page(pageSupplier);
+    }
+
+    /**
+     * Streams the elements of the given read stream, with the given object writer, as NDJSON if the given flag is set,
+     * or as a json array otherwise.
+     */
+    public static <T> void write(RoutingContext routingContext, ReadStream<T> readStream, ObjectWriter objectWriter,
+                                 boolean ndjson) {
+        new JsonStreamWriter<T>(routingContext, objectWriter, ndjson).stream(readStream);
+    }
+
+    protected void stream(ReadStream<T> readStream) {
+        if (!this.begin(readStream::pause))
+            return;
+
+        readStream.exceptionHandler(throwable -> this.fail(throwable, readStream::pause));
+        readStream.endHandler(v -> this.end());
+        readStream.handler(element -> {
+            if (!this.append(element)) {
+                readStream.pause();
+                return;
+            }
+
+            if (this.chunkOutputStream.size() >= CHUNK_SIZE) {
+                this.flush();
+                if (this.response.writeQueueFull()) {
+                    readStream.pause();
+                    this.response.drainHandler(drained -> {
+                        if (!this.stopped)
+                            readStream.resume();
+                    });
+                }
+            }
+        });
+    }
+
+    protected void page(Function<Integer, Future<List<T>>> pageSupplier) {
+        if (this.begin(null))
+            this.nextPage(pageSupplier, 0);
+    }
+
+    protected void nextPage(Function<Integer, Future<List<T>>> pageSupplier, int page) {
+        Future<List<T>> pageFuture;
+        try {
+            pageFuture = pageSupplier.apply(page);
+        } catch (RuntimeException e) {
+            this.fail(e, null);
+            return;
+        }
+
+        pageFuture.setHandler(pageAsyncResult -> {
+            if (this.stopped)
+                return;
+
+            if (pageAsyncResult.failed()) {
+                this.fail(pageAsyncResult.cause(), null);
+                return;
+            }
+
+            List<T> elements = pageAsyncResult.result();
+            if (Objects.isNull(elements) || elements.isEmpty()) {
+                this.end();
+                return;
+            }
+
+            for (T element : elements) {
+                if (!this.append(element))
+                    return;
+
+                if (this.chunkOutputStream.size() >= CHUNK_SIZE)
+                    this.flush();
+            }
+
+            // the next page is requested from a later event loop task, as pages already completed would otherwise
+            // recurse once per page on the same stack
+            this.flush();
+            Handler<Void> next = v -> {
+                if (!this.stopped)
+                    this.nextPage(pageSupplier, page + 1);
+            };
+            if (this.response.writeQueueFull())
+                this.response.drainHandler(next);
+            else this.routingContext.vertx().runOnContext(next);
+        });
+    }
+
+    /**
+     * Starts the chunked response and the json generator, and calls the given stop handler if the connection is
+     * closed before the response ends. Returns false if the response cannot be started.
+     */
+    protected boolean begin(Runnable stopHandler) {
+        if (this.response.ended() || this.response.closed())
+            return false;
+
+        try {
+            this.jsonGenerator = this.objectWriter.getFactory()
+                    .createGenerator(this.chunkOutputStream);
+            this.jsonGenerator.setRootValueSeparator(null);
+            if (!this.ndjson)
+                this.jsonGenerator.writeStartArray();
+        } catch (IOException e) {
+            this.routingContext.fail(e);
+            return false;
+        }
+
+        this.response
+                .setStatusCode(HttpResponseStatus.OK.code())
+                .setChunked(true)
+                .putHeader(HttpHeaders.CONTENT_TYPE, this.ndjson ? APPLICATION_NDJSON : ResponseWriter.APPLICATION_JSON);
+        ResponseWriter.addEndHandler(this.routingContext, v -> {
+            if (this.response.ended() || this.stopped)
+                return;
+
+            this.stop();
+            if (Objects.nonNull(stopHandler))
+                stopHandler.run();
+        });
+        return true;
+    }
+
+    protected boolean append(T element) {
+        if (this.stopped)
+            return false;
+
+        try {
+            this.objectWriter.writeValue(this.jsonGenerator, element);
+            if (this.ndjson) {
+                this.jsonGenerator.flush();
+                this.chunkOutputStream.write(NEWLINE);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            this.fail(e, null);
+            return false;
+        }
+    }
+
+    protected void flush() {
+        try {
+            this.jsonGenerator.flush();
+        } catch (IOException e) {
+            this.fail(e, null);
+            return;
+        }
+
+        Buffer chunk = this.chunkOutputStream.take();
+        if (Objects.nonNull(chunk) && !this.stopped)
+            this.response.write(chunk);
+    }
+
+    protected void end() {
+        if (this.stopped)
+            return;
+
+        try {
+            if (!this.ndjson)
+                this.jsonGenerator.writeEndArray();
+            this.jsonGenerator.flush();
+        } catch (IOException e) {
+            this.fail(e, null);
+            return;
+        }
+
+        Buffer chunk = this.chunkOutputStream.take();
+        this.stop();
+        if (Objects.nonNull(chunk))
+            this.response.end(chunk);
+        else this.response.end();
+    }
+
+    protected void fail(Throwable throwable, Runnable stopHandler) {
+        if (this.stopped)
+            return;
+
+        this.stop();
+        if (Objects.nonNull(stopHandler))
+            stopHandler.run();
+
+        if (!this.response.headWritten()) {
+            this.response.setChunked(false).headers().remove(HttpHeaders.CONTENT_TYPE);
+            this.routingContext.fail(throwable);
+            return;
+        }
+
+        logger.error("JsonStreamWriter: streaming " + this.routingContext.normalisedPath() + " failed, closing the " +
+                "connection", throwable);
+        this.response.close();
+    }
+
+    protected void stop() {
+        this.stopped = true;
+        this.chunkOutputStream.release();
+    }
+
+    /**
+     * The output stream of the json generator, accumulating the encoded elements into the current chunk.
+     */
+    protected static class ChunkOutputStream extends OutputStream {
+        protected ByteBuf chunk;
+
+        @Override
+        public void write(int b) {
+            this.chunk().writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            this.chunk().writeBytes(bytes, offset, length);
+        }
+
+        protected int size() {
+            return Objects.isNull(this.chunk) ? 0 : this.chunk.readableBytes();
+        }
+
+        protected Buffer take() {
+            if (this.size() == 0)
+                return null;
+
+            Buffer buffer = Buffer.buffer(this.chunk);
+            this.chunk = null;
+            return buffer;
+        }
+
+        protected void release() {
+            this.chunk = null;
+        }
+
+        protected ByteBuf chunk() {
+            if (Objects.isNull(this.chunk))
+                this.chunk = Unpooled.buffer(CHUNK_SIZE + CHUNK_SIZE / 4);
+            return this.chunk;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.vertxboot.web;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.vertxboot.beans.BeanConfig;
+import com.vertxboot.beans.BeanFactory;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.RoutingContext;
+import org.reflections.Reflections;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A rest handler backed by a method annotated with RestMapping, instead of a BaseRestHandler subclass. The method is
+ * either static, or an instance method of a bean, which is resolved from the BeanFactory on the first request, so the
+ * declaring class must have a BeanConfig, or its bean must be registered before the rest handlers are loaded, and the
+ * method fails to load otherwise. The requests arriving before the bean is created wait for it up to BEAN_TIMEOUT
+ * milliseconds, and are answered with SERVICE_UNAVAILABLE after that, for example when a dependency of the bean failed.
+ * <p>
+ * Each method parameter is bound once, at load time, to a binder reading it from the request, according to its
+ * annotation: PathParam, QueryParam, and HeaderParam parameters can be strings, primitives, their wrappers, or enums,
+ * and the BodyParam parameter can be a Buffer, a String, a JsonObject, a JsonArray, or any type read by the JsonMapper
+ * the method is loaded with. Parameters of type RoutingContext, HttpServerRequest, and HttpServerResponse are bound
+ * without annotations. The method is invoked through a MethodHandle, without per request reflection.
+ * <p>
+ * The result, or the result of a returned Future, is written by the ResponseWriter with the cached ObjectWriter of the
+ * declared result type, and a null result is answered with 204. A ReadStream result, or the ReadStream of a returned
+ * Future, is streamed by the JsonStreamWriter with the ObjectWriter of its element type, as NDJSON if the request
+ * accepts application/x-ndjson, and as a json array otherwise. Methods returning void and taking the routing context
+ * or the response are expected to write the response themselves.
+ * <p>
+ * Example:
+ * <pre>
+ * &#64;RestMapping(httpMethod = HttpMethod.GET, path = "/users/:id")
+ * public Future&lt;User&gt; getUser(&#64;PathParam("id") long id, &#64;QueryParam("fields") String fields) {...}
+ * </pre>
+ */
+public class MethodRestHandler extends BaseRestHandler {
+    protected static final long BEAN_TIMEOUT = 10000L;
+
+    protected final Method method;
+    protected final MethodHandle methodHandle;
+    protected final List<Function<RoutingContext, Object>> parameterBinders;
+    protected final ObjectWriter resultWriter;
+    protected final boolean futureResult;
+    protected final boolean streamResult;
+    protected final boolean selfResponding;
+    protected Future<?> targetFuture;
+
+    protected MethodRestHandler(Method method, JsonMapper jsonMapper) throws IllegalAccessException {
+        super(method.getAnnotation(RestMapping.class));
+        this.method = method;
+
+        boolean staticMethod = Modifier.isStatic(method.getModifiers());
+        method.setAccessible(true);
+        MethodHandle methodHandle = MethodHandles.lookup().unreflect(method);
+        if (staticMethod)
+            methodHandle = MethodHandles.dropArguments(methodHandle, 0, Object.class);
+        this.methodHandle = methodHandle
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+
+        boolean selfResponding = false;
+        Parameter[] parameters = method.getParameters();
+        List<Function<RoutingContext, Object>> parameterBinders = new ArrayList<>(parameters.length);
+        for (Parameter parameter : parameters) {
+            parameterBinders.add(binder(method, parameter, jsonMapper));
+            selfResponding |= parameter.getType().equals(RoutingContext.class) ||
+                    parameter.getType().equals(HttpServerResponse.class);
+        }
+        this.parameterBinders = parameterBinders;
+
+        this.futureResult = Future.class.isAssignableFrom(method.getReturnType());
+        this.selfResponding = selfResponding && method.getReturnType().equals(void.class);
+        Type resultType = resultType(method);
+        this.streamResult = isReadStream(resultType);
+        this.resultWriter = jsonMapper.writer(this.streamResult ? elementType(resultType) : resultType);
+        if (!staticMethod) {
+            Class<?> beanClass = method.getDeclaringClass();
+            if (!BeanFactory.instance().isInitialized(beanClass) && !hasBeanConfig(beanClass))
+                throw new IllegalArgumentException(String.format("No bean of class %s for rest handler method %s, " +
+                        "the declaring class of an instance method must have a BeanConfig", beanClass.getName(),
+                        method));
+            this.targetFuture = BeanFactory.instance().get(beanClass);
+        }
+    }
+
+    public static MethodRestHandler create(Method method, JsonMapper jsonMapper) throws IllegalAccessException {
+        return new MethodRestHandler(method, jsonMapper);
+    }
+
+    @Override
+    public Class<?> getHandlerClass() {
+        return this.method.getDeclaringClass();
+    }
+
+    @Override
+    public <A extends Annotation> A getHandlerAnnotation(Class<A> annotationClass) {
+        A annotation = this.method.getAnnotation(annotationClass);
+        return Objects.nonNull(annotation) ? annotation : this.method.getDeclaringClass().getAnnotation(annotationClass);
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        if (Objects.isNull(this.targetFuture) || this.targetFuture.succeeded()) {
+            this.invoke(routingContext, Objects.isNull(this.targetFuture) ? null : this.targetFuture.result());
+            return;
+        }
+
+        // each request arriving before the bean is resolved waits on its own future, as setHandler replaces the handler
+        // of a shared one, and resumes on its own context
+        Context context = Vertx.currentContext();
+        Promise<Object> targetPromise = Promise.promise();
+        long timerId = routingContext.vertx().setTimer(BEAN_TIMEOUT, id -> targetPromise.tryFail(
+                new StacklessBackendException(ErrorCode.SERVICE_UNAVAILABLE, "Bean of " +
+                        this.method.getDeclaringClass().getName() + " not available")));
+        BeanFactory.instance().get(this.method.getDeclaringClass()).setHandler(targetAsyncResult -> {
+            Handler<Void> resumption = v -> targetPromise.tryComplete(targetAsyncResult.result());
+            if (targetAsyncResult.failed())
+                resumption = v -> targetPromise.tryFail(targetAsyncResult.cause());
+            if (Objects.isNull(context))
+                resumption.handle(null);
+            else context.runOnContext(resumption);
+        });
+        targetPromise.future().setHandler(targetAsyncResult -> {
+            routingContext.vertx().cancelTimer(timerId);
+            if (targetAsyncResult.failed())
+                routingContext.fail(targetAsyncResult.cause());
+            else this.invoke(routingContext, targetAsyncResult.result());
+        });
+    }
+
+    /**
+     * Returns true if a BeanConfig method of the scanned packages creates beans of the given class.
+     */
+    protected static boolean hasBeanConfig(Class<?> beanClass) {
+        Reflections reflections = BeanFactory.instance().getSync(Reflections.class);
+        for (Method beanConfigMethod : reflections.getMethodsAnnotatedWith(BeanConfig.class)) {
+            Type beanType = beanConfigMethod.getReturnType();
+            if (beanConfigMethod.getAnnotation(BeanConfig.class).async() &&
+                    beanConfigMethod.getGenericReturnType() instanceof ParameterizedType)
+                beanType = ((ParameterizedType) beanConfigMethod.getGenericReturnType()).getActualTypeArguments()[0];
+            if (beanType.equals(beanClass))
+                return true;
+        }
+
+        return false;
+    }
+
+    protected void invoke(RoutingContext routingContext, Object target) {
+        Object result;
+        try {
+            Object[] arguments = new Object[this.parameterBinders.size()];
+            for (int index = 0; index < arguments.length; index++)
+                arguments[index] = this.parameterBinders.get(index).apply(routingContext);
+
+            result = this.methodHandle.invokeExact(target, arguments);
+        } catch (Throwable throwable) {
+            routingContext.fail(throwable);
+            return;
+        }
+
+        if (this.selfResponding)
+            return;
+
+        if (!this.futureResult) {
+            this.write(routingContext, result);
+            return;
+        }
+
+        Future<?> resultFuture = (Future<?>) result;
+        if (Objects.isNull(resultFuture)) {
+            this.write(routingContext, null);
+            return;
+        }
+
+        resultFuture.setHandler(resultAsyncResult -> {
+            if (resultAsyncResult.failed())
+                routingContext.fail(resultAsyncResult.cause());
+            else this.write(routingContext, resultAsyncResult.result());
+        });
+    }
+
+    protected void write(RoutingContext routingContext, Object result) {
+        if (Objects.isNull(result)) {
+            if (!routingContext.response().ended())
+                routingContext.response().setStatusCode(HttpResponseStatus.NO_CONTENT.code()).end();
+            return;
+        }
+
+        if (this.streamResult) {
+            String accept = routingContext.request().getHeader(HttpHeaders.ACCEPT);
+            JsonStreamWriter.write(routingContext, (ReadStream<?>) result, this.resultWriter, Objects.nonNull(accept) &&
+                    accept.contains(JsonStreamWriter.APPLICATION_NDJSON));
+            return;
+        }
+
+        ResponseWriter.write(routingContext, HttpResponseStatus.OK.code(), result, this.resultWriter);
+    }
+
+    protected static Type resultType(Method method) {
+        if (!Future.class.isAssignableFrom(method.getReturnType()))
+            return method.getReturnType().equals(void.class) ? Object.class : method.getGenericReturnType();
+
+        if (!(method.getGenericReturnType() instanceof ParameterizedType))
+            return Object.class;
+
+        Type resultType = ((ParameterizedType) method.getGenericReturnType()).getActualTypeArguments()[0];
+        return (resultType instanceof Class || resultType instanceof ParameterizedType) ? resultType : Object.class;
+    }
+
+    protected static boolean isReadStream(Type type) {
+        Type rawType = type instanceof ParameterizedType ? ((ParameterizedType) type).getRawType() : type;
+        return rawType instanceof Class && ReadStream.class.isAssignableFrom((Class<?>) rawType);
+    }
+
+    protected static Type elementType(Type readStreamType) {
+        if (!(readStreamType instanceof ParameterizedType))
+            return Object.class;
+
+        Type elementType = ((ParameterizedType) readStreamType).getActualTypeArguments()[0];
+        return (elementType instanceof Class || elementType instanceof ParameterizedType) ? elementType : Object.class;
+    }
+
+    protected static Function<RoutingContext, Object> binder(Method method, Parameter parameter,
+                                                             JsonMapper jsonMapper) {
+        Class<?> type = parameter.getType();
+        if (type.equals(RoutingContext.class))
+            return routingContext -> routingContext;
+        if (type.equals(HttpServerRequest.class))
+            return RoutingContext::request;
+        if (type.equals(HttpServerResponse.class))
+            return RoutingContext::response;
+
+        PathParam pathParam = parameter.getAnnotation(PathParam.class);
+        if (Objects.nonNull(pathParam))
+            return valueBinder(pathParam.value(), type, routingContext -> routingContext.pathParam(pathParam.value()));
+
+        QueryParam queryParam = parameter.getAnnotation(QueryParam.class);
+        if (Objects.nonNull(queryParam))
+            return valueBinder(queryParam.value(), type,
+                    routingContext -> routingContext.queryParams().get(queryParam.value()));
+
+        HeaderParam headerParam = parameter.getAnnotation(HeaderParam.class);
+        if (Objects.nonNull(headerParam))
+            return valueBinder(headerParam.value(), type,
+                    routingContext -> routingContext.request().getHeader(headerParam.value()));
+
+        if (parameter.isAnnotationPresent(BodyParam.class))
+            return bodyBinder(parameter.getParameterizedType(), jsonMapper);
+
+        throw new IllegalArgumentException(String.format("Unbound parameter %s of rest handler method %s, parameters " +
+                "must be annotated with PathParam, QueryParam, HeaderParam, or BodyParam", parameter, method));
+    }
+
+    protected static Function<RoutingContext, Object> valueBinder(String name, Class<?> type,
+                                                                 Function<RoutingContext, String> valueReader) {
+        Function<String, Object> converter = converter(type);
+        return routingContext -> {
+            String value = valueReader.apply(routingContext);
+            if (Objects.isNull(value)) {
+                if (type.isPrimitive())
+                    throw new StacklessBackendException(ErrorCode.INVALID_INPUT, "Missing parameter " + name);
+                return null;
+            }
+
+            try {
+                return converter.apply(value);
+            } catch (IllegalArgumentException e) {
+                throw new StacklessBackendException(ErrorCode.INVALID_INPUT, "Invalid parameter " + name);
+            }
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected static Function<String, Object> converter(Class<?> type) {
+        if (type.equals(String.class))
+            return value -> value;
+        if (type.equals(int.class) || type.equals(Integer.class))
+            return Integer::valueOf;
+        if (type.equals(long.class) || type.equals(Long.class))
+            return Long::valueOf;
+        if (type.equals(double.class) || type.equals(Double.class))
+            return Double::valueOf;
+        if (type.equals(float.class) || type.equals(Float.class))
+            return Float::valueOf;
+        if (type.equals(short.class) || type.equals(Short.class))
+            return Short::valueOf;
+        if (type.equals(boolean.class) || type.equals(Boolean.class))
+            return MethodRestHandler::parseBoolean;
+        if (type.isEnum())
+            return value -> Enum.valueOf((Class<? extends Enum>) type, value);
+
+        throw new IllegalArgumentException("Unsupported rest handler parameter type " + type.getName());
+    }
+
+    /**
+     * Parses true or false, ignoring case, and throws an IllegalArgumentException for any other value, where
+     * Boolean.valueOf would silently read it as false.
+     */
+    protected static Boolean parseBoolean(String value) {
+        if (Boolean.TRUE.toString().equalsIgnoreCase(value))
+            return Boolean.TRUE;
+        if (Boolean.FALSE.toString().equalsIgnoreCase(value))
+            return Boolean.FALSE;
+        throw new IllegalArgumentException("Invalid boolean " + value);
+    }
+
+    protected static Function<RoutingContext, Object> bodyBinder(Type type, JsonMapper jsonMapper) {
+        if (type.equals(Buffer.class))
+            return RoutingContext::getBody;
+        if (type.equals(String.class))
+            return RoutingContext::getBodyAsString;
+        if (type.equals(JsonObject.class))
+            return RoutingContext::getBodyAsJson;
+        if (type.equals(JsonArray.class))
+            return RoutingContext::getBodyAsJsonArray;
+
+        jsonMapper.reader(type);
+        return routingContext -> {
+            Buffer body = routingContext.getBody();
+            if (Objects.isNull(body) || body.length() == 0)
+                return null;
+
+            try {
+                return jsonMapper.read(body, type);
+            } catch (Exception e) {
+                throw new StacklessBackendException(ErrorCode.INVALID_INPUT, "Invalid json body");
+            }
+        };
+    }
+}
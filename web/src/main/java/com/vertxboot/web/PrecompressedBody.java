@@ -0,0 +1,82 @@
+package com.vertxboot.web;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response payload with its gzip and deflate representations, each compressed once on its first use, and shared by
+ * all the responses sending it afterwards (see ResponseWriter.write). It is immutable, and thread safe.
+ */
+public class PrecompressedBody {
+    protected final Buffer body;
+    protected final int level;
+    protected volatile Buffer gzipBody;
+    protected volatile Buffer deflateBody;
+
+    protected PrecompressedBody(Buffer body, int level) {
+        this.body = body;
+        this.level = level;
+    }
+
+    public Buffer getBody() {
+        return this.body;
+    }
+
+    /**
+     * Returns the size of the payload and of the representations compressed so far.
+     */
+    public long size() {
+        Buffer gzipBody = this.gzipBody;
+        Buffer deflateBody = this.deflateBody;
+        return this.body.length() + (gzipBody == null ? 0 : gzipBody.length()) +
+                (deflateBody == null ? 0 : deflateBody.length());
+    }
+
+    /**
+     * Returns the representation of the given content encoding, gzip, deflate, or the payload itself for null.
+     */
+    public Buffer encoded(String encoding) {
+        if (ResponseCompression.GZIP.equals(encoding)) {
+            if (this.gzipBody == null)
+                this.gzipBody = this.compress(true);
+            return this.gzipBody;
+        }
+
+        if (ResponseCompression.DEFLATE.equals(encoding)) {
+            if (this.deflateBody == null)
+                this.deflateBody = this.compress(false);
+            return this.deflateBody;
+        }
+
+        return this.body;
+    }
+
+    protected Buffer compress(boolean gzip) {
+        ByteBuf byteBuf = Unpooled.buffer(Math.max(this.body.length() / 4, 64));
+        int level = this.level;
+        Deflater deflater = gzip ? null : new Deflater(level);
+        try (OutputStream outputStream = gzip ? new GZIPOutputStream(new ByteBufOutputStream(byteBuf)) {
+            {
+                this.def.setLevel(level);
+            }
+        } : new DeflaterOutputStream(new ByteBufOutputStream(byteBuf), deflater)) {
+            outputStream.write(this.body.getBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (deflater != null)
+                deflater.end();
+        }
+
+        return Buffer.buffer(byteBuf);
+    }
+}
@@ -0,0 +1,513 @@
+package com.vertxboot.web;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocketFrame;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes the messages of an event bus address to its subscribers, as server-sent events, or as WebSocket messages
+ * when the request asks for an upgrade. A push handler is a rest handler, loaded and routed with its interceptors like
+ * the others, and annotated with PushMapping, for example:
+ * <pre>
+ * &#64;RestHandler
+ * &#64;RestMapping(httpMethod = HttpMethod.GET, path = "/prices/events")
+ * &#64;PushMapping(address = "prices.updated", overflow = PushOverflow.CONFLATE)
+ * public class PriceEventsHandler extends PushHandler {
+ *     public static PriceEventsHandler instance() {
+ *         return new PriceEventsHandler();
+ *     }
+ * }
+ * </pre>
+ * Each message is received by a single event bus consumer per push handler class, and encoded once into a Buffer shared
+ * by the subscribers of all the http server instances. The buffer is handed to the event loop of each instance, which
+ * writes it to its own subscribers, so a broadcast costs one encoding and one task per event loop whatever the number
+ * of subscribers, but for the WebSocket text frames below. The messages published while the write queue of a subscriber
+ * is full are handled according to the overflow of the PushMapping (see PushOverflow).
+ * <p>
+ * The bodies are encoded by encode, the buffers and strings as they are, and the other bodies as json, with the
+ * JsonMapper of the server of the first subscription. The WebSocket subscribers receive the buffers as binary frames,
+ * which share the encoded payload, and the other bodies as text frames. Vertx only builds text frames from a String, so
+ * the payload is decoded once per message, but encoded again into the text frame of each WebSocket subscriber, a copy
+ * per subscriber that the binary frames and the server-sent events avoid. Once established, a subscription releases its
+ * concurrency limit, its deadline, and its place among the requests in flight (see ResponseWriter.release), and a
+ * draining http server closes it like an idle connection.
+ */
+public abstract class PushHandler extends BaseRestHandler {
+    protected static final CharSequence TEXT_EVENT_STREAM = HttpHeaders.createOptimized("text/event-stream");
+    protected static final CharSequence NO_CACHE = HttpHeaders.createOptimized("no-cache");
+    protected static final String WEBSOCKET = "websocket";
+    protected static final Buffer DATA_FIELD = Buffer.buffer("data: ");
+    protected static final Buffer HEARTBEAT = Buffer.buffer(":\n\n");
+    protected static final Buffer PING = Buffer.buffer();
+    protected static final String DROPPED_FIELD = "dropped";
+    protected static final String CONFLATED_FIELD = "conflated";
+    protected static final String DISCONNECTED_FIELD = "disconnected";
+
+    protected static final Map<Class<?>, Hub> hubMap = new ConcurrentHashMap<>();
+
+    protected final PushMapping pushMapping;
+    protected JsonMapper jsonMapper = JsonMapper.DEFAULT;
+    protected Fanout fanout;
+
+    protected PushHandler() {
+        this.pushMapping = this.getClass().getAnnotation(PushMapping.class);
+        if (Objects.isNull(this.pushMapping)) {
+            logger.fatal("Error initializing push handler due to missing PushMapping annotation");
+            throw new RuntimeException("Error initializing push handler due to missing PushMapping annotation");
+        }
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        ServerManager serverManager = ServerManager.of(routingContext);
+        if (Objects.nonNull(serverManager) && serverManager.getServerHealth().isDraining()) {
+            ResponseWriter.writeError(routingContext, ErrorCode.SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        Fanout fanout = this.fanout(routingContext);
+        HttpServerRequest request = routingContext.request();
+        if (WEBSOCKET.equalsIgnoreCase(request.getHeader(HttpHeaders.UPGRADE))) {
+            ServerWebSocket webSocket;
+            try {
+                webSocket = request.upgrade();
+            } catch (IllegalStateException e) {
+                routingContext.fail(HttpResponseStatus.BAD_REQUEST.code());
+                return;
+            }
+
+            fanout.add(new WebSocketSubscriber(fanout, webSocket));
+        } else fanout.add(new EventStreamSubscriber(fanout, routingContext.response()));
+
+        ResponseWriter.release(routingContext);
+    }
+
+    /**
+     * Encodes the body of a message, once for all the subscribers, on the event loop of the event bus consumer.
+     */
+    protected Buffer encode(Object body) throws IOException {
+        if (body instanceof Buffer)
+            return (Buffer) body;
+        if (body instanceof String)
+            return Buffer.buffer((String) body);
+        if (body instanceof JsonObject)
+            return ((JsonObject) body).toBuffer();
+        if (body instanceof JsonArray)
+            return ((JsonArray) body).toBuffer();
+
+        return ResponseWriter.encode(this.jsonMapper.writer(body.getClass()), body);
+    }
+
+    /**
+     * Returns the number of subscribers of the push handler class, across all the http server instances.
+     */
+    public int getSubscriberCount() {
+        Hub hub = hubMap.get(this.getHandlerClass());
+        return Objects.isNull(hub) ? 0 : hub.subscriberCount.get();
+    }
+
+    /**
+     * Returns the number of messages dropped, conflated, and disconnected subscribers of the push handler class, as
+     * {"dropped": ..., "conflated": ..., "disconnected": ...}, since its first subscription.
+     */
+    public JsonObject getOverflowCounts() {
+        Hub hub = hubMap.get(this.getHandlerClass());
+        return new JsonObject()
+                .put(DROPPED_FIELD, Objects.isNull(hub) ? 0L : hub.dropped.sum())
+                .put(CONFLATED_FIELD, Objects.isNull(hub) ? 0L : hub.conflated.sum())
+                .put(DISCONNECTED_FIELD, Objects.isNull(hub) ? 0L : hub.disconnected.sum());
+    }
+
+    /**
+     * Returns the fanout of the http server instance of the push handler, created on its first subscription, on the
+     * event loop of the instance, along with the JsonMapper of its server, used by encode.
+     */
+    protected Fanout fanout(RoutingContext routingContext) {
+        if (Objects.isNull(this.fanout)) {
+            Vertx vertx = routingContext.vertx();
+            this.jsonMapper = JsonMapper.of(routingContext);
+            Hub hub = hubMap.computeIfAbsent(this.getHandlerClass(), handlerClass -> new Hub(vertx, this));
+            this.fanout = new Fanout(hub, vertx.getOrCreateContext());
+            hub.add(this.fanout);
+        }
+
+        return this.fanout;
+    }
+
+    /**
+     * A message, encoded once as the payload of the WebSocket frames and once as a server-sent event.
+     */
+    protected static class Frame {
+        protected final Buffer payload;
+        protected final Buffer event;
+        protected final boolean binary;
+        protected volatile String text;
+
+        protected Frame(Buffer payload, Buffer event, boolean binary) {
+            this.payload = payload;
+            this.event = event;
+            this.binary = binary;
+        }
+
+        /**
+         * Returns the payload of a text message decoded, on the first WebSocket subscriber it is written to.
+         */
+        protected String text() {
+            String text = this.text;
+            if (Objects.isNull(text))
+                this.text = text = this.payload.toString(StandardCharsets.UTF_8);
+            return text;
+        }
+    }
+
+    /**
+     * The event bus consumer of a push handler class, shared by the fanouts of all the http server instances. The
+     * consumer is registered on the event loop of one of the fanouts, and moved to another one if its http server
+     * instance is undeployed.
+     */
+    protected static class Hub {
+        protected final Vertx vertx;
+        protected final PushHandler pushHandler;
+        protected final Class<?> handlerClass;
+        protected final PushMapping pushMapping;
+        protected final Buffer eventField;
+        protected final List<Fanout> fanouts = new CopyOnWriteArrayList<>();
+        protected final AtomicInteger subscriberCount = new AtomicInteger();
+        protected final LongAdder dropped = new LongAdder();
+        protected final LongAdder conflated = new LongAdder();
+        protected final LongAdder disconnected = new LongAdder();
+        protected MessageConsumer<Object> consumer;
+        protected Context consumerContext;
+
+        protected Hub(Vertx vertx, PushHandler pushHandler) {
+            this.vertx = vertx;
+            this.pushHandler = pushHandler;
+            this.handlerClass = pushHandler.getHandlerClass();
+            this.pushMapping = pushHandler.pushMapping;
+            this.eventField = this.pushMapping.event().isEmpty() ? null :
+                    Buffer.buffer("event: " + this.pushMapping.event() + "\n");
+        }
+
+        /**
+         * Adds the given fanout, on its event loop, and registers the consumer there if it is the first one.
+         */
+        protected synchronized void add(Fanout fanout) {
+            this.fanouts.add(fanout);
+            if (Objects.isNull(this.consumer))
+                this.register(fanout.context);
+        }
+
+        protected synchronized void remove(Fanout fanout) {
+            this.fanouts.remove(fanout);
+            if (fanout.context != this.consumerContext)
+                return;
+
+            this.consumer.unregister();
+            this.consumer = null;
+            this.consumerContext = null;
+            if (this.fanouts.isEmpty()) {
+                hubMap.remove(this.handlerClass, this);
+                return;
+            }
+
+            Fanout nextFanout = this.fanouts.get(0);
+            nextFanout.context.runOnContext(v -> {
+                synchronized (this) {
+                    if (Objects.isNull(this.consumer) && this.fanouts.contains(nextFanout))
+                        this.register(nextFanout.context);
+                }
+            });
+        }
+
+        protected void register(Context context) {
+            this.consumerContext = context;
+            this.consumer = this.vertx.eventBus().consumer(this.pushMapping.address(), this::publish);
+        }
+
+        protected void publish(Message<Object> message) {
+            if (this.subscriberCount.get() == 0 || Objects.isNull(message.body()))
+                return;
+
+            Frame frame;
+            try {
+                frame = this.frame(this.pushHandler.encode(message.body()), message.body() instanceof Buffer);
+            } catch (IOException | RuntimeException e) {
+                this.pushHandler.logger.error("PushHandler: encoding a message of " + this.pushMapping.address() +
+                        " failed", e);
+                return;
+            }
+
+            Context context = Vertx.currentContext();
+            for (Fanout fanout : this.fanouts) {
+                if (fanout.size == 0)
+                    continue;
+
+                if (fanout.context == context)
+                    fanout.publish(frame);
+                else fanout.context.runOnContext(v -> fanout.publish(frame));
+            }
+        }
+
+        /**
+         * Frames the given payload as a server-sent event, where each of its lines is a data field.
+         */
+        protected Frame frame(Buffer payload, boolean binary) {
+            int length = payload.length();
+            Buffer event = Buffer.buffer(length + 16);
+            if (Objects.nonNull(this.eventField))
+                event.appendBuffer(this.eventField);
+            event.appendBuffer(DATA_FIELD);
+
+            int start = 0;
+            for (int index = 0; index < length; index++) {
+                byte b = payload.getByte(index);
+                if (b != '\n' && b != '\r')
+                    continue;
+
+                event.appendBuffer(payload, start, index - start).appendByte((byte) '\n').appendBuffer(DATA_FIELD);
+                if (b == '\r' && index + 1 < length && payload.getByte(index + 1) == '\n')
+                    index++;
+                start = index + 1;
+            }
+
+            event.appendBuffer(payload, start, length - start).appendString("\n\n");
+            return new Frame(payload, event, binary);
+        }
+    }
+
+    /**
+     * The subscribers of a push handler class on the event loop of one http server instance, only accessed from that
+     * event loop, but for their count.
+     */
+    protected static class Fanout {
+        protected final Hub hub;
+        protected final Context context;
+        protected final List<Subscriber> subscribers = new ArrayList<>();
+        protected volatile int size;
+        protected long heartbeatTimerId = -1;
+
+        protected Fanout(Hub hub, Context context) {
+            this.hub = hub;
+            this.context = context;
+            context.addCloseHook(completionHandler -> {
+                this.close();
+                completionHandler.handle(Future.succeededFuture());
+            });
+        }
+
+        protected void add(Subscriber subscriber) {
+            subscriber.index = this.subscribers.size();
+            this.subscribers.add(subscriber);
+            this.size = this.subscribers.size();
+            this.hub.subscriberCount.incrementAndGet();
+
+            long heartbeat = this.hub.pushMapping.heartbeat();
+            if (heartbeat > 0 && this.heartbeatTimerId < 0)
+                this.heartbeatTimerId = this.context.owner().setPeriodic(heartbeat, id -> this.heartbeat());
+        }
+
+        /**
+         * Removes the given subscriber in constant time, by moving the last subscriber to its place.
+         */
+        protected void remove(Subscriber subscriber) {
+            if (subscriber.index < 0)
+                return;
+
+            Subscriber lastSubscriber = this.subscribers.remove(this.subscribers.size() - 1);
+            if (lastSubscriber != subscriber) {
+                this.subscribers.set(subscriber.index, lastSubscriber);
+                lastSubscriber.index = subscriber.index;
+            }
+
+            subscriber.index = -1;
+            this.size = this.subscribers.size();
+            this.hub.subscriberCount.decrementAndGet();
+            if (this.subscribers.isEmpty() && this.heartbeatTimerId >= 0) {
+                this.context.owner().cancelTimer(this.heartbeatTimerId);
+                this.heartbeatTimerId = -1;
+            }
+        }
+
+        /**
+         * Writes the given frame to the subscribers, from the last one, so those disconnected on the way are removed
+         * without skipping any other.
+         */
+        protected void publish(Frame frame) {
+            for (int index = this.subscribers.size() - 1; index >= 0; index--)
+                this.subscribers.get(index).publish(frame);
+        }
+
+        protected void heartbeat() {
+            for (int index = this.subscribers.size() - 1; index >= 0; index--)
+                this.subscribers.get(index).heartbeat();
+        }
+
+        protected void close() {
+            this.hub.subscriberCount.addAndGet(-this.subscribers.size());
+            this.subscribers.forEach(subscriber -> subscriber.index = -1);
+            this.subscribers.clear();
+            this.size = 0;
+            this.hub.remove(this);
+        }
+    }
+
+    protected abstract static class Subscriber {
+        protected final Fanout fanout;
+        protected int index = -1;
+        protected Frame pendingFrame;
+
+        protected Subscriber(Fanout fanout) {
+            this.fanout = fanout;
+        }
+
+        protected void publish(Frame frame) {
+            if (!this.writeQueueFull()) {
+                if (Objects.nonNull(this.pendingFrame)) {
+                    this.pendingFrame = null;
+                    this.fanout.hub.conflated.increment();
+                }
+
+                this.write(frame);
+                return;
+            }
+
+            switch (this.fanout.hub.pushMapping.overflow()) {
+                case CONFLATE:
+                    if (Objects.nonNull(this.pendingFrame))
+                        this.fanout.hub.conflated.increment();
+                    this.pendingFrame = frame;
+                    break;
+                case DISCONNECT:
+                    this.fanout.hub.disconnected.increment();
+                    this.fanout.remove(this);
+                    this.close();
+                    break;
+                default:
+                    this.fanout.hub.dropped.increment();
+            }
+        }
+
+        /**
+         * Writes the conflated frame, if any, once the write queue drains.
+         */
+        protected void drained() {
+            Frame pendingFrame = this.pendingFrame;
+            if (Objects.isNull(pendingFrame) || this.writeQueueFull() || this.index < 0)
+                return;
+
+            this.pendingFrame = null;
+            this.write(pendingFrame);
+        }
+
+        protected void heartbeat() {
+            if (!this.writeQueueFull())
+                this.writeHeartbeat();
+        }
+
+        protected abstract boolean writeQueueFull();
+
+        protected abstract void write(Frame frame);
+
+        protected abstract void writeHeartbeat();
+
+        protected abstract void close();
+    }
+
+    protected static class EventStreamSubscriber extends Subscriber {
+        protected final HttpServerResponse response;
+
+        protected EventStreamSubscriber(Fanout fanout, HttpServerResponse response) {
+            super(fanout);
+            this.response = response;
+            response.setChunked(true)
+                    .setWriteQueueMaxSize(fanout.hub.pushMapping.writeQueueMaxSize())
+                    .putHeader(HttpHeaders.CONTENT_TYPE, TEXT_EVENT_STREAM)
+                    .putHeader(HttpHeaders.CACHE_CONTROL, NO_CACHE)
+                    .putHeader(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY)
+                    .closeHandler(v -> this.fanout.remove(this))
+                    .drainHandler(v -> this.drained())
+                    .write(HEARTBEAT);
+        }
+
+        @Override
+        protected boolean writeQueueFull() {
+            return this.response.writeQueueFull();
+        }
+
+        @Override
+        protected void write(Frame frame) {
+            this.response.write(frame.event);
+        }
+
+        @Override
+        protected void writeHeartbeat() {
+            this.response.write(HEARTBEAT);
+        }
+
+        @Override
+        protected void close() {
+            this.response.close();
+        }
+    }
+
+    protected static class WebSocketSubscriber extends Subscriber {
+        protected final ServerWebSocket webSocket;
+
+        protected WebSocketSubscriber(Fanout fanout, ServerWebSocket webSocket) {
+            super(fanout);
+            this.webSocket = webSocket;
+            webSocket.setWriteQueueMaxSize(fanout.hub.pushMapping.writeQueueMaxSize())
+                    .closeHandler(v -> this.fanout.remove(this))
+                    .drainHandler(v -> this.drained());
+        }
+
+        @Override
+        protected boolean writeQueueFull() {
+            return this.webSocket.writeQueueFull();
+        }
+
+        /**
+         * Writes the shared payload as a binary frame for the buffer bodies, since they may not be UTF-8, and as a
+         * text frame otherwise. A frame is built per subscriber, since writing it consumes its content, and a text
+         * frame encodes the decoded text again, see the class doc.
+         */
+        @Override
+        protected void write(Frame frame) {
+            this.webSocket.writeFrame(frame.binary ? WebSocketFrame.binaryFrame(frame.payload, true) :
+                    WebSocketFrame.textFrame(frame.text(), true));
+        }
+
+        @Override
+        protected void writeHeartbeat() {
+            this.webSocket.writePing(PING);
+        }
+
+        @Override
+        protected void close() {
+            this.webSocket.close();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.vertxboot.web;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation bridges an event bus address to the subscribers of a PushHandler, and it complements RestMapping on
+ * the push handler class.
+ * <p>
+ * The member fields are:
+ * String address(): the event bus address whose messages are pushed to the subscribers, mandatory.
+ * String event(): the event name of the server-sent events, defaults to an empty string, which sends unnamed events,
+ * dispatched to the onmessage handler of the EventSource.
+ * PushOverflow overflow(): what happens to the messages published while the write queue of a subscriber is full,
+ * DROP, CONFLATE, or DISCONNECT, defaults to DROP.
+ * int writeQueueMaxSize(): the size in bytes of the write queue of each subscriber, defaults to 65536.
+ * long heartbeat(): the interval in milliseconds of the comments, or pings, sent to keep the idle connections open
+ * through the proxies, defaults to 15000, where 0 disables them.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface PushMapping {
+    String address();
+    String event() default "";
+    PushOverflow overflow() default PushOverflow.DROP;
+    int writeQueueMaxSize() default 65536;
+    long heartbeat() default 15000;
+}
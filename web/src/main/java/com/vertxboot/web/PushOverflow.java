@@ -0,0 +1,21 @@
+package com.vertxboot.web;
+
+public enum PushOverflow {
+    /**
+     * The messages published while the write queue of the subscriber is full are dropped, and the subscriber receives
+     * the next messages once its write queue drains.
+     */
+    DROP,
+
+    /**
+     * Only the last message published while the write queue of the subscriber is full is kept, and written once its
+     * write queue drains, which suits the messages carrying the latest state of something, such as a price.
+     */
+    CONFLATE,
+
+    /**
+     * The subscriber is disconnected as soon as a message is published while its write queue is full, so it can
+     * reconnect and resynchronize.
+     */
+    DISCONNECT
+}
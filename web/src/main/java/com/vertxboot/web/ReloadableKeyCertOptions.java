@@ -0,0 +1,218 @@
+package com.vertxboot.web;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.net.KeyCertOptions;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.KeyManagerFactorySpi;
+import javax.net.ssl.ManagerFactoryParameters;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509KeyManager;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Key material that can be replaced while the http servers are running. The SSL context of the servers is built once,
+ * from a key manager that delegates every handshake to the key manager of the latest key material, so the handshakes
+ * started after a reload present the new certificate, while the established connections are left as they are.
+ * <p>
+ * The key material is loaded from the given vertx options (PemKeyCertOptions, PfxOptions, or JksOptions), and loaded
+ * again from them by reload. Copies of these options share the same key material. The aliases are prefixed with the
+ * generation of their key material, so each handshake reads its certificate and key from a single key material (see
+ * ReloadingKeyManager).
+ */
+public class ReloadableKeyCertOptions implements KeyCertOptions {
+    protected final KeyCertOptions source;
+    protected final ReloadingKeyManager reloadingKeyManager;
+
+    protected ReloadableKeyCertOptions(KeyCertOptions source, X509KeyManager keyManager) {
+        this.source = source;
+        this.reloadingKeyManager = new ReloadingKeyManager(keyManager);
+    }
+
+    /**
+     * Loads the key material of the given options, this is blocking.
+     */
+    public static ReloadableKeyCertOptions load(Vertx vertx, KeyCertOptions source) throws Exception {
+        return new ReloadableKeyCertOptions(source, keyManager(vertx, source));
+    }
+
+    /**
+     * Loads the key material again from the options, and uses it for the next handshakes, this is blocking. The
+     * current key material is kept if the new one cannot be loaded.
+     */
+    public void reload(Vertx vertx) throws Exception {
+        this.reloadingKeyManager.reload(keyManager(vertx, this.source));
+    }
+
+    public KeyCertOptions getSource() {
+        return this.source;
+    }
+
+    @Override
+    public KeyCertOptions copy() {
+        return this;
+    }
+
+    /**
+     * @deprecated vertx copies the options with copy(), which shares the key material as well.
+     */
+    @Deprecated
+    @Override
+    public KeyCertOptions clone() {
+        return this.copy();
+    }
+
+    @Override
+    public KeyManagerFactory getKeyManagerFactory(Vertx vertx) {
+        return new ReloadingKeyManagerFactory(this.reloadingKeyManager);
+    }
+
+    protected static X509KeyManager keyManager(Vertx vertx, KeyCertOptions source) throws Exception {
+        for (KeyManager keyManager : source.getKeyManagerFactory(vertx).getKeyManagers())
+            if (keyManager instanceof X509KeyManager)
+                return (X509KeyManager) keyManager;
+
+        throw new IllegalArgumentException("No X509 key manager in the key material");
+    }
+
+    protected static class ReloadingKeyManagerFactory extends KeyManagerFactory {
+        protected ReloadingKeyManagerFactory(ReloadingKeyManager reloadingKeyManager) {
+            super(new KeyManagerFactorySpi() {
+                @Override
+                protected void engineInit(KeyStore keyStore, char[] password) {
+                }
+
+                @Override
+                protected void engineInit(ManagerFactoryParameters managerFactoryParameters) {
+                }
+
+                @Override
+                protected KeyManager[] engineGetKeyManagers() {
+                    return new KeyManager[]{reloadingKeyManager};
+                }
+            }, null, ReloadingKeyManager.class.getSimpleName());
+        }
+    }
+
+    /**
+     * Delegates to the key manager of the latest key material. The aliases it returns are prefixed with the generation
+     * of the key material they were chosen from, so the certificate chain and the private key of a handshake are read
+     * from the same key material as its alias, even if a reload happens in between. The key managers of the current
+     * and the previous generations are kept, for the handshakes started before the last reload.
+     */
+    protected static class ReloadingKeyManager extends X509ExtendedKeyManager {
+        protected static final char GENERATION_SEPARATOR = ':';
+
+        protected final Map<Long, X509KeyManager> keyManagerMap = new ConcurrentHashMap<>();
+        protected volatile long generation;
+
+        protected ReloadingKeyManager(X509KeyManager delegate) {
+            this.generation = 0;
+            this.keyManagerMap.put(this.generation, delegate);
+        }
+
+        protected synchronized void reload(X509KeyManager delegate) {
+            long generation = this.generation + 1;
+            this.keyManagerMap.put(generation, delegate);
+            this.keyManagerMap.remove(generation - 2);
+            this.generation = generation;
+        }
+
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) {
+            long generation = this.generation;
+            return aliases(generation, this.keyManagerMap.get(generation).getClientAliases(keyType, issuers));
+        }
+
+        @Override
+        public String chooseClientAlias(String[] keyTypes, Principal[] issuers, Socket socket) {
+            long generation = this.generation;
+            return alias(generation, this.keyManagerMap.get(generation).chooseClientAlias(keyTypes, issuers, socket));
+        }
+
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) {
+            long generation = this.generation;
+            return aliases(generation, this.keyManagerMap.get(generation).getServerAliases(keyType, issuers));
+        }
+
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+            long generation = this.generation;
+            return alias(generation, this.keyManagerMap.get(generation).chooseServerAlias(keyType, issuers, socket));
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            X509KeyManager keyManager = this.keyManager(alias);
+            return Objects.isNull(keyManager) ? null : keyManager.getCertificateChain(unprefixed(alias));
+        }
+
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            X509KeyManager keyManager = this.keyManager(alias);
+            return Objects.isNull(keyManager) ? null : keyManager.getPrivateKey(unprefixed(alias));
+        }
+
+        @Override
+        public String chooseEngineClientAlias(String[] keyTypes, Principal[] issuers, SSLEngine engine) {
+            long generation = this.generation;
+            X509KeyManager delegate = this.keyManagerMap.get(generation);
+            return alias(generation, delegate instanceof X509ExtendedKeyManager ?
+                    ((X509ExtendedKeyManager) delegate).chooseEngineClientAlias(keyTypes, issuers, engine) :
+                    delegate.chooseClientAlias(keyTypes, issuers, null));
+        }
+
+        @Override
+        public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+            long generation = this.generation;
+            X509KeyManager delegate = this.keyManagerMap.get(generation);
+            return alias(generation, delegate instanceof X509ExtendedKeyManager ?
+                    ((X509ExtendedKeyManager) delegate).chooseEngineServerAlias(keyType, issuers, engine) :
+                    delegate.chooseServerAlias(keyType, issuers, null));
+        }
+
+        /**
+         * Returns the key manager of the generation of the given alias, or null if the alias is not prefixed, or its
+         * generation is no longer kept.
+         */
+        protected X509KeyManager keyManager(String alias) {
+            int separatorIndex = Objects.isNull(alias) ? -1 : alias.indexOf(GENERATION_SEPARATOR);
+            if (separatorIndex <= 0)
+                return null;
+
+            try {
+                return this.keyManagerMap.get(Long.parseLong(alias.substring(0, separatorIndex)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        protected static String alias(long generation, String alias) {
+            return Objects.isNull(alias) ? null : generation + String.valueOf(GENERATION_SEPARATOR) + alias;
+        }
+
+        protected static String[] aliases(long generation, String[] aliases) {
+            if (Objects.isNull(aliases))
+                return null;
+
+            String[] prefixedAliases = new String[aliases.length];
+            for (int index = 0; index < aliases.length; index++)
+                prefixedAliases[index] = alias(generation, aliases[index]);
+            return prefixedAliases;
+        }
+
+        protected static String unprefixed(String alias) {
+            return alias.substring(alias.indexOf(GENERATION_SEPARATOR) + 1);
+        }
+    }
+}
@@ -1,32 +1,57 @@
 package com.vertxboot.web;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.ext.web.RoutingContext;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class RequestBodyValidationUtil {
+    private static final Map<Class<?>, Boolean> constrainedClassMap = new ConcurrentHashMap<>();
 
     private RequestBodyValidationUtil() {
     }
 
     public static <T> T validate(RoutingContext routingContext, Validator validator, TypeReference<T> responseBodyType) {
+        return RequestBodyValidationUtil.validate(routingContext, JsonMapper.of(routingContext), validator,
+                responseBodyType);
+    }
+
+    /**
+     * Parses the buffered request body with the cached object reader of the given type, and validates it. Whether a
+     * class has any constraints is cached per class, so unconstrained bodies skip the validator entirely, assuming a
+     * single validator configuration per application.
+     */
+    public static <T> T validate(RoutingContext routingContext, JsonMapper jsonMapper, Validator validator,
+                                 TypeReference<T> responseBodyType) {
+        Buffer body = routingContext.getBody();
+        if (Objects.isNull(body) || body.length() == 0)
+            throw new StacklessBackendException(ErrorCode.INVALID_INPUT, "Missing json body");
+
         T responseBody;
         try {
-            responseBody = new ObjectMapper().readValue(
-                    routingContext.getBodyAsString(), responseBodyType);
+            responseBody = jsonMapper.read(body, responseBodyType);
         } catch (IOException e) {
-            throw new BackendException(ErrorCode.INVALID_INPUT, "Invalid json body");
+            throw new StacklessBackendException(ErrorCode.INVALID_INPUT, "Invalid json body");
         }
 
+        if (Objects.isNull(responseBody))
+            throw new StacklessBackendException(ErrorCode.INVALID_INPUT, "Missing json body");
+
+        if (!constrainedClassMap.computeIfAbsent(responseBody.getClass(),
+                responseBodyClass -> validator.getConstraintsForClass(responseBodyClass).isBeanConstrained()))
+            return responseBody;
+
         Set<ConstraintViolation<T>> constraintViolations = validator.validate(responseBody);
         if (!constraintViolations.isEmpty()) {
-            throw new BackendException(ErrorCode.INVALID_INPUT,
+            throw new StacklessBackendException(ErrorCode.INVALID_INPUT,
                     constraintViolations.stream().map(ConstraintViolation::getMessage).collect(Collectors.toList()));
         }
 
@@ -0,0 +1,23 @@
+package com.vertxboot.web;
+
+/**
+ * The priority class of the requests of a rest handler, set by RestMapping. Each class may only use its share of the
+ * concurrency limit, so the lower classes are shed first as the load grows, and the waiting requests of the higher
+ * classes are admitted first once the in flight requests complete (see ConcurrencyLimiter).
+ */
+public enum RequestPriority {
+    CRITICAL(1.0),
+    HIGH(0.9),
+    NORMAL(0.8),
+    LOW(0.6);
+
+    private final double share;
+
+    RequestPriority(double share) {
+        this.share = share;
+    }
+
+    public double getShare() {
+        return this.share;
+    }
+}
@@ -0,0 +1,281 @@
+package com.vertxboot.web;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The bounded in memory cache of the responses of the Cacheable rest handlers of a ServerManager, shared by all its
+ * http server instances, and configured by the cache block of the server config, for example:
+ * <pre>
+ * "server": {
+ *   "cache": {"maxSize": 67108864, "invalidationAddress": "vertxboot.responseCache.invalidate"}
+ * }
+ * </pre>
+ * where maxSize is the total size of the cached responses in bytes, beyond which the least recently used responses are
+ * evicted. The responses are keyed by their path, query, and the varyBy headers of their rest handler, and are stored
+ * as PrecompressedBody, so a cached response is compressed at most once per content encoding, with the headers set by
+ * the rest handler, except the ones computed per response (see ResponseCacheHandler). The size of a response includes
+ * its headers and its representations compressed so far, and grows as they are compressed (see resize).
+ * <p>
+ * The responses of a path are invalidated locally with invalidate, or on all the nodes of a clustered vertx with
+ * publishInvalidation, which publishes the path on the invalidation address, where an empty message invalidates all the
+ * responses.
+ */
+public class ResponseCache {
+    protected static final String CACHE_CONFIG_KEY = "cache";
+    protected static final String MAX_SIZE_CONFIG_KEY = "maxSize";
+    protected static final String INVALIDATION_ADDRESS_CONFIG_KEY = "invalidationAddress";
+    protected static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+    protected static final String DEFAULT_INVALIDATION_ADDRESS = "vertxboot.responseCache.invalidate";
+    protected static final int ENTRY_OVERHEAD = 128;
+    protected static final String ETAG_DIGEST_ALGORITHM = "SHA-256";
+    protected static final int ETAG_LENGTH = 16;
+
+    protected static Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+
+    protected final Vertx vertx;
+    protected final long maxSize;
+    protected final String invalidationAddress;
+    protected final LinkedHashMap<String, Entry> entryMap = new LinkedHashMap<>(16, 0.75f, true);
+    protected long size;
+    protected MessageConsumer<String> invalidationConsumer;
+
+    protected ResponseCache(Vertx vertx, long maxSize, String invalidationAddress) {
+        this.vertx = vertx;
+        this.maxSize = maxSize;
+        this.invalidationAddress = invalidationAddress;
+    }
+
+    /**
+     * Creates the response cache of the given server config, listening to the invalidations published on its
+     * invalidation address until it is closed.
+     */
+    public static ResponseCache load(Vertx vertx, JsonObject serverConfig) {
+        JsonObject cacheConfig = serverConfig.getJsonObject(CACHE_CONFIG_KEY, new JsonObject());
+        ResponseCache responseCache = new ResponseCache(vertx,
+                cacheConfig.getLong(MAX_SIZE_CONFIG_KEY, DEFAULT_MAX_SIZE),
+                cacheConfig.getString(INVALIDATION_ADDRESS_CONFIG_KEY, DEFAULT_INVALIDATION_ADDRESS));
+
+        responseCache.invalidationConsumer = vertx.eventBus().consumer(responseCache.invalidationAddress, message -> {
+            if (Objects.isNull(message.body()) || message.body().isEmpty())
+                responseCache.invalidateAll();
+            else responseCache.invalidate(message.body());
+        });
+
+        logger.info("ResponseCache: caching up to " + responseCache.maxSize + " bytes of responses, invalidated on " +
+                responseCache.invalidationAddress);
+        return responseCache;
+    }
+
+    /**
+     * Stops listening to the invalidations, and drops the cached responses, once the server is stopped.
+     */
+    public void close() {
+        if (Objects.nonNull(this.invalidationConsumer))
+            this.invalidationConsumer.unregister();
+        this.invalidateAll();
+    }
+
+    /**
+     * Returns the cached response of the given key, or null if it is not cached or expired.
+     */
+    public synchronized Entry get(String key) {
+        Entry entry = this.entryMap.get(key);
+        if (Objects.isNull(entry) || entry.expiresAt > System.currentTimeMillis())
+            return entry;
+
+        this.remove(key);
+        return null;
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        this.remove(key);
+        if (entry.size > this.maxSize)
+            return;
+
+        this.entryMap.put(key, entry);
+        this.size += entry.size;
+        this.evict();
+    }
+
+    /**
+     * Accounts for the representations of the given cached response compressed since it was cached or last resized,
+     * evicting the least recently used responses if the cache is now too large.
+     */
+    public void resize(String key, Entry entry) {
+        long size = entry.computeSize();
+        if (size == entry.size)
+            return;
+
+        synchronized (this) {
+            if (this.entryMap.get(key) != entry)
+                return;
+
+            this.size += size - entry.size;
+            entry.size = size;
+            this.evict();
+        }
+    }
+
+    /**
+     * Invalidates the cached responses of the given path, with all their queries and varyBy headers, on this node.
+     */
+    public synchronized int invalidate(String path) {
+        int count = 0;
+        Iterator<Entry> iterator = this.entryMap.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.path.equals(path))
+                continue;
+
+            this.size -= entry.size;
+            iterator.remove();
+            count++;
+        }
+
+        return count;
+    }
+
+    public synchronized int invalidateAll() {
+        int count = this.entryMap.size();
+        this.entryMap.clear();
+        this.size = 0;
+        return count;
+    }
+
+    /**
+     * Invalidates the cached responses of the given path on all the nodes receiving the invalidation address, or all
+     * the cached responses if the path is null.
+     */
+    public void publishInvalidation(String path) {
+        if (Objects.isNull(this.vertx)) {
+            if (Objects.isNull(path))
+                this.invalidateAll();
+            else this.invalidate(path);
+            return;
+        }
+
+        this.vertx.eventBus().publish(this.invalidationAddress, Objects.isNull(path) ? "" : path);
+    }
+
+    public synchronized long getSize() {
+        return this.size;
+    }
+
+    public synchronized int getEntryCount() {
+        return this.entryMap.size();
+    }
+
+    protected void evict() {
+        Iterator<Entry> iterator = this.entryMap.values().iterator();
+        while (this.size > this.maxSize && iterator.hasNext()) {
+            this.size -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    protected void remove(String key) {
+        Entry entry = this.entryMap.remove(key);
+        if (Objects.nonNull(entry))
+            this.size -= entry.size;
+    }
+
+    /**
+     * Returns the cache key of the given request, made of its path, query, and the given headers.
+     */
+    public static String key(RoutingContext routingContext, String[] varyBy) {
+        StringBuilder key = new StringBuilder(routingContext.request().path());
+        String query = routingContext.request().query();
+        if (Objects.nonNull(query))
+            key.append('?').append(query);
+
+        for (String header : varyBy) {
+            String value = routingContext.request().getHeader(header);
+            key.append('\n').append(header).append(':').append(Objects.isNull(value) ? "" : value);
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Returns the strong entity tag of the given body, derived from its digest.
+     */
+    public static String etag(Buffer body) {
+        try {
+            byte[] digest = MessageDigest.getInstance(ETAG_DIGEST_ALGORITHM).digest(body.getBytes());
+            return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    Arrays.copyOf(digest, ETAG_LENGTH)) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Entry {
+        protected final String path;
+        protected final int statusCode;
+        protected final PrecompressedBody body;
+        protected final MultiMap headers;
+        protected final String etag;
+        protected final long expiresAt;
+        protected final long headersSize;
+        protected volatile long size;
+
+        public Entry(String path, int statusCode, PrecompressedBody body, String etag, long ttl) {
+            this(path, statusCode, body, MultiMap.caseInsensitiveMultiMap(), etag, ttl);
+        }
+
+        public Entry(String path, int statusCode, PrecompressedBody body, MultiMap headers, String etag, long ttl) {
+            this.path = path;
+            this.statusCode = statusCode;
+            this.body = body;
+            this.headers = headers;
+            this.etag = etag;
+            this.expiresAt = System.currentTimeMillis() + ttl;
+
+            long headersSize = 0;
+            for (Map.Entry<String, String> header : headers)
+                headersSize += header.getKey().length() + header.getValue().length();
+            this.headersSize = headersSize;
+            this.size = this.computeSize();
+        }
+
+        protected long computeSize() {
+            return this.body.size() + this.headersSize + ENTRY_OVERHEAD;
+        }
+
+        public String getPath() {
+            return this.path;
+        }
+
+        public int getStatusCode() {
+            return this.statusCode;
+        }
+
+        public PrecompressedBody getBody() {
+            return this.body;
+        }
+
+        public MultiMap getHeaders() {
+            return this.headers;
+        }
+
+        public String getEtag() {
+            return this.etag;
+        }
+    }
+}
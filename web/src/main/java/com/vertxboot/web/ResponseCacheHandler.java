@@ -0,0 +1,156 @@
+package com.vertxboot.web;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Serves the responses of a Cacheable rest handler from the ResponseCache, as the last handler before the rest handler
+ * itself, so the interceptors still run for the cached responses. A request whose If-None-Match matches the ETag of the
+ * response is answered with 304, without invoking the rest handler if the response is cached.
+ * <p>
+ * On a cache miss, the key of the request is kept in the routing context, and the 200 response written by the
+ * ResponseWriter is captured into the cache (see capture), with the headers set so far, except ETag, Vary,
+ * Content-Length, Transfer-Encoding and Set-Cookie, which are computed per response or private to a client. On a hit,
+ * the captured headers are replayed, unless the interceptors already set a header of the same name.
+ */
+public class ResponseCacheHandler implements Handler<RoutingContext> {
+    protected static final String CAPTURE_CONTEXT_KEY = "vertxboot.responseCache.capture";
+    protected static final Set<String> UNCACHED_HEADERS = new HashSet<>(Arrays.asList(
+            HttpHeaderNames.ETAG.toString(), HttpHeaderNames.VARY.toString(), HttpHeaderNames.CONTENT_LENGTH.toString(),
+            HttpHeaderNames.TRANSFER_ENCODING.toString(), HttpHeaderNames.SET_COOKIE.toString()));
+
+    protected final ResponseCache responseCache;
+    protected final long ttl;
+    protected final String[] varyBy;
+    protected final String vary;
+
+    protected ResponseCacheHandler(ResponseCache responseCache, Cacheable cacheable) {
+        this.responseCache = responseCache;
+        this.ttl = cacheable.ttl();
+        this.varyBy = cacheable.varyBy();
+        this.vary = String.join(", ", this.varyBy);
+    }
+
+    /**
+     * Returns the cache handler of the given rest handler, caching into the given response cache, or null if it is not
+     * Cacheable or there is no response cache.
+     */
+    public static ResponseCacheHandler create(ResponseCache responseCache, BaseRestHandler baseRestHandler) {
+        Cacheable cacheable = baseRestHandler.getHandlerAnnotation(Cacheable.class);
+        if (Objects.isNull(cacheable) || Objects.isNull(responseCache))
+            return null;
+
+        return new ResponseCacheHandler(responseCache, cacheable);
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        HttpMethod httpMethod = routingContext.request().method();
+        if (httpMethod != HttpMethod.GET && httpMethod != HttpMethod.HEAD) {
+            routingContext.next();
+            return;
+        }
+
+        if (this.varyBy.length > 0)
+            routingContext.response().headers().add(HttpHeaderNames.VARY, this.vary);
+
+        String key = ResponseCache.key(routingContext, this.varyBy);
+        ResponseCache.Entry entry = this.responseCache.get(key);
+        if (Objects.isNull(entry)) {
+            routingContext.put(CAPTURE_CONTEXT_KEY, new Capture(this.responseCache, key, this.ttl));
+            routingContext.next();
+            return;
+        }
+
+        if (notModified(routingContext, entry.getEtag()))
+            return;
+
+        HttpServerResponse response = routingContext.response();
+        for (String name : entry.getHeaders().names())
+            if (!response.headers().contains(name))
+                response.headers().add(name, entry.getHeaders().getAll(name));
+        response.putHeader(HttpHeaders.ETAG, entry.getEtag());
+        ResponseWriter.write(routingContext, entry.getStatusCode(), entry.getBody());
+        this.responseCache.resize(key, entry);
+    }
+
+    public static boolean isCapturing(RoutingContext routingContext) {
+        return Objects.nonNull(routingContext.get(CAPTURE_CONTEXT_KEY));
+    }
+
+    /**
+     * Caches the given 200 response of a request missing the cache, and tags it with its ETag. Returns true if the
+     * response is already answered with 304, because the ETag matches the If-None-Match of the request.
+     */
+    public static boolean capture(RoutingContext routingContext, int statusCode, PrecompressedBody body) {
+        Capture capture = routingContext.remove(CAPTURE_CONTEXT_KEY);
+        if (Objects.isNull(capture) || statusCode != HttpResponseStatus.OK.code())
+            return false;
+
+        String etag = ResponseCache.etag(body.getBody());
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+        for (Map.Entry<String, String> header : routingContext.response().headers())
+            if (!UNCACHED_HEADERS.contains(header.getKey().toLowerCase()))
+                headers.add(header.getKey(), header.getValue());
+        capture.responseCache.put(capture.key, new ResponseCache.Entry(routingContext.request().path(), statusCode,
+                body, headers, etag, capture.ttl));
+        if (notModified(routingContext, etag))
+            return true;
+
+        routingContext.response().putHeader(HttpHeaders.ETAG, etag);
+        return false;
+    }
+
+    protected static boolean notModified(RoutingContext routingContext, String etag) {
+        String ifNoneMatch = routingContext.request().getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (Objects.isNull(ifNoneMatch) || !matches(ifNoneMatch, etag))
+            return false;
+
+        HttpServerResponse response = routingContext.response();
+        response.setStatusCode(HttpResponseStatus.NOT_MODIFIED.code())
+                .putHeader(HttpHeaders.ETAG, etag)
+                .end();
+        return true;
+    }
+
+    /**
+     * Matches the given If-None-Match against the given ETag, with the weak comparison required for If-None-Match.
+     */
+    protected static boolean matches(String ifNoneMatch, String etag) {
+        for (String element : ifNoneMatch.split(",")) {
+            String tag = element.trim();
+            if (tag.equals("*"))
+                return true;
+            if (tag.startsWith("W/"))
+                tag = tag.substring(2);
+            if (tag.equals(etag))
+                return true;
+        }
+
+        return false;
+    }
+
+    protected static class Capture {
+        protected final ResponseCache responseCache;
+        protected final String key;
+        protected final long ttl;
+
+        protected Capture(ResponseCache responseCache, String key, long ttl) {
+            this.responseCache = responseCache;
+            this.key = key;
+            this.ttl = ttl;
+        }
+    }
+}
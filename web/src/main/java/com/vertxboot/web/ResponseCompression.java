@@ -0,0 +1,227 @@
+package com.vertxboot.web;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * The response compression of the http servers, configured by the compression block of the server config, for example:
+ * <pre>
+ * "server": {
+ *   "compression": {"enabled": true, "level": 6, "minSize": 1024, "cacheMaxSize": 16777216}
+ * }
+ * </pre>
+ * Responses are compressed by vertx with gzip or deflate, as negotiated with the Accept-Encoding of the request. The
+ * responses written by the ResponseWriter that are smaller than minSize are sent as they are, as well as all the
+ * responses of the rest handlers whose RestMapping sets compress to false.
+ * <p>
+ * Static or cacheable payloads can be compressed once, either as a PrecompressedBody held by the application, or through
+ * the cache of the precompressed bodies (see ResponseWriter.writeCacheable), and then the compressed representation is
+ * sent as it is, without compressing the payload again on every request. The cached bodies are keyed by an identity
+ * supplied by the caller, for example the path and version of a resource, or a digest computed once, so a lookup costs
+ * no more than the key, and cacheMaxSize is the total size in bytes of the payloads and their representations
+ * compressed so far, beyond which the least recently used bodies are evicted.
+ */
+public class ResponseCompression {
+    protected static final String COMPRESSION_CONFIG_KEY = "compression";
+    protected static final String ENABLED_CONFIG_KEY = "enabled";
+    protected static final String LEVEL_CONFIG_KEY = "level";
+    protected static final String MIN_SIZE_CONFIG_KEY = "minSize";
+    protected static final String CACHE_MAX_SIZE_CONFIG_KEY = "cacheMaxSize";
+    protected static final int DEFAULT_LEVEL = 6;
+    protected static final int DEFAULT_MIN_SIZE = 1024;
+    protected static final long DEFAULT_CACHE_MAX_SIZE = 16 * 1024 * 1024;
+    protected static final String GZIP = "gzip";
+    protected static final String DEFLATE = "deflate";
+    protected static final CharSequence IDENTITY = HttpHeaders.createOptimized("identity");
+
+    protected static Logger logger = LoggerFactory.getLogger(ResponseCompression.class);
+    protected static final ResponseCompression DISABLED = new ResponseCompression(false, DEFAULT_LEVEL,
+            DEFAULT_MIN_SIZE, 0L);
+
+    protected final boolean enabled;
+    protected final int level;
+    protected final int minSize;
+    protected final long cacheMaxSize;
+    protected final LinkedHashMap<String, CachedBody> cachedBodyMap = new LinkedHashMap<>(16, 0.75f, true);
+    protected long cacheSize;
+
+    protected ResponseCompression(boolean enabled, int level, int minSize, long cacheMaxSize) {
+        this.enabled = enabled;
+        this.level = level;
+        this.minSize = minSize;
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    /**
+     * Creates the response compression of a ServerManager from the given server config.
+     */
+    public static ResponseCompression load(JsonObject serverConfig) {
+        JsonObject compressionConfig = serverConfig.getJsonObject(COMPRESSION_CONFIG_KEY, new JsonObject());
+        ResponseCompression responseCompression = new ResponseCompression(
+                compressionConfig.getBoolean(ENABLED_CONFIG_KEY, false),
+                compressionConfig.getInteger(LEVEL_CONFIG_KEY, DEFAULT_LEVEL),
+                compressionConfig.getInteger(MIN_SIZE_CONFIG_KEY, DEFAULT_MIN_SIZE),
+                compressionConfig.getLong(CACHE_MAX_SIZE_CONFIG_KEY, DEFAULT_CACHE_MAX_SIZE));
+
+        if (responseCompression.enabled)
+            logger.info("ResponseCompression: compressing responses of at least " + responseCompression.minSize +
+                    " bytes with level " + responseCompression.level);
+        return responseCompression;
+    }
+
+    /**
+     * Returns the response compression of the server of the given request, or a disabled one if the request is not
+     * served by a ServerManager.
+     */
+    public static ResponseCompression of(RoutingContext routingContext) {
+        ServerManager serverManager = ServerManager.of(routingContext);
+        return Objects.isNull(serverManager) ? DISABLED : serverManager.getResponseCompression();
+    }
+
+    /**
+     * The first handler of the rest handlers opting out of compression.
+     */
+    public static void disable(RoutingContext routingContext) {
+        routingContext.response().putHeader(HttpHeaders.CONTENT_ENCODING, IDENTITY);
+        routingContext.next();
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public int getLevel() {
+        return this.level;
+    }
+
+    public int getMinSize() {
+        return this.minSize;
+    }
+
+    public HttpServerOptions apply(HttpServerOptions httpServerOptions) {
+        return httpServerOptions
+                .setCompressionSupported(this.enabled)
+                .setCompressionLevel(this.level);
+    }
+
+    /**
+     * Keeps vertx from compressing the given body of the given response if it is smaller than the minimum size.
+     */
+    public void prepare(HttpServerResponse response, Buffer body) {
+        if (this.enabled && body.length() < this.minSize && !response.headers().contains(HttpHeaders.CONTENT_ENCODING))
+            response.putHeader(HttpHeaders.CONTENT_ENCODING, IDENTITY);
+    }
+
+    public PrecompressedBody precompress(Buffer body) {
+        return new PrecompressedBody(body, this.level);
+    }
+
+    /**
+     * Returns the precompressed body cached with the given key, or caches the given payload with it if there is none.
+     * The key must change whenever the payload does, as the payload of a cached key is not compared.
+     */
+    public synchronized PrecompressedBody cached(String key, Buffer body) {
+        CachedBody cachedBody = this.cachedBodyMap.get(key);
+        if (Objects.nonNull(cachedBody))
+            return cachedBody.precompressedBody;
+
+        PrecompressedBody precompressedBody = this.precompress(body);
+        if (precompressedBody.size() <= this.cacheMaxSize) {
+            cachedBody = new CachedBody(precompressedBody);
+            this.cachedBodyMap.put(key, cachedBody);
+            this.cacheSize += cachedBody.size;
+            this.evict();
+        }
+
+        return precompressedBody;
+    }
+
+    /**
+     * Accounts for the representations of the given cached body compressed since it was cached or last resized,
+     * evicting the least recently used bodies if the cache is now too large.
+     */
+    public synchronized void resize(String key, PrecompressedBody precompressedBody) {
+        CachedBody cachedBody = this.cachedBodyMap.get(key);
+        if (Objects.isNull(cachedBody) || cachedBody.precompressedBody != precompressedBody)
+            return;
+
+        long size = precompressedBody.size();
+        this.cacheSize += size - cachedBody.size;
+        cachedBody.size = size;
+        this.evict();
+    }
+
+    public synchronized long getCacheSize() {
+        return this.cacheSize;
+    }
+
+    protected void evict() {
+        Iterator<CachedBody> iterator = this.cachedBodyMap.values().iterator();
+        while (this.cacheSize > this.cacheMaxSize && iterator.hasNext()) {
+            this.cacheSize -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Returns the content encoding of the given Accept-Encoding, gzip, deflate, or null for the identity, where gzip
+     * is preferred over deflate if both of them are acceptable with the same quality.
+     */
+    public static String negotiate(String acceptEncoding) {
+        if (Objects.isNull(acceptEncoding))
+            return null;
+
+        String encoding = null;
+        float encodingQuality = 0;
+        for (String element : acceptEncoding.split(",")) {
+            int separatorIndex = element.indexOf(';');
+            String coding = (separatorIndex < 0 ? element : element.substring(0, separatorIndex)).trim();
+            float quality = separatorIndex < 0 ? 1 : quality(element.substring(separatorIndex + 1));
+            if (quality <= 0)
+                continue;
+
+            if ((coding.equalsIgnoreCase(GZIP) || coding.equals("*")) &&
+                    (quality > encodingQuality || (quality == encodingQuality && !GZIP.equals(encoding)))) {
+                encoding = GZIP;
+                encodingQuality = quality;
+            } else if (coding.equalsIgnoreCase(DEFLATE) && quality > encodingQuality) {
+                encoding = DEFLATE;
+                encodingQuality = quality;
+            }
+        }
+
+        return encoding;
+    }
+
+    protected static float quality(String parameter) {
+        int equalsIndex = parameter.indexOf('=');
+        if (equalsIndex < 0 || !parameter.substring(0, equalsIndex).trim().equalsIgnoreCase("q"))
+            return 1;
+
+        try {
+            return Float.parseFloat(parameter.substring(equalsIndex + 1).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    protected static class CachedBody {
+        protected final PrecompressedBody precompressedBody;
+        protected long size;
+
+        protected CachedBody(PrecompressedBody precompressedBody) {
+            this.precompressedBody = precompressedBody;
+            this.size = precompressedBody.size();
+        }
+    }
+}
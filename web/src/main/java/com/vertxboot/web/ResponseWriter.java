@@ -0,0 +1,229 @@
+package com.vertxboot.web;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes json responses with the cached ObjectWriters of the JsonMapper of the server. The body is encoded directly
+ * into the response buffer, through the thread local buffers jackson recycles, without intermediate strings or byte
+ * arrays.
+ * <p>
+ * Errors are written as {"errorCode": "...", "details": [...]} with the status code of their ErrorCode, and the bodies
+ * of the errors without details are encoded once, and shared by all the responses. BackendErrorHandler writes the
+ * failures of the rest handlers this way.
+ */
+public class ResponseWriter {
+    protected static final CharSequence APPLICATION_JSON = HttpHeaders.createOptimized("application/json");
+    protected static final String ERROR_CODE_FIELD = "errorCode";
+    protected static final String DETAILS_FIELD = "details";
+    protected static final int INITIAL_BUFFER_SIZE = 256;
+    protected static final String END_HANDLERS_CONTEXT_KEY = "vertxboot.endHandlers";
+
+    protected static final Map<ErrorCode, Buffer> errorBodyMap = new EnumMap<>(ErrorCode.class);
+    protected static final Map<Integer, Buffer> statusBodyMap = new ConcurrentHashMap<>();
+
+    static {
+        for (ErrorCode errorCode : ErrorCode.values())
+            errorBodyMap.put(errorCode, encodeError(errorCode, null));
+    }
+
+    private ResponseWriter() {
+    }
+
+    public static void write(RoutingContext routingContext, Object body) {
+        ResponseWriter.write(routingContext, HttpResponseStatus.OK.code(), body);
+    }
+
+    public static void write(RoutingContext routingContext, int statusCode, Object body) {
+        ResponseWriter.write(routingContext, statusCode, body,
+                JsonMapper.of(routingContext).writer(Objects.isNull(body) ? Object.class : body.getClass()));
+    }
+
+    public static void write(RoutingContext routingContext, int statusCode, Object body, Type bodyType) {
+        ResponseWriter.write(routingContext, statusCode, body, JsonMapper.of(routingContext).writer(bodyType));
+    }
+
+    /**
+     * Writes the given body with the given object writer, or fails the routing context if it cannot be encoded.
+     */
+    public static void write(RoutingContext routingContext, int statusCode, Object body, ObjectWriter objectWriter) {
+        Buffer buffer;
+        try {
+            buffer = encode(objectWriter, body);
+        } catch (IOException e) {
+            routingContext.fail(e);
+            return;
+        }
+
+        if (ResponseCacheHandler.isCapturing(routingContext)) {
+            ResponseWriter.write(routingContext, statusCode,
+                    ResponseCompression.of(routingContext).precompress(buffer));
+            return;
+        }
+
+        end(routingContext, statusCode, buffer);
+    }
+
+    public static Buffer encode(ObjectWriter objectWriter, Object body) throws IOException {
+        ByteBuf byteBuf = Unpooled.buffer(INITIAL_BUFFER_SIZE);
+        try (OutputStream outputStream = new ByteBufOutputStream(byteBuf)) {
+            objectWriter.writeValue(outputStream, body);
+        }
+
+        return Buffer.buffer(byteBuf);
+    }
+
+    /**
+     * Writes the representation of the given precompressed body negotiated with the Accept-Encoding of the request,
+     * unless compression is disabled, or the body is smaller than the minimum size, or the handler opted out of it. Over
+     * HTTP/2, vertx compresses the response itself, so the payload is written as it is. The response of a Cacheable
+     * rest handler is captured into the ResponseCache, once its representation is compressed, so the cache accounts for
+     * it.
+     */
+    public static void write(RoutingContext routingContext, int statusCode, PrecompressedBody precompressedBody) {
+        HttpServerRequest request = routingContext.request();
+        HttpServerResponse response = routingContext.response();
+        ResponseCompression responseCompression = ResponseCompression.of(routingContext);
+        boolean compressed = responseCompression.isEnabled() && request.version() != HttpVersion.HTTP_2 &&
+                precompressedBody.getBody().length() >= responseCompression.getMinSize() &&
+                !response.headers().contains(HttpHeaders.CONTENT_ENCODING);
+        String encoding = compressed ? ResponseCompression.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING)) :
+                null;
+        Buffer payload = precompressedBody.encoded(encoding);
+
+        if (ResponseCacheHandler.capture(routingContext, statusCode, precompressedBody))
+            return;
+
+        if (compressed) {
+            response.headers().add(HttpHeaderNames.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (Objects.nonNull(encoding))
+                response.putHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+            else response.putHeader(HttpHeaders.CONTENT_ENCODING, ResponseCompression.IDENTITY);
+        }
+        end(routingContext, statusCode, payload);
+    }
+
+    /**
+     * Writes the given payload, which is expected to be sent again as it is, through the cache of the precompressed
+     * bodies of the ResponseCompression, where it is identified by the given key (see ResponseCompression.cached).
+     */
+    public static void writeCacheable(RoutingContext routingContext, int statusCode, String key, Buffer body) {
+        ResponseCompression responseCompression = ResponseCompression.of(routingContext);
+        PrecompressedBody precompressedBody = responseCompression.cached(key, body);
+        ResponseWriter.write(routingContext, statusCode, precompressedBody);
+        responseCompression.resize(key, precompressedBody);
+    }
+
+    public static void writeError(RoutingContext routingContext, ErrorCode errorCode) {
+        end(routingContext, errorCode.getStatusCode(), errorBodyMap.get(errorCode));
+    }
+
+    /**
+     * Writes an error without an ErrorCode, for failures carrying only a status code, where the error code is the
+     * reason phrase of the status, for example REQUEST_ENTITY_TOO_LARGE for 413.
+     */
+    public static void writeError(RoutingContext routingContext, int statusCode) {
+        end(routingContext, statusCode, statusBodyMap.computeIfAbsent(statusCode, key -> new JsonObject()
+                .put(ERROR_CODE_FIELD, HttpResponseStatus.valueOf(key).reasonPhrase().toUpperCase().replace(' ', '_'))
+                .put(DETAILS_FIELD, new JsonArray())
+                .toBuffer()));
+    }
+
+    public static void writeError(RoutingContext routingContext, BackendException backendException) {
+        ErrorCode errorCode = backendException.getErrorCode();
+        List<String> details = backendException.getDetails();
+        Buffer body = (Objects.isNull(details) || details.isEmpty()) ? errorBodyMap.get(errorCode) :
+                encodeError(errorCode, details);
+        end(routingContext, errorCode.getStatusCode(), body);
+    }
+
+    /**
+     * Adds a handler called once the response is ended, or its connection is closed before that, as the response has
+     * a single end handler to be shared by the framework handlers, for example the ConcurrencyLimitHandler. The
+     * handlers are also called by the body end handler, as a response sent with sendFile does not call its end handler.
+     */
+    public static void addEndHandler(RoutingContext routingContext, Handler<Void> endHandler) {
+        EndHandlers endHandlers = routingContext.get(END_HANDLERS_CONTEXT_KEY);
+        if (Objects.isNull(endHandlers)) {
+            endHandlers = new EndHandlers();
+            routingContext.put(END_HANDLERS_CONTEXT_KEY, endHandlers);
+            routingContext.response().endHandler(endHandlers);
+            routingContext.addBodyEndHandler(endHandlers);
+        }
+
+        endHandlers.add(endHandler);
+    }
+
+    /**
+     * Calls the end handlers of a long lived response, such as a push stream, once it is established, so it does not
+     * hold its concurrency limit, its deadline, and its place among the requests in flight for as long as it is open.
+     * The end handlers added afterwards are called right away.
+     */
+    public static void release(RoutingContext routingContext) {
+        EndHandlers endHandlers = routingContext.get(END_HANDLERS_CONTEXT_KEY);
+        if (Objects.nonNull(endHandlers))
+            endHandlers.handle(null);
+    }
+
+    protected static void end(RoutingContext routingContext, int statusCode, Buffer body) {
+        HttpServerResponse response = routingContext.response();
+        if (response.ended() || response.closed())
+            return;
+
+        ResponseCompression.of(routingContext).prepare(response, body);
+        response.setStatusCode(statusCode)
+                .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+                .end(body);
+    }
+
+    protected static Buffer encodeError(ErrorCode errorCode, List<String> details) {
+        return new JsonObject()
+                .put(ERROR_CODE_FIELD, errorCode.name())
+                .put(DETAILS_FIELD, Objects.isNull(details) ? new JsonArray() : new JsonArray(details))
+                .toBuffer();
+    }
+
+    protected static class EndHandlers implements Handler<Void> {
+        protected final List<Handler<Void>> handlers = new ArrayList<>(2);
+        protected boolean ended;
+
+        protected void add(Handler<Void> handler) {
+            if (this.ended)
+                handler.handle(null);
+            else this.handlers.add(handler);
+        }
+
+        @Override
+        public void handle(Void v) {
+            if (this.ended)
+                return;
+
+            this.ended = true;
+            for (int index = 0; index < this.handlers.size(); index++)
+                this.handlers.get(index).handle(null);
+        }
+    }
+}
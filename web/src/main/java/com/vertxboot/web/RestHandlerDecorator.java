@@ -0,0 +1,15 @@
+package com.vertxboot.web;
+
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * A hook to wrap the handler routed for a rest handler or an interceptor, used by optional modules to change how the
+ * handler is executed. Decorators are listed in InterceptorConfig.decorators(), and applied in order, so the last
+ * decorator is the outermost one. A decorator that does not apply to the given rest handler must return the given
+ * handler as is.
+ */
+@FunctionalInterface
+public interface RestHandlerDecorator {
+    Handler<RoutingContext> decorate(BaseRestHandler baseRestHandler, Handler<RoutingContext> handler);
+}
@@ -1,19 +1,33 @@
 package com.vertxboot.web;
 
 import com.vertxboot.beans.BeanFactory;
+import com.vertxboot.core.EventLoopProbe;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.Route;
 import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.api.validation.HTTPRequestValidationHandler;
 import org.reflections.Reflections;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
 public class RestLoader {
 
     protected static final String STATIC_FACTORY_METHOD_NAME = "instance";
+    protected static final String ROUTE_DISPATCHER_CONFIG_KEY = "routeDispatcher";
+    protected static final String RADIX_ROUTE_DISPATCHER = "radix";
 
     protected static Logger logger = LoggerFactory.getLogger(RestLoader.class);
 
@@ -21,41 +35,123 @@ public class RestLoader {
     }
 
     public static void load(Router router, InterceptorConfig interceptorConfig) {
+        RestLoader.load(null, router, new JsonObject(), null, interceptorConfig, null);
+    }
+
+    /**
+     * Routes the rest handlers, both the classes annotated with RestHandler and the methods annotated with RestMapping
+     * (see MethodRestHandler), and the error handlers on the given router. The handler chain of each rest handler
+     * starts with its RouteMetricsHandler, DeadlineHandler and ConcurrencyLimitHandler if they are enabled, and
+     * ResponseCompression.disable if it opts out of compression, then its BodyPolicyHandler, followed by the
+     * interceptors that apply to it (see InterceptorChain), and only the interceptors that cannot be compiled are routed
+     * separately, before the body is read. The ResponseCacheHandler of a Cacheable rest handler comes last, right before
+     * the rest handler, which is invoked within its deadline (see DeadlineHandler.scope), on its BlockingPool if it is
+     * annotated with Blocking. If server.routeDispatcher is set to "radix", the rest handlers chains are compiled into a
+     * RouteDispatcher, and only the handlers it cannot compile are routed on the router itself, behind the dispatcher.
+     * The route metrics, concurrency limiters, response cache and blocking pools are the ones of the given server
+     * manager, and the rest handler methods read and write their json with its JsonMapper. The rest handlers are routed
+     * without them if there is no server manager, with a JsonMapper of the jackson defaults. The metrics scrape and the
+     * static files of the server manager are routed before the rest handlers, behind the interceptors of their paths.
+     */
+    public static void load(Vertx vertx, Router router, JsonObject serverConfig, ServerManager serverManager,
+                            InterceptorConfig interceptorConfig, EventLoopProbe eventLoopProbe) {
         logger.info("RestLoader: loading rest handlers start...");
+        RouteMetrics.Registry routeMetrics = null;
+        ConcurrencyLimitHandler.Registry concurrencyLimiters = null;
+        ResponseCache responseCache = null;
+        JsonMapper jsonMapper = Objects.isNull(serverManager) ? JsonMapper.DEFAULT : serverManager.getJsonMapper();
+        if (Objects.nonNull(serverManager)) {
+            routeMetrics = serverManager.getRouteMetrics();
+            concurrencyLimiters = serverManager.getConcurrencyLimiters();
+            responseCache = serverManager.getResponseCache();
+        } else logger.warn("RestLoader: loading without a ServerManager, the rest handlers are routed without their " +
+                "route metrics, concurrency limiters, response cache and blocking pools");
 
-        if (Objects.nonNull(interceptorConfig)) {
-            logger.info("RestLoader: loading interceptors");
-            interceptorConfig.interceptors().forEach(baseInterceptor ->
-                    baseInterceptor.getHttpMethods().forEach(httpMethod -> router.route(httpMethod,
-                            baseInterceptor.getPath()).handler(baseInterceptor)));
-        }
+        InterceptorChain interceptorChain = InterceptorChain.compile(Objects.isNull(interceptorConfig) ?
+                Collections.emptyList() : interceptorConfig.interceptors(), baseInterceptor ->
+                decorate(serverManager, interceptorConfig, eventLoopProbe, baseInterceptor));
+        logger.info("RestLoader: loading interceptors that cannot be compiled into the rest handlers chains");
+        interceptorChain.getUncompiled().forEach(baseInterceptor -> {
+            Handler<RoutingContext> interceptorHandler = InterceptorChain.skipping(baseInterceptor,
+                    decorate(serverManager, interceptorConfig, eventLoopProbe, baseInterceptor));
+            baseInterceptor.getHttpMethods().forEach(httpMethod -> router.route(httpMethod,
+                    baseInterceptor.getPath()).handler(interceptorHandler));
+        });
+        if (Objects.nonNull(serverManager))
+            loadServerRoutes(router, serverManager, interceptorChain);
 
         logger.info("RestLoader: scanning for rest handlers");
         Reflections reflections = BeanFactory.instance().getSync(Reflections.class);
         Set<Class<?>> set = reflections.getTypesAnnotatedWith(RestHandler.class);
+        Set<Method> methodSet = reflections.getMethodsAnnotatedWith(RestMapping.class);
 
+        List<BaseRestHandler> baseRestHandlers = new ArrayList<>();
         logger.info("RestLoader: loading rest handlers");
         set.forEach(restHandlerClass -> {
             try {
                 logger.info("RestLoader: loading " + restHandlerClass.getName());
-                BaseRestHandler baseRestHandler = (BaseRestHandler) restHandlerClass
-                        .getMethod(STATIC_FACTORY_METHOD_NAME).invoke(null);
-
-                HTTPRequestValidationHandler httpRequestValidationHandler = baseRestHandler.getHttpRequestValidationHandler();
-                if (httpRequestValidationHandler != null) {
-                    logger.info("RestLoader: routing validation handler for " + restHandlerClass.getName());
-                    baseRestHandler.getHttpMethods().forEach(httpMethod -> router.route(httpMethod,
-                            baseRestHandler.getPath()).handler(httpRequestValidationHandler));
-                }
-
-                logger.info("RestLoader: routing handler for " + restHandlerClass.getName());
-                baseRestHandler.getHttpMethods().forEach(httpMethod -> router.route(httpMethod,
-                        baseRestHandler.getPath()).handler(baseRestHandler));
+                baseRestHandlers.add((BaseRestHandler) restHandlerClass.getMethod(STATIC_FACTORY_METHOD_NAME).invoke(null));
             } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
                 logger.error("RestLoader: loading failed: " + restHandlerClass.getName(), e);
             }
         });
 
+        logger.info("RestLoader: loading rest handler methods");
+        methodSet.forEach(method -> {
+            try {
+                logger.info("RestLoader: loading " + method);
+                baseRestHandlers.add(MethodRestHandler.create(method, jsonMapper));
+            } catch (IllegalAccessException | RuntimeException e) {
+                logger.error("RestLoader: loading failed: " + method, e);
+            }
+        });
+
+        RouteDispatcher routeDispatcher = null;
+        if (Objects.nonNull(vertx) && RADIX_ROUTE_DISPATCHER.equals(serverConfig.getString(ROUTE_DISPATCHER_CONFIG_KEY))) {
+            logger.info("RestLoader: compiling rest handlers into the radix route dispatcher");
+            routeDispatcher = new RouteDispatcher(vertx);
+            router.route("/*").handler(routeDispatcher);
+        }
+
+        for (BaseRestHandler baseRestHandler : baseRestHandlers) {
+            List<Handler<RoutingContext>> handlers = new ArrayList<>();
+            RouteMetricsHandler routeMetricsHandler = RouteMetricsHandler.create(routeMetrics, baseRestHandler);
+            if (Objects.nonNull(routeMetricsHandler))
+                handlers.add(routeMetricsHandler);
+            DeadlineHandler deadlineHandler = DeadlineHandler.create(serverConfig, baseRestHandler);
+            if (Objects.nonNull(deadlineHandler))
+                handlers.add(deadlineHandler);
+            ConcurrencyLimitHandler concurrencyLimitHandler = ConcurrencyLimitHandler.create(concurrencyLimiters,
+                    baseRestHandler);
+            if (Objects.nonNull(concurrencyLimitHandler))
+                handlers.add(concurrencyLimitHandler);
+            if (!baseRestHandler.getRestMapping().compress())
+                handlers.add(ResponseCompression::disable);
+            BodyPolicyHandler bodyPolicyHandler = BodyPolicyHandler.create(serverConfig, baseRestHandler);
+            if (Objects.nonNull(bodyPolicyHandler))
+                handlers.add(bodyPolicyHandler);
+            handlers.addAll(interceptorChain.handlersFor(baseRestHandler));
+            HTTPRequestValidationHandler httpRequestValidationHandler = baseRestHandler.getHttpRequestValidationHandler();
+            if (httpRequestValidationHandler != null)
+                handlers.add(httpRequestValidationHandler);
+            ResponseCacheHandler responseCacheHandler = ResponseCacheHandler.create(responseCache, baseRestHandler);
+            if (Objects.nonNull(responseCacheHandler))
+                handlers.add(responseCacheHandler);
+            Handler<RoutingContext> restHandler = decorate(serverManager, interceptorConfig, eventLoopProbe,
+                    baseRestHandler);
+            handlers.add(Objects.nonNull(deadlineHandler) ? DeadlineHandler.scope(restHandler) : restHandler);
+
+            if (Objects.nonNull(routeDispatcher) && compile(routeDispatcher, baseRestHandler, handlers))
+                continue;
+
+            logger.info("RestLoader: routing handler chain of " + handlers.size() + " handlers for " +
+                    baseRestHandler.getHandlerClass().getName() + " path: " + baseRestHandler.getPath());
+            baseRestHandler.getHttpMethods().forEach(httpMethod -> {
+                Route route = router.route(httpMethod, baseRestHandler.getPath());
+                handlers.forEach(route::handler);
+            });
+        }
+
         if (Objects.nonNull(interceptorConfig)) {
             logger.info("RestLoader: loading error handlers");
             interceptorConfig.errorHandlers().forEach(baseInterceptor ->
@@ -63,6 +159,58 @@ public class RestLoader {
                             baseInterceptor.getPath()).failureHandler(baseInterceptor)));
         }
 
+        if (Objects.nonNull(routeDispatcher))
+            logger.info("RestLoader: compiled " + routeDispatcher.getRouteCount() + " rest handlers into the radix " +
+                    "route dispatcher");
+
         logger.info("RestLoader: loading rest handlers done");
     }
+
+    protected static boolean compile(RouteDispatcher routeDispatcher, BaseRestHandler baseRestHandler,
+                                     List<Handler<RoutingContext>> handlers) {
+        boolean compiled = routeDispatcher.add(baseRestHandler.getHttpMethods(), baseRestHandler.getPath(), handlers);
+
+        if (compiled)
+            logger.info("RestLoader: compiled handler for " + baseRestHandler.getHandlerClass().getName());
+        else logger.info("RestLoader: path " + baseRestHandler.getPath() + " of " +
+                baseRestHandler.getHandlerClass().getName() + " cannot be compiled, routing it on the router");
+        return compiled;
+    }
+
+    /**
+     * Routes the metrics scrape and the static files of the given server manager, behind the compiled interceptors that
+     * apply to their paths, as for the rest handlers.
+     */
+    protected static void loadServerRoutes(Router router, ServerManager serverManager,
+                                           InterceptorChain interceptorChain) {
+        RouteMetrics.Registry routeMetrics = serverManager.getRouteMetrics();
+        if (routeMetrics.isExposed()) {
+            Route route = router.get(routeMetrics.getPath());
+            interceptorChain.handlersFor(EnumSet.of(HttpMethod.GET), routeMetrics.getPath()).forEach(route::handler);
+            route.handler(routingContext -> routeMetrics.scrape(routingContext, serverManager));
+        }
+
+        for (StaticFileHandler staticFileHandler : serverManager.getStaticFileHandlers()) {
+            Route route = router.route(staticFileHandler.getMountPath());
+            interceptorChain.handlersFor(EnumSet.of(HttpMethod.GET, HttpMethod.HEAD), staticFileHandler.getMountPath())
+                    .forEach(route::handler);
+            route.handler(staticFileHandler);
+        }
+    }
+
+    protected static Handler<RoutingContext> decorate(ServerManager serverManager, InterceptorConfig interceptorConfig,
+                                                      EventLoopProbe eventLoopProbe, BaseRestHandler baseRestHandler) {
+        Handler<RoutingContext> handler = baseRestHandler;
+        if (Objects.nonNull(interceptorConfig))
+            for (RestHandlerDecorator restHandlerDecorator : interceptorConfig.decorators())
+                handler = restHandlerDecorator.decorate(baseRestHandler, handler);
+
+        if (!(baseRestHandler instanceof BaseInterceptor))
+            handler = BlockingPool.dispatch(serverManager, baseRestHandler, handler);
+
+        if (Objects.isNull(eventLoopProbe))
+            return handler;
+
+        return eventLoopProbe.attribute(baseRestHandler.getHandlerClass(), handler);
+    }
 }
@@ -9,11 +9,16 @@ import java.lang.annotation.Target;
 
 /**
  * This annotation represents RestMapping data to be used by the base rest handler and a dynamic loader of rest handlers.
+ * It is placed either on a rest handler class, or on a static or bean method handling the requests directly (see
+ * MethodRestHandler).
  * <p>
  * The member fields are:
  * HttpMethod httpMethod()
  * HttpMethod[] httpMethods()
  * String path()
+ * boolean compress()
+ * RequestPriority priority()
+ * long timeout()
  * <p>
  * The annotation specifies three fields, an httpMethod, an array of httpMethods, and a path. The existence of two fields
  * regarding the http method is to enable the client code to specify only one http method through the httpMethod field,
@@ -27,6 +32,14 @@ import java.lang.annotation.Target;
  * The default value of httpMethod is HttpMethod.OTHER.
  * The default value of httpMethods is an empty array.
  * The path has no default value as it is mandatory.
+ * The default value of compress is true, where false opts the responses of the handler out of the response compression
+ * configured in server.compression (see ResponseCompression).
+ * The default value of priority is RequestPriority.NORMAL, which decides the share of the concurrency limit available
+ * to the handler, and its order among the waiting requests (see ConcurrencyLimitHandler).
+ * The default value of timeout is -1, which means the default timeout of server.deadline, where a timeout in
+ * milliseconds sets the deadline of the requests of the handler, and 0 disables it (see DeadlineHandler). A handler
+ * with a timeout should write its response through the ResponseWriter, which ignores the responses written after the
+ * deadline, or check response().ended() before ending the response itself.
  * <p>
  * IMPORTANT NOTE #1: HttpMethod.OTHER is used as a placeholder for a null value, used to keep the httpMethod field of
  * the annotation optional. Accordingly, if the httpMethod field has a value of HttpMethod.OTHER, it is ignored by the
@@ -42,9 +55,12 @@ import java.lang.annotation.Target;
  * handler will be registered to the router on ALL HTTP methods.
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target(ElementType.TYPE)
+@Target({ElementType.TYPE, ElementType.METHOD})
 public @interface RestMapping {
     HttpMethod httpMethod() default HttpMethod.OTHER;
     HttpMethod[] httpMethods() default {};
     String path();
+    boolean compress() default true;
+    RequestPriority priority() default RequestPriority.NORMAL;
+    long timeout() default -1;
 }
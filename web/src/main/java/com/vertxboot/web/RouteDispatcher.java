@@ -0,0 +1,300 @@
+package com.vertxboot.web;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A precompiled alternative to the sequential route matching of the vertx router. The rest handlers paths are split
+ * into segments and compiled into one segment radix tree per HTTP method, where every node has static children looked
+ * up by segment, at most one path parameter child, and at most one trailing wildcard route. A request is matched in a
+ * single pass over its path segments, preferring static segments over path parameters over wildcards, and only
+ * backtracking when a more specific branch has no route for the rest of the path.
+ * <p>
+ * Each compiled route owns a tiny router with a single path-less route holding its handlers, so handlers calling
+ * RoutingContext.next() behave exactly as with the vertx router, and requests matching no compiled route are passed
+ * to the next route of the main router. Paths that cannot be represented in the tree (patterns inside a segment, or
+ * wildcards not preceded by a slash, or path parameters named differently than those of the compiled routes at the same
+ * position) are rejected by add(), so the caller routes them on the main router instead.
+ * <p>
+ * The path parameters are percent-decoded like those of the vertx router, where '+' stays a plus sign, and a request
+ * with a malformed escape in a path parameter fails with BAD_REQUEST.
+ */
+public class RouteDispatcher implements Handler<RoutingContext> {
+    protected static final String PATH_SEPARATOR = "/";
+    protected static final String PARAM_PREFIX = ":";
+    protected static final String WILDCARD = "*";
+
+    protected static Logger logger = LoggerFactory.getLogger(RouteDispatcher.class);
+
+    protected final Vertx vertx;
+    protected final Map<HttpMethod, Node> rootNodeMap;
+    protected int routeCount;
+
+    public RouteDispatcher(Vertx vertx) {
+        this.vertx = vertx;
+        this.rootNodeMap = new EnumMap<>(HttpMethod.class);
+        this.routeCount = 0;
+    }
+
+    public static boolean isCompilable(String path) {
+        if (!path.startsWith(PATH_SEPARATOR))
+            return false;
+
+        List<String> segments = split(path);
+        for (int index = 0; index < segments.size(); index++) {
+            String segment = segments.get(index);
+            if (segment.contains(WILDCARD) && (!segment.equals(WILDCARD) || (index != segments.size() - 1)))
+                return false;
+            if (segment.indexOf(':') > 0 || (segment.startsWith(PARAM_PREFIX) && segment.length() == 1))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Compiles the given handlers, in order, for the given methods and path. Returns false, without compiling anything,
+     * if the path is not compilable, if a route is already compiled for one of the methods and the same path, or if a
+     * path parameter is named differently than the path parameter of a compiled route at the same position.
+     */
+    public boolean add(Set<HttpMethod> httpMethods, String path, List<Handler<RoutingContext>> handlers) {
+        if (!isCompilable(path))
+            return false;
+
+        List<String> segments = split(path);
+        for (HttpMethod httpMethod : httpMethods) {
+            Node node = this.rootNodeMap.get(httpMethod);
+            if (Objects.nonNull(node) && Objects.nonNull(node.find(segments, 0).route))
+                return false;
+            if (Objects.nonNull(node) && node.conflicts(segments, 0)) {
+                logger.warn("RouteDispatcher: a path parameter of " + path + " is named differently than the path " +
+                        "parameter of a compiled route at the same position");
+                return false;
+            }
+        }
+
+        Router routeRouter = Router.router(this.vertx);
+        io.vertx.ext.web.Route route = routeRouter.route();
+        for (Handler<RoutingContext> handler : handlers)
+            route.handler(handler);
+
+        CompiledRoute compiledRoute = new CompiledRoute(path, routeRouter);
+        httpMethods.forEach(httpMethod -> this.rootNodeMap.computeIfAbsent(httpMethod, key -> new Node())
+                .insert(segments, 0, compiledRoute));
+        this.routeCount++;
+        return true;
+    }
+
+    public int getRouteCount() {
+        return this.routeCount;
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        Node rootNode = this.rootNodeMap.get(routingContext.request().method());
+        if (Objects.isNull(rootNode)) {
+            routingContext.next();
+            return;
+        }
+
+        String[] pathSegments = splitRequestPath(routingContext.normalisedPath());
+        Match match = new Match(pathSegments);
+        if (!rootNode.match(pathSegments, 0, match)) {
+            routingContext.next();
+            return;
+        }
+
+        for (int index = 0; index < match.paramCount; index++) {
+            String paramValue = decodePathParam(match.paramValues[index]);
+            if (Objects.isNull(paramValue)) {
+                routingContext.fail(HttpResponseStatus.BAD_REQUEST.code());
+                return;
+            }
+
+            if (!routingContext.request().params().contains(match.paramNames[index]))
+                routingContext.request().params().add(match.paramNames[index], paramValue);
+            routingContext.pathParams().put(match.paramNames[index], paramValue);
+        }
+
+        match.route.router.handleContext(routingContext);
+    }
+
+    /**
+     * Returns the given path parameter percent-decoded, keeping '+' as is, since it only means a space in a query, or
+     * null if it has a malformed escape.
+     */
+    protected static String decodePathParam(String value) {
+        if (value.indexOf('%') < 0)
+            return value;
+
+        try {
+            return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    protected static List<String> split(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split(PATH_SEPARATOR))
+            if (!segment.isEmpty())
+                segments.add(segment);
+        return segments;
+    }
+
+    protected static String[] splitRequestPath(String path) {
+        int segmentCount = 0;
+        int length = path.length();
+        for (int index = 0; index < length; index++)
+            if ((path.charAt(index) != '/') && ((index == 0) || (path.charAt(index - 1) == '/')))
+                segmentCount++;
+
+        String[] segments = new String[segmentCount];
+        int segmentIndex = 0;
+        int segmentStart = -1;
+        for (int index = 0; index <= length; index++) {
+            boolean separator = (index == length) || (path.charAt(index) == '/');
+            if (separator && segmentStart >= 0) {
+                segments[segmentIndex++] = path.substring(segmentStart, index);
+                segmentStart = -1;
+            } else if (!separator && segmentStart < 0) {
+                segmentStart = index;
+            }
+        }
+
+        return segments;
+    }
+
+    protected static class CompiledRoute {
+        protected final String path;
+        protected final Router router;
+
+        protected CompiledRoute(String path, Router router) {
+            this.path = path;
+            this.router = router;
+        }
+    }
+
+    protected static class Match {
+        protected final String[] paramNames;
+        protected final String[] paramValues;
+        protected int paramCount;
+        protected CompiledRoute route;
+
+        protected Match(String[] pathSegments) {
+            this.paramNames = new String[pathSegments.length];
+            this.paramValues = new String[pathSegments.length];
+            this.paramCount = 0;
+        }
+    }
+
+    protected static class Node {
+        protected final Map<String, Node> staticChildren = new HashMap<>();
+        protected Node paramChild;
+        protected String paramName;
+        protected CompiledRoute route;
+        protected CompiledRoute wildcardRoute;
+
+        protected void insert(List<String> segments, int index, CompiledRoute compiledRoute) {
+            if (index == segments.size()) {
+                this.route = compiledRoute;
+                return;
+            }
+
+            String segment = segments.get(index);
+            if (segment.equals(WILDCARD)) {
+                this.wildcardRoute = compiledRoute;
+            } else if (segment.startsWith(PARAM_PREFIX)) {
+                if (Objects.isNull(this.paramChild)) {
+                    this.paramChild = new Node();
+                    this.paramName = segment.substring(1);
+                }
+                this.paramChild.insert(segments, index + 1, compiledRoute);
+            } else {
+                this.staticChildren.computeIfAbsent(segment, key -> new Node()).insert(segments, index + 1, compiledRoute);
+            }
+        }
+
+        /**
+         * Returns whether a path parameter of the given segments is named differently than the path parameter already
+         * inserted at the same position.
+         */
+        protected boolean conflicts(List<String> segments, int index) {
+            if (index == segments.size())
+                return false;
+
+            String segment = segments.get(index);
+            if (segment.equals(WILDCARD))
+                return false;
+            if (segment.startsWith(PARAM_PREFIX)) {
+                if (Objects.isNull(this.paramChild))
+                    return false;
+                return !this.paramName.equals(segment.substring(1)) || this.paramChild.conflicts(segments, index + 1);
+            }
+            Node child = this.staticChildren.get(segment);
+            return Objects.nonNull(child) && child.conflicts(segments, index + 1);
+        }
+
+        protected Node find(List<String> segments, int index) {
+            if (index == segments.size())
+                return this;
+
+            String segment = segments.get(index);
+            if (segment.equals(WILDCARD))
+                return Objects.isNull(this.wildcardRoute) ? new Node() : this.wildcardNode();
+            Node child = segment.startsWith(PARAM_PREFIX) ? this.paramChild : this.staticChildren.get(segment);
+            return Objects.isNull(child) ? new Node() : child.find(segments, index + 1);
+        }
+
+        protected Node wildcardNode() {
+            Node node = new Node();
+            node.route = this.wildcardRoute;
+            return node;
+        }
+
+        protected boolean match(String[] pathSegments, int index, Match match) {
+            if (index == pathSegments.length) {
+                match.route = Objects.nonNull(this.route) ? this.route : this.wildcardRoute;
+                return Objects.nonNull(match.route);
+            }
+
+            Node staticChild = this.staticChildren.get(pathSegments[index]);
+            if (Objects.nonNull(staticChild) && staticChild.match(pathSegments, index + 1, match))
+                return true;
+
+            if (Objects.nonNull(this.paramChild)) {
+                int paramCount = match.paramCount;
+                match.paramNames[paramCount] = this.paramName;
+                match.paramValues[paramCount] = pathSegments[index];
+                match.paramCount = paramCount + 1;
+                if (this.paramChild.match(pathSegments, index + 1, match))
+                    return true;
+                match.paramCount = paramCount;
+            }
+
+            if (Objects.nonNull(this.wildcardRoute)) {
+                match.route = this.wildcardRoute;
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
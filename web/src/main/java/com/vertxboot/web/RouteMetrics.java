@@ -0,0 +1,266 @@
+package com.vertxboot.web;
+
+import com.vertxboot.commons.metrics.Histogram;
+import com.vertxboot.commons.metrics.StripedHistogram;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * The metrics of a rest handler class, recorded by its RouteMetricsHandler, and shared by all the http server instances
+ * of a ServerManager, which keeps them in its Registry: a latency histogram per status code, the in flight requests,
+ * and the request and response bytes. They are enabled by the metrics block of the server config, for example:
+ * <pre>
+ * "server": {
+ *   "metrics": {"enabled": true, "exposed": true, "path": "/metrics"}
+ * }
+ * </pre>
+ * where exposed, false by default, routes the Prometheus text format scrape (see scrape) on the given path of every
+ * http server instance, along with the concurrency limiters gauges if the limiter is enabled, and the metrics of the
+ * blocking pools. The scrape is routed behind the interceptors of its path, like a rest handler (see RestLoader).
+ * <p>
+ * The histograms are striped (see StripedHistogram), so recording is lock-free and allocation free once the first
+ * request of a status code is recorded, and the stripes are only merged by the scrape.
+ */
+public class RouteMetrics {
+    protected static final String METRICS_CONFIG_KEY = "metrics";
+    protected static final String ENABLED_CONFIG_KEY = "enabled";
+    protected static final String EXPOSED_CONFIG_KEY = "exposed";
+    protected static final String PATH_CONFIG_KEY = "path";
+    protected static final String DEFAULT_PATH = "/metrics";
+    protected static final CharSequence PROMETHEUS_CONTENT_TYPE =
+            HttpHeaders.createOptimized("text/plain; version=0.0.4; charset=utf-8");
+    protected static final int MAX_STATUS_CODE = 600;
+    protected static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    protected static Logger logger = LoggerFactory.getLogger(RouteMetrics.class);
+
+    protected final String handler;
+    protected final AtomicReferenceArray<StripedHistogram> statusHistograms = new AtomicReferenceArray<>(MAX_STATUS_CODE);
+    protected final LongAdder inFlight = new LongAdder();
+    protected final LongAdder requestBytes = new LongAdder();
+    protected final LongAdder responseBytes = new LongAdder();
+
+    protected RouteMetrics(String handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Creates the registry of the route metrics of a ServerManager, from the given server config.
+     */
+    public static Registry load(JsonObject serverConfig) {
+        JsonObject metricsConfig = serverConfig.getJsonObject(METRICS_CONFIG_KEY, new JsonObject());
+        boolean enabled = metricsConfig.getBoolean(ENABLED_CONFIG_KEY, false);
+        Registry registry = new Registry(enabled, enabled && metricsConfig.getBoolean(EXPOSED_CONFIG_KEY, false),
+                metricsConfig.getString(PATH_CONFIG_KEY, DEFAULT_PATH));
+        if (registry.enabled)
+            logger.info("RouteMetrics: recording route metrics" + (registry.exposed ?
+                    ", exposed on " + registry.path : ""));
+        return registry;
+    }
+
+    public void begin() {
+        this.inFlight.increment();
+    }
+
+    public void end(int statusCode, long latencyNanos, long requestBytes, long responseBytes) {
+        this.inFlight.decrement();
+        this.requestBytes.add(requestBytes);
+        this.responseBytes.add(responseBytes);
+
+        int index = (statusCode >= 0 && statusCode < MAX_STATUS_CODE) ? statusCode : 0;
+        StripedHistogram histogram = this.statusHistograms.get(index);
+        if (Objects.isNull(histogram)) {
+            this.statusHistograms.compareAndSet(index, null, new StripedHistogram());
+            histogram = this.statusHistograms.get(index);
+        }
+        histogram.record(latencyNanos);
+    }
+
+    public String getHandler() {
+        return this.handler;
+    }
+
+    public long getInFlight() {
+        return this.inFlight.sum();
+    }
+
+    public long getRequestBytes() {
+        return this.requestBytes.sum();
+    }
+
+    public long getResponseBytes() {
+        return this.responseBytes.sum();
+    }
+
+    /**
+     * Returns the latency histogram of the given status code merged from its stripes, or null if none is recorded.
+     */
+    public Histogram snapshot(int statusCode) {
+        StripedHistogram histogram = this.statusHistograms.get(statusCode);
+        return Objects.isNull(histogram) ? null : histogram.snapshot();
+    }
+
+    protected static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+
+    /**
+     * The route metrics of the rest handlers of a ServerManager, and its scrape.
+     */
+    public static class Registry {
+        protected final boolean enabled;
+        protected final boolean exposed;
+        protected final String path;
+        protected final Map<String, RouteMetrics> routeMetricsMap = new ConcurrentSkipListMap<>();
+
+        protected Registry(boolean enabled, boolean exposed, String path) {
+            this.enabled = enabled;
+            this.exposed = exposed;
+            this.path = path;
+        }
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public boolean isExposed() {
+            return this.exposed;
+        }
+
+        public String getPath() {
+            return this.path;
+        }
+
+        /**
+         * Returns the metrics of the given handler class, shared by all its routes.
+         */
+        public RouteMetrics of(Class<?> handlerClass) {
+            return this.routeMetricsMap.computeIfAbsent(handlerClass.getName(), RouteMetrics::new);
+        }
+
+        public Map<String, RouteMetrics> getRouteMetrics() {
+            return this.routeMetricsMap;
+        }
+
+        /**
+         * Answers with all the route metrics, the concurrency limiters and the blocking pools of the given server
+         * manager, in the Prometheus text exposition format.
+         */
+        public void scrape(RoutingContext routingContext, ServerManager serverManager) {
+            StringBuilder builder = new StringBuilder(4096);
+
+            builder.append("# HELP vertxboot_http_request_duration_seconds Latency of the rest handlers.\n")
+                    .append("# TYPE vertxboot_http_request_duration_seconds summary\n");
+            this.routeMetricsMap.values().forEach(routeMetrics -> {
+                for (int statusCode = 0; statusCode < MAX_STATUS_CODE; statusCode++) {
+                    Histogram histogram = routeMetrics.snapshot(statusCode);
+                    if (Objects.isNull(histogram))
+                        continue;
+
+                    String labels = "handler=\"" + routeMetrics.handler + "\",status=\"" + statusCode + "\"";
+                    for (double quantile : QUANTILES)
+                        builder.append("vertxboot_http_request_duration_seconds{").append(labels)
+                                .append(",quantile=\"").append(quantile).append("\"} ")
+                                .append(seconds(histogram.valueAtPercentile(quantile * 100))).append('\n');
+                    builder.append("vertxboot_http_request_duration_seconds_sum{").append(labels).append("} ")
+                            .append(seconds(histogram.sum())).append('\n');
+                    builder.append("vertxboot_http_request_duration_seconds_count{").append(labels).append("} ")
+                            .append(histogram.count()).append('\n');
+                }
+            });
+
+            this.append(builder, "vertxboot_http_requests_in_flight", "gauge",
+                    "In flight requests of the rest handlers.", RouteMetrics::getInFlight);
+            this.append(builder, "vertxboot_http_request_bytes_total", "counter",
+                    "Request bytes read by the rest handlers.", RouteMetrics::getRequestBytes);
+            this.append(builder, "vertxboot_http_response_bytes_total", "counter",
+                    "Response bytes written by the rest handlers.", RouteMetrics::getResponseBytes);
+
+            ConcurrencyLimitHandler.Registry limiters = serverManager.getConcurrencyLimiters();
+            if (Objects.nonNull(limiters)) {
+                appendLimiters(builder, limiters, "vertxboot_concurrency_limit", "gauge", ConcurrencyLimiter::getLimit);
+                appendLimiters(builder, limiters, "vertxboot_concurrency_in_flight", "gauge",
+                        ConcurrencyLimiter::getInFlight);
+                appendLimiters(builder, limiters, "vertxboot_concurrency_rejected_total", "counter",
+                        ConcurrencyLimiter::getRejected);
+            }
+
+            Map<String, BlockingPool> blockingPoolMap = serverManager.getBlockingPools();
+            if (!blockingPoolMap.isEmpty())
+                appendBlockingPools(builder, blockingPoolMap);
+
+            routingContext.response()
+                    .setStatusCode(HttpResponseStatus.OK.code())
+                    .putHeader(HttpHeaders.CONTENT_TYPE, PROMETHEUS_CONTENT_TYPE)
+                    .end(builder.toString());
+        }
+
+        protected void append(StringBuilder builder, String name, String type, String help,
+                              ToLongFunction<RouteMetrics> valueFunction) {
+            builder.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                    .append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            this.routeMetricsMap.values().forEach(routeMetrics -> builder.append(name).append("{handler=\"")
+                    .append(routeMetrics.handler).append("\"} ").append(valueFunction.applyAsLong(routeMetrics))
+                    .append('\n'));
+        }
+
+        protected static void appendLimiters(StringBuilder builder, ConcurrencyLimitHandler.Registry limiters,
+                                             String name, String type,
+                                             ToLongFunction<ConcurrencyLimiter> valueFunction) {
+            ConcurrencyLimiter globalLimiter = limiters.getGlobalLimiter();
+            builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            builder.append(name).append("{limiter=\"").append(globalLimiter.getName()).append("\"} ")
+                    .append(valueFunction.applyAsLong(globalLimiter)).append('\n');
+            limiters.getRouteLimiters().values().forEach(routeLimiter -> builder.append(name)
+                    .append("{limiter=\"").append(routeLimiter.getName()).append("\"} ")
+                    .append(valueFunction.applyAsLong(routeLimiter)).append('\n'));
+        }
+
+        protected static void appendBlockingPools(StringBuilder builder, Map<String, BlockingPool> blockingPoolMap) {
+            appendBlockingPools(builder, blockingPoolMap, "vertxboot_blocking_pool_size", "gauge",
+                    BlockingPool::getSize);
+            appendBlockingPools(builder, blockingPoolMap, "vertxboot_blocking_pool_active", "gauge",
+                    BlockingPool::getActive);
+            appendBlockingPools(builder, blockingPoolMap, "vertxboot_blocking_pool_queued", "gauge",
+                    BlockingPool::getQueued);
+            appendBlockingPools(builder, blockingPoolMap, "vertxboot_blocking_pool_completed_total", "counter",
+                    BlockingPool::getCompleted);
+            appendBlockingPools(builder, blockingPoolMap, "vertxboot_blocking_pool_rejected_total", "counter",
+                    BlockingPool::getRejected);
+
+            builder.append("# TYPE vertxboot_blocking_pool_wait_seconds summary\n");
+            blockingPoolMap.values().forEach(blockingPool -> {
+                Histogram histogram = blockingPool.snapshotWait();
+                String labels = "pool=\"" + blockingPool.getName() + "\"";
+                for (double quantile : QUANTILES)
+                    builder.append("vertxboot_blocking_pool_wait_seconds{").append(labels).append(",quantile=\"")
+                            .append(quantile).append("\"} ")
+                            .append(seconds(histogram.valueAtPercentile(quantile * 100))).append('\n');
+                builder.append("vertxboot_blocking_pool_wait_seconds_sum{").append(labels).append("} ")
+                        .append(seconds(histogram.sum())).append('\n');
+                builder.append("vertxboot_blocking_pool_wait_seconds_count{").append(labels).append("} ")
+                        .append(histogram.count()).append('\n');
+            });
+        }
+
+        protected static void appendBlockingPools(StringBuilder builder, Map<String, BlockingPool> blockingPoolMap,
+                                                  String name, String type,
+                                                  ToLongFunction<BlockingPool> valueFunction) {
+            builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            blockingPoolMap.values().forEach(blockingPool -> builder.append(name).append("{pool=\"")
+                    .append(blockingPool.getName()).append("\"} ").append(valueFunction.applyAsLong(blockingPool))
+                    .append('\n'));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.vertxboot.web;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.Objects;
+
+/**
+ * Records the RouteMetrics of a rest handler, as the very first handler of its chain, so the requests shed by the
+ * concurrency limiter or rejected by the interceptors are recorded as well, with their status codes.
+ */
+public class RouteMetricsHandler implements Handler<RoutingContext> {
+    protected final RouteMetrics routeMetrics;
+
+    protected RouteMetricsHandler(RouteMetrics routeMetrics) {
+        this.routeMetrics = routeMetrics;
+    }
+
+    /**
+     * Returns the metrics handler of the given rest handler, recording into the given registry, or null if the route
+     * metrics are not enabled.
+     */
+    public static RouteMetricsHandler create(RouteMetrics.Registry registry, BaseRestHandler baseRestHandler) {
+        if (Objects.isNull(registry) || !registry.isEnabled())
+            return null;
+
+        return new RouteMetricsHandler(registry.of(baseRestHandler.getHandlerClass()));
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        long start = System.nanoTime();
+        this.routeMetrics.begin();
+        ResponseWriter.addEndHandler(routingContext, v -> {
+            HttpServerRequest request = routingContext.request();
+            HttpServerResponse response = routingContext.response();
+            this.routeMetrics.end(response.getStatusCode(), System.nanoTime() - start, request.bytesRead(),
+                    response.bytesWritten());
+        });
+        routingContext.next();
+    }
+}
@@ -0,0 +1,183 @@
+package com.vertxboot.web;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The readiness and the liveness of a ServerManager, shared by all its http server instances, and configured by the
+ * health block of its server config, for example:
+ * <pre>
+ * "server": {
+ *   "health": {"exposed": true, "readinessPath": "/ready", "livenessPath": "/live", "awaitVerticles": true,
+ *              "drainDelay": 5000, "shutdownTimeout": 30000, "shutdownHook": true}
+ * }
+ * </pre>
+ * The server is ready once all its readiness checks succeed, and until it starts draining. The ServerManager registers
+ * the "server" check, completed once all the http server instances are listening, and the "verticles" check, completed
+ * once all the verticles are deployed, before which the http servers do not listen if awaitVerticles is set. Other
+ * components register their own checks on the health of the server manager (see ServerManager.getServerHealth). The
+ * server is live as long as none of its checks failed, so a failed startup is restarted by the orchestrator instead of
+ * being left out of the load balancer forever.
+ * <p>
+ * When exposed, both are answered on their paths by every http server instance, with 200 or 503, and the state of each
+ * check, for example {"status": "DOWN", "checks": {"server": "UP", "verticles": "PENDING"}}. They are routed before
+ * the interceptors, which never apply to them, so the probes of the orchestrator need no credentials: the paths reveal
+ * the names and the states of the checks to anyone reaching the port, and are left unexposed if that is not acceptable.
+ * <p>
+ * When the http servers are stopped, the server turns not ready, keeps serving for drainDelay milliseconds so the load
+ * balancers notice it, then drains the connections (see HttpServerVerticle) for up to shutdownTimeout
+ * milliseconds. shutdownHook stops the http servers this way when the JVM is asked to exit, for example by SIGTERM.
+ */
+public class ServerHealth {
+    protected static final String HEALTH_CONFIG_KEY = "health";
+    protected static final String EXPOSED_CONFIG_KEY = "exposed";
+    protected static final String READINESS_PATH_CONFIG_KEY = "readinessPath";
+    protected static final String LIVENESS_PATH_CONFIG_KEY = "livenessPath";
+    protected static final String AWAIT_VERTICLES_CONFIG_KEY = "awaitVerticles";
+    protected static final String DRAIN_DELAY_CONFIG_KEY = "drainDelay";
+    protected static final String SHUTDOWN_TIMEOUT_CONFIG_KEY = "shutdownTimeout";
+    protected static final String SHUTDOWN_HOOK_CONFIG_KEY = "shutdownHook";
+    protected static final String DEFAULT_READINESS_PATH = "/ready";
+    protected static final String DEFAULT_LIVENESS_PATH = "/live";
+    protected static final long DEFAULT_DRAIN_DELAY = 0L;
+    protected static final long DEFAULT_SHUTDOWN_TIMEOUT = 30000L;
+    protected static final String STATUS_FIELD = "status";
+    protected static final String CHECKS_FIELD = "checks";
+    protected static final String UP = "UP";
+    protected static final String DOWN = "DOWN";
+    protected static final String PENDING = "PENDING";
+    protected static final String DRAINING = "DRAINING";
+
+    protected static Logger logger = LoggerFactory.getLogger(ServerHealth.class);
+
+    protected final boolean exposed;
+    protected final String readinessPath;
+    protected final String livenessPath;
+    protected final boolean awaitVerticles;
+    protected final long drainDelay;
+    protected final long shutdownTimeout;
+    protected final boolean shutdownHook;
+    protected final Map<String, Future<?>> checkMap = new ConcurrentSkipListMap<>();
+    protected volatile boolean draining;
+
+    protected ServerHealth(JsonObject healthConfig) {
+        this.exposed = healthConfig.getBoolean(EXPOSED_CONFIG_KEY, false);
+        this.readinessPath = healthConfig.getString(READINESS_PATH_CONFIG_KEY, DEFAULT_READINESS_PATH);
+        this.livenessPath = healthConfig.getString(LIVENESS_PATH_CONFIG_KEY, DEFAULT_LIVENESS_PATH);
+        this.awaitVerticles = healthConfig.getBoolean(AWAIT_VERTICLES_CONFIG_KEY, true);
+        this.drainDelay = healthConfig.getLong(DRAIN_DELAY_CONFIG_KEY, DEFAULT_DRAIN_DELAY);
+        this.shutdownTimeout = healthConfig.getLong(SHUTDOWN_TIMEOUT_CONFIG_KEY, DEFAULT_SHUTDOWN_TIMEOUT);
+        this.shutdownHook = healthConfig.getBoolean(SHUTDOWN_HOOK_CONFIG_KEY, true);
+    }
+
+    /**
+     * Creates the health of a ServerManager from the given server config.
+     */
+    public static ServerHealth load(JsonObject serverConfig) {
+        ServerHealth serverHealth = new ServerHealth(serverConfig.getJsonObject(HEALTH_CONFIG_KEY, new JsonObject()));
+        if (serverHealth.exposed)
+            logger.info("ServerHealth: readiness exposed on " + serverHealth.readinessPath + ", liveness exposed on " +
+                    serverHealth.livenessPath);
+        return serverHealth;
+    }
+
+    /**
+     * Adds a readiness check of the given name, replacing the check of the same name if any. The server is not ready
+     * until the given future succeeds, and not live if it fails.
+     */
+    public void register(String name, Future<?> future) {
+        this.checkMap.put(name, future);
+    }
+
+    public Map<String, Future<?>> getChecks() {
+        return this.checkMap;
+    }
+
+    public boolean isReady() {
+        if (this.draining)
+            return false;
+
+        for (Future<?> future : this.checkMap.values())
+            if (!future.succeeded())
+                return false;
+
+        return true;
+    }
+
+    public boolean isLive() {
+        for (Future<?> future : this.checkMap.values())
+            if (future.failed())
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Turns the server not ready, for good, ahead of stopping its http servers.
+     */
+    public void drain() {
+        if (!this.draining)
+            logger.info("ServerHealth: draining, the server is not ready any more");
+        this.draining = true;
+    }
+
+    public boolean isDraining() {
+        return this.draining;
+    }
+
+    public boolean isExposed() {
+        return this.exposed;
+    }
+
+    public String getReadinessPath() {
+        return this.readinessPath;
+    }
+
+    public String getLivenessPath() {
+        return this.livenessPath;
+    }
+
+    public boolean isAwaitVerticles() {
+        return this.awaitVerticles;
+    }
+
+    public long getDrainDelay() {
+        return this.drainDelay;
+    }
+
+    public long getShutdownTimeout() {
+        return this.shutdownTimeout;
+    }
+
+    public boolean isShutdownHook() {
+        return this.shutdownHook;
+    }
+
+    public void readiness(RoutingContext routingContext) {
+        boolean ready = this.isReady();
+        JsonObject report = this.report(ready ? UP : this.draining ? DRAINING : DOWN);
+        ResponseWriter.end(routingContext, ready ? HttpResponseStatus.OK.code() :
+                HttpResponseStatus.SERVICE_UNAVAILABLE.code(), report.toBuffer());
+    }
+
+    public void liveness(RoutingContext routingContext) {
+        boolean live = this.isLive();
+        JsonObject report = this.report(live ? UP : DOWN);
+        ResponseWriter.end(routingContext, live ? HttpResponseStatus.OK.code() :
+                HttpResponseStatus.SERVICE_UNAVAILABLE.code(), report.toBuffer());
+    }
+
+    protected JsonObject report(String status) {
+        JsonObject checks = new JsonObject();
+        this.checkMap.forEach((name, future) -> checks.put(name, future.succeeded() ? UP :
+                future.failed() ? DOWN : PENDING));
+        return new JsonObject().put(STATUS_FIELD, status).put(CHECKS_FIELD, checks);
+    }
+}
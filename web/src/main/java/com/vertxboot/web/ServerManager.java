@@ -2,34 +2,125 @@ package com.vertxboot.web;
 
 import com.vertxboot.beans.BeanConfig;
 import com.vertxboot.commons.config.AppConfig;
+import com.vertxboot.core.EventLoopProbe;
+import com.vertxboot.core.VerticleLoader;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
-import io.vertx.core.http.HttpServer;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.Http2Settings;
 import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
 import io.vertx.core.net.SelfSignedCertificate;
-import io.vertx.ext.web.Router;
-import io.vertx.ext.web.handler.BodyHandler;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 
 public class ServerManager {
     protected static final String SERVER_PORT_CONFIG_KEY = "serverPort";
     protected static final String USE_SSL_CONFIG_KEY = "useSsl";
+    protected static final String INSTANCES_CONFIG_KEY = "instances";
+    protected static final String HTTP2_CONFIG_KEY = "http2";
+    protected static final String ENABLED_CONFIG_KEY = "enabled";
+    protected static final String CLEAR_TEXT_CONFIG_KEY = "clearText";
+    protected static final String DISABLE_H2C_PROPERTY = "vertx.disableH2c";
+    protected static final String MAX_CONCURRENT_STREAMS_CONFIG_KEY = "maxConcurrentStreams";
+    protected static final String INITIAL_WINDOW_SIZE_CONFIG_KEY = "initialWindowSize";
+    protected static final String HEADER_TABLE_SIZE_CONFIG_KEY = "headerTableSize";
+    protected static final String MAX_FRAME_SIZE_CONFIG_KEY = "maxFrameSize";
+    protected static final String CONNECTION_WINDOW_SIZE_CONFIG_KEY = "connectionWindowSize";
+    protected static final String SERVER_CONFIG_KEY = "server";
+    protected static final String SOCKET_CONFIG_KEY = "socket";
+    protected static final String NATIVE_TRANSPORT_CONFIG_KEY = "nativeTransport";
+    protected static final String REUSE_PORT_CONFIG_KEY = "reusePort";
+    protected static final String TCP_NO_DELAY_CONFIG_KEY = "tcpNoDelay";
+    protected static final String TCP_FAST_OPEN_CONFIG_KEY = "tcpFastOpen";
+    protected static final String TCP_QUICK_ACK_CONFIG_KEY = "tcpQuickAck";
+    protected static final String TCP_CORK_CONFIG_KEY = "tcpCork";
+    protected static final String TCP_KEEP_ALIVE_CONFIG_KEY = "tcpKeepAlive";
+    protected static final String ACCEPT_BACKLOG_CONFIG_KEY = "acceptBacklog";
+    protected static final String IDLE_TIMEOUT_CONFIG_KEY = "idleTimeout";
+    protected static final String RECEIVE_BUFFER_SIZE_CONFIG_KEY = "receiveBufferSize";
+    protected static final String SEND_BUFFER_SIZE_CONFIG_KEY = "sendBufferSize";
+    protected static final String SERVER_CHECK_NAME = "server";
+    protected static final String VERTICLES_CHECK_NAME = "verticles";
+    protected static final long SHUTDOWN_HOOK_GRACE = 1000L;
+    protected static final String SERVER_MANAGER_CONTEXT_KEY = "vertxboot.serverManager";
+
+    protected static Logger logger = LoggerFactory.getLogger(ServerManager.class);
 
     protected Vertx vertx;
-    protected Router router;
-    protected HttpServer httpServer;
+    protected JsonObject serverConfig;
+    protected int port;
+    protected int instances;
+    protected String deploymentId;
+    protected Thread shutdownHook;
+    protected ServerTls serverTls;
+    protected ResponseCompression responseCompression;
+    protected ResponseCache responseCache;
+    protected List<StaticFileHandler> staticFileHandlers;
+    protected ConcurrencyLimitHandler.Registry concurrencyLimiters;
+    protected RouteMetrics.Registry routeMetrics;
+    protected ServerHealth serverHealth;
+    protected JsonMapper jsonMapper;
+    protected final Map<String, BlockingPool> blockingPoolMap = new ConcurrentSkipListMap<>();
 
     protected ServerManager() {
     }
 
     public static Future<ServerManager> startServer(Vertx vertx, AppConfig config, InterceptorConfig interceptorConfig) {
+        return ServerManager.startServer(vertx, config, interceptorConfig, null, null);
+    }
+
+    public static Future<ServerManager> startServer(Vertx vertx, AppConfig config, InterceptorConfig interceptorConfig,
+                                                    EventLoopProbe eventLoopProbe) {
+        return ServerManager.startServer(vertx, config, interceptorConfig, eventLoopProbe, null);
+    }
+
+    public static Future<ServerManager> startServer(Vertx vertx, AppConfig config, InterceptorConfig interceptorConfig,
+                                                    EventLoopProbe eventLoopProbe, VerticleLoader verticleLoader) {
+        return ServerManager.startServer(vertx, config, interceptorConfig, eventLoopProbe, verticleLoader,
+                JsonMapper.load(config));
+    }
+
+    /**
+     * Deploys server.instances instances of the HttpServerVerticle, defaulting to the number of available processors,
+     * all listening on server.serverPort, and completes once all of them are listening. If a verticle loader is given,
+     * and server.health.awaitVerticles is set, the http servers start listening only once all the verticles are
+     * deployed, or failed to (see ServerHealth). The rest handlers read and write their json with the given json
+     * mapper.
+     * <p>
+     * The features configured by the server config, such as the ResponseCache, the concurrency limiters or the
+     * ServerHealth, belong to the returned ServerManager, so several servers of the same JVM are configured and stopped
+     * independently. The rest handlers and the interceptors find the ServerManager of their request with of.
+     */
+    public static Future<ServerManager> startServer(Vertx vertx, AppConfig config, InterceptorConfig interceptorConfig,
+                                                    EventLoopProbe eventLoopProbe, VerticleLoader verticleLoader,
+                                                    JsonMapper jsonMapper) {
         ServerManager serverManager = new ServerManager();
+        serverManager.jsonMapper = jsonMapper;
         JsonObject serverConfig = config.getSync()
-                .getJsonObject("server", new JsonObject());
+                .getJsonObject(SERVER_CONFIG_KEY, new JsonObject());
 
         HttpServerOptions httpServerOptions = new HttpServerOptions();
-        if (serverConfig.getBoolean(USE_SSL_CONFIG_KEY, false)) {
+        ServerTls serverTls = ServerTls.load(vertx, serverConfig);
+        serverManager.serverTls = serverTls;
+        if (Objects.nonNull(serverTls))
+            serverTls.apply(httpServerOptions);
+        else if (serverConfig.getBoolean(USE_SSL_CONFIG_KEY, false)) {
+            logger.warn("ServerManager: useSsl serves a self signed certificate generated at startup, for " +
+                    "development only, configure server.tls instead");
             SelfSignedCertificate certificate = SelfSignedCertificate.create();
             httpServerOptions
                     .setSsl(true)
@@ -37,18 +128,338 @@ public class ServerManager {
                     .setTrustOptions(certificate.trustOptions());
         }
 
+        applyHttp2Config(httpServerOptions, serverConfig.getJsonObject(HTTP2_CONFIG_KEY, new JsonObject()));
+        applySocketConfig(httpServerOptions, serverConfig.getJsonObject(SOCKET_CONFIG_KEY, new JsonObject()));
+        serverManager.responseCompression = ResponseCompression.load(serverConfig);
+        serverManager.responseCompression.apply(httpServerOptions);
+
+        serverManager.responseCache = ResponseCache.load(vertx, serverConfig);
+        serverManager.staticFileHandlers = StaticFileHandler.load(vertx, serverConfig);
+        DeadlineHandler.load(vertx, serverConfig);
+        serverManager.concurrencyLimiters = ConcurrencyLimitHandler.load(serverConfig);
+        serverManager.routeMetrics = RouteMetrics.load(serverConfig);
+        ServerHealth serverHealth = ServerHealth.load(serverConfig);
+        serverManager.serverHealth = serverHealth;
         serverManager.vertx = vertx;
-        serverManager.httpServer = serverManager.vertx.createHttpServer(httpServerOptions);
-        serverManager.router = Router.router(serverManager.vertx);
-        serverManager.router.route().handler(BodyHandler.create());
-        RestLoader.load(serverManager.router, interceptorConfig);
-        serverManager.httpServer.requestHandler(serverManager.router).listen(
-                serverConfig.getInteger(SERVER_PORT_CONFIG_KEY, 8080));
-        return Promise.succeededPromise(serverManager).future();
+        serverManager.serverConfig = serverConfig;
+        serverManager.instances = serverConfig.getInteger(INSTANCES_CONFIG_KEY, Runtime.getRuntime().availableProcessors());
+        int port = serverConfig.getInteger(SERVER_PORT_CONFIG_KEY, 8080);
+        serverManager.port = port;
+
+        Promise<ServerManager> serverManagerPromise = Promise.promise();
+        serverHealth.register(SERVER_CHECK_NAME, serverManagerPromise.future());
+        Future<Void> verticlesFuture = Future.succeededFuture();
+        if (Objects.nonNull(verticleLoader) && serverHealth.isAwaitVerticles()) {
+            verticlesFuture = verticleLoader.getDeploymentFuture();
+            serverHealth.register(VERTICLES_CHECK_NAME, verticleLoader.getDeploymentFuture());
+            if (!verticlesFuture.isComplete())
+                logger.info("ServerManager: waiting for the verticles to be deployed before listening");
+        }
+
+        verticlesFuture.setHandler(verticlesAsyncResult -> {
+            if (verticlesAsyncResult.failed())
+                logger.error("ServerManager: verticle deployment failed, listening while reporting not ready");
+
+            logger.info("ServerManager: deploying " + serverManager.instances + " http server instances on port " + port);
+            vertx.deployVerticle(() -> new HttpServerVerticle(serverManager, serverConfig, httpServerOptions,
+                    interceptorConfig, eventLoopProbe, port), new DeploymentOptions().setInstances(serverManager.instances),
+                    deploymentAsyncResult -> {
+                        if (deploymentAsyncResult.failed()) {
+                            logger.error("ServerManager: http server deployment failed", deploymentAsyncResult.cause());
+                            serverManagerPromise.fail(deploymentAsyncResult.cause());
+                            return;
+                        }
+
+                        logger.info("ServerManager: http server instances are listening on port " + port);
+                        reportTransport(vertx, httpServerOptions,
+                                serverConfig.getJsonObject(SOCKET_CONFIG_KEY, new JsonObject()));
+                        serverManager.deploymentId = deploymentAsyncResult.result();
+                        if (serverHealth.isShutdownHook()) {
+                            serverManager.shutdownHook = new Thread(serverManager::awaitStop, "vertxboot-shutdown");
+                            Runtime.getRuntime().addShutdownHook(serverManager.shutdownHook);
+                        }
+                        serverManagerPromise.complete(serverManager);
+                    });
+        });
+
+        return serverManagerPromise.future();
+    }
+
+    /**
+     * Turns the server not ready, and undeploys the http server instances once they have drained their connections
+     * (see HttpServerVerticle). Completes once the http servers are closed, and their blocking pools, response cache
+     * and tls reloading too. The shutdown hook of the server is removed, unless the JVM is already shutting down.
+     */
+    public Future<Void> stopServer() {
+        Promise<Void> stopPromise = Promise.promise();
+        this.removeShutdownHook();
+        if (Objects.isNull(this.deploymentId) || !this.vertx.deploymentIDs().contains(this.deploymentId)) {
+            stopPromise.complete();
+            return stopPromise.future();
+        }
+
+        this.serverHealth.drain();
+        logger.info("ServerManager: stopping the http server instances");
+        this.vertx.undeploy(this.deploymentId, undeploymentAsyncResult -> {
+            if (undeploymentAsyncResult.failed())
+                logger.error("ServerManager: http server undeployment failed", undeploymentAsyncResult.cause());
+            else logger.info("ServerManager: http server instances are stopped");
+            this.closeBlockingPools();
+            this.responseCache.close();
+            if (Objects.nonNull(this.serverTls))
+                this.serverTls.close();
+            stopPromise.handle(undeploymentAsyncResult);
+        });
+
+        return stopPromise.future();
+    }
+
+    protected synchronized void removeShutdownHook() {
+        if (Objects.isNull(this.shutdownHook))
+            return;
+
+        try {
+            Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+        } catch (IllegalStateException e) {
+            logger.debug("ServerManager: the JVM is shutting down, the shutdown hook is already running");
+        }
+        this.shutdownHook = null;
+    }
+
+    /**
+     * Stops the http servers from the shutdown hook, waiting for them up to the drain delay and the shutdown timeout.
+     */
+    protected void awaitStop() {
+        CompletableFuture<Void> stopFuture = new CompletableFuture<>();
+        try {
+            this.stopServer().setHandler(stopAsyncResult -> stopFuture.complete(null));
+            stopFuture.get(this.serverHealth.getDrainDelay() + this.serverHealth.getShutdownTimeout() +
+                    SHUTDOWN_HOOK_GRACE, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            logger.warn("ServerManager: the http servers did not stop in time", e);
+        }
+    }
+
+    /**
+     * Returns the ServerManager serving the given request, or null if the request is not served by the
+     * HttpServerVerticle of a ServerManager.
+     */
+    public static ServerManager of(RoutingContext routingContext) {
+        return routingContext.get(SERVER_MANAGER_CONTEXT_KEY);
+    }
+
+    public int getInstances() {
+        return this.instances;
+    }
+
+    public ServerTls getServerTls() {
+        return this.serverTls;
+    }
+
+    public ResponseCompression getResponseCompression() {
+        return this.responseCompression;
+    }
+
+    public ResponseCache getResponseCache() {
+        return this.responseCache;
+    }
+
+    public List<StaticFileHandler> getStaticFileHandlers() {
+        return this.staticFileHandlers;
+    }
+
+    /**
+     * Returns the concurrency limiters of this server, or null if the limiter is not enabled.
+     */
+    public ConcurrencyLimitHandler.Registry getConcurrencyLimiters() {
+        return this.concurrencyLimiters;
+    }
+
+    public RouteMetrics.Registry getRouteMetrics() {
+        return this.routeMetrics;
+    }
+
+    public ServerHealth getServerHealth() {
+        return this.serverHealth;
+    }
+
+    public JsonMapper getJsonMapper() {
+        return this.jsonMapper;
+    }
+
+    /**
+     * Returns the blocking pool of the given name of this server, created on first use (see BlockingPool).
+     */
+    public synchronized BlockingPool blockingPool(String name) {
+        BlockingPool blockingPool = this.blockingPoolMap.get(name);
+        if (Objects.isNull(blockingPool)) {
+            blockingPool = BlockingPool.create(this.vertx, this.serverConfig, this.port, name);
+            this.blockingPoolMap.put(name, blockingPool);
+        }
+
+        return blockingPool;
+    }
+
+    public Map<String, BlockingPool> getBlockingPools() {
+        return Collections.unmodifiableMap(this.blockingPoolMap);
+    }
+
+    protected synchronized void closeBlockingPools() {
+        this.blockingPoolMap.values().forEach(BlockingPool::close);
+        this.blockingPoolMap.clear();
+    }
+
+    /**
+     * Returns the vertx options of the application, preferring the native transport if server.socket.nativeTransport
+     * is set, to be used by the BeanConfig of the Vertx instance:
+     * <pre>
+     * &#64;BeanConfig
+     * public static Vertx vertx(AppConfig appConfig) {
+     *     return Vertx.vertx(ServerManager.vertxOptions(appConfig));
+     * }
+     * </pre>
+     * The native transport (epoll on linux, kqueue on macOS) also requires the matching netty-transport-native
+     * artifact on the class path, otherwise vertx falls back to the NIO transport.
+     */
+    public static VertxOptions vertxOptions(AppConfig config) {
+        JsonObject socketConfig = config.getSync()
+                .getJsonObject(SERVER_CONFIG_KEY, new JsonObject())
+                .getJsonObject(SOCKET_CONFIG_KEY, new JsonObject());
+        return new VertxOptions().setPreferNativeTransport(socketConfig.getBoolean(NATIVE_TRANSPORT_CONFIG_KEY, false));
+    }
+
+    /**
+     * Applies the socket options of the server.socket block, for example:
+     * <pre>
+     * "socket": {"nativeTransport": true, "reusePort": true, "tcpNoDelay": true, "tcpFastOpen": true,
+     *            "tcpQuickAck": true, "tcpCork": false, "tcpKeepAlive": true, "acceptBacklog": 1024, "idleTimeout": 60,
+     *            "receiveBufferSize": 65536, "sendBufferSize": 65536, "maxRequestsPerConnection": 10000}
+     * </pre>
+     * where idleTimeout is in seconds, and closes the idle keep-alive connections. reusePort requires the native
+     * transport, and tcpFastOpen, tcpQuickAck, and tcpCork require epoll, they are silently ignored by vertx otherwise,
+     * so the transport report logged at startup tells which of them are actually in effect. maxRequestsPerConnection
+     * is applied by the HttpServerVerticle.
+     */
+    protected static HttpServerOptions applySocketConfig(HttpServerOptions httpServerOptions, JsonObject socketConfig) {
+        if (socketConfig.containsKey(REUSE_PORT_CONFIG_KEY))
+            httpServerOptions.setReusePort(socketConfig.getBoolean(REUSE_PORT_CONFIG_KEY));
+
+        if (socketConfig.containsKey(TCP_NO_DELAY_CONFIG_KEY))
+            httpServerOptions.setTcpNoDelay(socketConfig.getBoolean(TCP_NO_DELAY_CONFIG_KEY));
+
+        if (socketConfig.containsKey(TCP_FAST_OPEN_CONFIG_KEY))
+            httpServerOptions.setTcpFastOpen(socketConfig.getBoolean(TCP_FAST_OPEN_CONFIG_KEY));
+
+        if (socketConfig.containsKey(TCP_QUICK_ACK_CONFIG_KEY))
+            httpServerOptions.setTcpQuickAck(socketConfig.getBoolean(TCP_QUICK_ACK_CONFIG_KEY));
+
+        if (socketConfig.containsKey(TCP_CORK_CONFIG_KEY))
+            httpServerOptions.setTcpCork(socketConfig.getBoolean(TCP_CORK_CONFIG_KEY));
+
+        if (socketConfig.containsKey(TCP_KEEP_ALIVE_CONFIG_KEY))
+            httpServerOptions.setTcpKeepAlive(socketConfig.getBoolean(TCP_KEEP_ALIVE_CONFIG_KEY));
+
+        if (socketConfig.containsKey(ACCEPT_BACKLOG_CONFIG_KEY))
+            httpServerOptions.setAcceptBacklog(socketConfig.getInteger(ACCEPT_BACKLOG_CONFIG_KEY));
+
+        if (socketConfig.containsKey(IDLE_TIMEOUT_CONFIG_KEY))
+            httpServerOptions.setIdleTimeout(socketConfig.getInteger(IDLE_TIMEOUT_CONFIG_KEY));
+
+        if (socketConfig.containsKey(RECEIVE_BUFFER_SIZE_CONFIG_KEY))
+            httpServerOptions.setReceiveBufferSize(socketConfig.getInteger(RECEIVE_BUFFER_SIZE_CONFIG_KEY));
+
+        if (socketConfig.containsKey(SEND_BUFFER_SIZE_CONFIG_KEY))
+            httpServerOptions.setSendBufferSize(socketConfig.getInteger(SEND_BUFFER_SIZE_CONFIG_KEY));
+
+        return httpServerOptions;
+    }
+
+    /**
+     * Logs the transport in use, and which of the requested native socket options are in effect with it.
+     */
+    protected static void reportTransport(Vertx vertx, HttpServerOptions httpServerOptions, JsonObject socketConfig) {
+        boolean nativeTransport = vertx.isNativeTransportEnabled();
+        boolean epoll = nativeTransport && System.getProperty("os.name", "").toLowerCase().contains("linux");
+        if (socketConfig.getBoolean(NATIVE_TRANSPORT_CONFIG_KEY, false) && !nativeTransport)
+            logger.warn("ServerManager: native transport is requested but not available, check that the " +
+                    "netty-transport-native artifact of the platform is on the class path");
+
+        logger.info("ServerManager: transport: " + (epoll ? "epoll" : nativeTransport ? "native" : "nio") +
+                ", reusePort: " + effect(httpServerOptions.isReusePort(), nativeTransport) +
+                ", tcpFastOpen: " + effect(httpServerOptions.isTcpFastOpen(), epoll) +
+                ", tcpQuickAck: " + effect(httpServerOptions.isTcpQuickAck(), epoll) +
+                ", tcpCork: " + effect(httpServerOptions.isTcpCork(), epoll) +
+                ", tcpNoDelay: " + httpServerOptions.isTcpNoDelay() +
+                ", tcpKeepAlive: " + httpServerOptions.isTcpKeepAlive() +
+                ", acceptBacklog: " + httpServerOptions.getAcceptBacklog() +
+                ", idleTimeout: " + httpServerOptions.getIdleTimeout() + " " + httpServerOptions.getIdleTimeoutUnit() +
+                ", receiveBufferSize: " + httpServerOptions.getReceiveBufferSize() +
+                ", sendBufferSize: " + httpServerOptions.getSendBufferSize());
+    }
+
+    protected static String effect(boolean requested, boolean supported) {
+        if (!requested)
+            return "off";
+
+        return supported ? "on" : "ignored";
+    }
+
+    /**
+     * Enables HTTP/2 if http2.enabled is set, for example:
+     * <pre>
+     * "http2": {"enabled": true, "clearText": true, "maxConcurrentStreams": 1000, "initialWindowSize": 1048576,
+     *           "headerTableSize": 4096, "maxFrameSize": 16384, "connectionWindowSize": 16777216}
+     * </pre>
+     * Over TLS, HTTP/2 is negotiated with ALPN, falling back to HTTP/1.1. In clear text, HTTP/2 is accepted both
+     * through the h2c upgrade of an HTTP/1.1 request, and with prior knowledge, unless clearText is false, which vertx
+     * only supports through the vertx.disableH2c system property. That property is process global: once set, it
+     * disables clear text HTTP/2 for every http server created afterwards in the JVM, whatever its vertx instance or
+     * config, and it is never reset, even when the server is stopped. The remaining keys tune the initial settings sent
+     * to the clients, and the window of the whole connection.
+     */
+    protected static HttpServerOptions applyHttp2Config(HttpServerOptions httpServerOptions, JsonObject http2Config) {
+        if (!http2Config.getBoolean(ENABLED_CONFIG_KEY, false))
+            return httpServerOptions;
+
+        logger.info("ServerManager: enabling HTTP/2" + (httpServerOptions.isSsl() ? " with ALPN" : " clear text"));
+        httpServerOptions
+                .setUseAlpn(httpServerOptions.isSsl())
+                .setAlpnVersions(Arrays.asList(HttpVersion.HTTP_2, HttpVersion.HTTP_1_1));
+
+        if (!http2Config.getBoolean(CLEAR_TEXT_CONFIG_KEY, true)) {
+            logger.warn("ServerManager: disabling clear text HTTP/2 for all the http servers created from now on in " +
+                    "this JVM, through the process global " + DISABLE_H2C_PROPERTY + " system property");
+            System.setProperty(DISABLE_H2C_PROPERTY, Boolean.TRUE.toString());
+        }
+
+        Http2Settings http2Settings = httpServerOptions.getInitialSettings();
+        if (http2Config.containsKey(MAX_CONCURRENT_STREAMS_CONFIG_KEY))
+            http2Settings.setMaxConcurrentStreams(http2Config.getLong(MAX_CONCURRENT_STREAMS_CONFIG_KEY));
+
+        if (http2Config.containsKey(INITIAL_WINDOW_SIZE_CONFIG_KEY))
+            http2Settings.setInitialWindowSize(http2Config.getInteger(INITIAL_WINDOW_SIZE_CONFIG_KEY));
+
+        if (http2Config.containsKey(HEADER_TABLE_SIZE_CONFIG_KEY))
+            http2Settings.setHeaderTableSize(http2Config.getLong(HEADER_TABLE_SIZE_CONFIG_KEY));
+
+        if (http2Config.containsKey(MAX_FRAME_SIZE_CONFIG_KEY))
+            http2Settings.setMaxFrameSize(http2Config.getInteger(MAX_FRAME_SIZE_CONFIG_KEY));
+
+        if (http2Config.containsKey(CONNECTION_WINDOW_SIZE_CONFIG_KEY))
+            httpServerOptions.setHttp2ConnectionWindowSize(http2Config.getInteger(CONNECTION_WINDOW_SIZE_CONFIG_KEY));
+
+        return httpServerOptions;
     }
 
+    /**
+     * The verticle loader is a dependency to hold the http servers back until the verticles are deployed, so the bean
+     * completes once the application is able to serve.
+     */
     @BeanConfig(overridable = true)
-    public static Future<ServerManager> serverManager(Vertx vertx, AppConfig appConfig, InterceptorConfig interceptorConfig) {
-        return ServerManager.startServer(vertx, appConfig, interceptorConfig);
+    public static Future<ServerManager> serverManager(Vertx vertx, AppConfig appConfig, InterceptorConfig interceptorConfig,
+                                                      EventLoopProbe eventLoopProbe, VerticleLoader verticleLoader,
+                                                      JsonMapper jsonMapper) {
+        return ServerManager.startServer(vertx, appConfig, interceptorConfig, eventLoopProbe, verticleLoader,
+                jsonMapper);
     }
 }
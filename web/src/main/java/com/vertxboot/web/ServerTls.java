@@ -0,0 +1,329 @@
+package com.vertxboot.web;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.ClientAuth;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.net.JdkSSLEngineOptions;
+import io.vertx.core.net.JksOptions;
+import io.vertx.core.net.KeyCertOptions;
+import io.vertx.core.net.OpenSSLEngineOptions;
+import io.vertx.core.net.PemKeyCertOptions;
+import io.vertx.core.net.PemTrustOptions;
+import io.vertx.core.net.PfxOptions;
+import io.vertx.core.net.TrustOptions;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The TLS of the http servers, configured by the tls block of the server config, for example:
+ * <pre>
+ * "server": {
+ *   "tls": {"enabled": true,
+ *           "keyCert": {"type": "pem", "keyPath": "/etc/tls/key.pem", "certPath": "/etc/tls/cert.pem"},
+ *           "trust": {"type": "pkcs12", "path": "/etc/tls/ca.p12", "password": "secret"}, "clientAuth": "REQUEST",
+ *           "engine": "auto", "sessionCache": true, "sessionCacheSize": 20480, "sessionTimeout": 3600,
+ *           "sessionTickets": true, "protocols": ["TLSv1.3", "TLSv1.2"], "ciphers": [],
+ *           "handshakeTimeout": 10, "reloadInterval": 60}
+ * }
+ * </pre>
+ * where the key material and the trust are either pem (keyPath and certPath, or certPaths for the trust), pkcs12 or
+ * jks (path and password) files. The engine is openssl (netty-tcnative, which must be on the class path), jdk, or auto,
+ * the default, which uses openssl when it is available, as its handshakes are much cheaper than the JDK ones.
+ * <p>
+ * Handshakes are resumed from the session cache, of sessionCacheSize sessions kept for sessionTimeout seconds, and from
+ * session tickets. The cache settings are applied to the session context of the servers on their first TLS connection.
+ * sessionCache only disables the cache of the openssl engine. The openssl engine always issues session tickets, and
+ * the jdk engine only does on java 13+, if the JVM is started with -Djdk.tls.server.enableSessionTicketExtension=true,
+ * which the JDK reads once, when its TLS classes are initialized, so sessionTickets cannot configure it, and only
+ * warns when the JVM does not match it.
+ * The protocols and ciphers restrict the ones enabled by default, and handshakeTimeout is in seconds.
+ * <p>
+ * Every reloadInterval seconds, the key material files are checked, and reloaded when they changed, so the renewed
+ * certificates are used by the next handshakes without restarting the servers (see ReloadableKeyCertOptions). A
+ * reload may also be requested with reload().
+ */
+public class ServerTls {
+    protected static final String TLS_CONFIG_KEY = "tls";
+    protected static final String ENABLED_CONFIG_KEY = "enabled";
+    protected static final String KEY_CERT_CONFIG_KEY = "keyCert";
+    protected static final String TRUST_CONFIG_KEY = "trust";
+    protected static final String CLIENT_AUTH_CONFIG_KEY = "clientAuth";
+    protected static final String ENGINE_CONFIG_KEY = "engine";
+    protected static final String SESSION_CACHE_CONFIG_KEY = "sessionCache";
+    protected static final String SESSION_CACHE_SIZE_CONFIG_KEY = "sessionCacheSize";
+    protected static final String SESSION_TIMEOUT_CONFIG_KEY = "sessionTimeout";
+    protected static final String SESSION_TICKETS_CONFIG_KEY = "sessionTickets";
+    protected static final String PROTOCOLS_CONFIG_KEY = "protocols";
+    protected static final String CIPHERS_CONFIG_KEY = "ciphers";
+    protected static final String HANDSHAKE_TIMEOUT_CONFIG_KEY = "handshakeTimeout";
+    protected static final String RELOAD_INTERVAL_CONFIG_KEY = "reloadInterval";
+    protected static final String TYPE_CONFIG_KEY = "type";
+    protected static final String PATH_CONFIG_KEY = "path";
+    protected static final String PASSWORD_CONFIG_KEY = "password";
+    protected static final String KEY_PATH_CONFIG_KEY = "keyPath";
+    protected static final String CERT_PATH_CONFIG_KEY = "certPath";
+    protected static final String CERT_PATHS_CONFIG_KEY = "certPaths";
+    protected static final String PEM_TYPE = "pem";
+    protected static final String PKCS12_TYPE = "pkcs12";
+    protected static final String JKS_TYPE = "jks";
+    protected static final String OPENSSL_ENGINE = "openssl";
+    protected static final String JDK_ENGINE = "jdk";
+    protected static final String AUTO_ENGINE = "auto";
+    protected static final String SESSION_TICKET_PROPERTY = "jdk.tls.server.enableSessionTicketExtension";
+
+    protected static Logger logger = LoggerFactory.getLogger(ServerTls.class);
+
+    protected final Vertx vertx;
+    protected final JsonObject tlsConfig;
+    protected final ReloadableKeyCertOptions keyCertOptions;
+    protected final List<File> keyCertFiles;
+    protected final Set<SSLSessionContext> sessionContextSet = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+    protected volatile long keyCertLastModified;
+    protected boolean openSsl;
+    protected long reloadTimerId = -1;
+
+    protected ServerTls(Vertx vertx, JsonObject tlsConfig, ReloadableKeyCertOptions keyCertOptions,
+                        List<File> keyCertFiles) {
+        this.vertx = vertx;
+        this.tlsConfig = tlsConfig;
+        this.keyCertOptions = keyCertOptions;
+        this.keyCertFiles = keyCertFiles;
+        this.keyCertLastModified = lastModified(keyCertFiles);
+    }
+
+    /**
+     * Loads the key material of the given server config for a ServerManager, or returns null if tls is not enabled.
+     * This is blocking, as the servers cannot start without the key material.
+     */
+    public static ServerTls load(Vertx vertx, JsonObject serverConfig) {
+        JsonObject tlsConfig = serverConfig.getJsonObject(TLS_CONFIG_KEY, new JsonObject());
+        if (!tlsConfig.getBoolean(ENABLED_CONFIG_KEY, false))
+            return null;
+
+        JsonObject keyCertConfig = tlsConfig.getJsonObject(KEY_CERT_CONFIG_KEY, new JsonObject());
+        ServerTls serverTls;
+        try {
+            serverTls = new ServerTls(vertx, tlsConfig, ReloadableKeyCertOptions.load(vertx,
+                    keyCertOptions(keyCertConfig)), files(keyCertConfig));
+        } catch (Exception e) {
+            throw new IllegalStateException("ServerTls: loading the key material failed", e);
+        }
+
+        long reloadInterval = tlsConfig.getLong(RELOAD_INTERVAL_CONFIG_KEY, 0L);
+        if (reloadInterval > 0)
+            serverTls.reloadTimerId = vertx.setPeriodic(TimeUnit.SECONDS.toMillis(reloadInterval),
+                    id -> serverTls.reloadIfModified());
+        return serverTls;
+    }
+
+    /**
+     * Stops checking the key material for changes, once the server is stopped.
+     */
+    public void close() {
+        if (this.reloadTimerId >= 0)
+            this.vertx.cancelTimer(this.reloadTimerId);
+    }
+
+    /**
+     * Enables TLS on the given options, with the engine, key material, trust, protocols and ciphers of the config.
+     */
+    public HttpServerOptions apply(HttpServerOptions httpServerOptions) {
+        httpServerOptions.setSsl(true).setKeyCertOptions(this.keyCertOptions);
+
+        String engine = this.tlsConfig.getString(ENGINE_CONFIG_KEY, AUTO_ENGINE);
+        boolean openSslAvailable = OpenSSLEngineOptions.isAvailable();
+        if (OPENSSL_ENGINE.equals(engine) && !openSslAvailable)
+            logger.warn("ServerTls: openssl engine is requested but not available, check that netty-tcnative is on " +
+                    "the class path, falling back to the jdk engine");
+        this.openSsl = !JDK_ENGINE.equals(engine) && openSslAvailable;
+        if (this.openSsl)
+            httpServerOptions.setOpenSslEngineOptions(new OpenSSLEngineOptions()
+                    .setSessionCacheEnabled(this.tlsConfig.getBoolean(SESSION_CACHE_CONFIG_KEY, true)));
+        else httpServerOptions.setJdkSslEngineOptions(new JdkSSLEngineOptions());
+
+        if (this.tlsConfig.containsKey(SESSION_TICKETS_CONFIG_KEY))
+            this.reportSessionTickets(this.tlsConfig.getBoolean(SESSION_TICKETS_CONFIG_KEY));
+
+        JsonObject trustConfig = this.tlsConfig.getJsonObject(TRUST_CONFIG_KEY);
+        if (Objects.nonNull(trustConfig))
+            httpServerOptions.setTrustOptions(trustOptions(trustConfig));
+
+        if (this.tlsConfig.containsKey(CLIENT_AUTH_CONFIG_KEY))
+            httpServerOptions.setClientAuth(ClientAuth.valueOf(
+                    this.tlsConfig.getString(CLIENT_AUTH_CONFIG_KEY).toUpperCase()));
+
+        JsonArray protocols = this.tlsConfig.getJsonArray(PROTOCOLS_CONFIG_KEY);
+        if (Objects.nonNull(protocols) && !protocols.isEmpty())
+            httpServerOptions.setEnabledSecureTransportProtocols(protocols.stream().map(Object::toString)
+                    .collect(Collectors.toCollection(LinkedHashSet::new)));
+
+        JsonArray ciphers = this.tlsConfig.getJsonArray(CIPHERS_CONFIG_KEY);
+        if (Objects.nonNull(ciphers))
+            ciphers.forEach(cipher -> httpServerOptions.addEnabledCipherSuite(cipher.toString()));
+
+        if (this.tlsConfig.containsKey(HANDSHAKE_TIMEOUT_CONFIG_KEY))
+            httpServerOptions.setSslHandshakeTimeout(this.tlsConfig.getLong(HANDSHAKE_TIMEOUT_CONFIG_KEY))
+                    .setSslHandshakeTimeoutUnit(TimeUnit.SECONDS);
+
+        logger.info("ServerTls: enabling TLS with the " + (this.openSsl ? OPENSSL_ENGINE : JDK_ENGINE) +
+                " engine, protocols: " + httpServerOptions.getEnabledSecureTransportProtocols());
+        return httpServerOptions;
+    }
+
+    /**
+     * Warns if the requested session tickets do not match the engine and the JVM, which cannot be changed at runtime.
+     */
+    protected void reportSessionTickets(boolean sessionTickets) {
+        if (this.openSsl) {
+            if (!sessionTickets)
+                logger.warn("ServerTls: sessionTickets is ignored by the openssl engine, which always issues tickets");
+            return;
+        }
+
+        String javaVersion = System.getProperty("java.specification.version");
+        if (javaVersion.startsWith("1.") || Integer.parseInt(javaVersion) < 13) {
+            if (sessionTickets)
+                logger.warn("ServerTls: session tickets are not supported by the jdk engine of java " + javaVersion +
+                        ", handshakes are only resumed from the session cache");
+            return;
+        }
+
+        boolean enabled = Boolean.parseBoolean(System.getProperty(SESSION_TICKET_PROPERTY, Boolean.TRUE.toString()));
+        if (enabled != sessionTickets)
+            logger.warn("ServerTls: sessionTickets is " + sessionTickets + ", but the jdk engine reads it once from the " +
+                    SESSION_TICKET_PROPERTY + " system property, which is " + enabled + ", start the JVM with -D" +
+                    SESSION_TICKET_PROPERTY + "=" + sessionTickets + " instead");
+        else logger.info("ServerTls: session tickets are " + (enabled ? "enabled" : "disabled") + " by the " +
+                SESSION_TICKET_PROPERTY + " system property");
+    }
+
+    /**
+     * Applies the session cache settings to the session context of the given connection, the first time a connection
+     * of this session context is seen.
+     */
+    public void configure(HttpConnection connection) {
+        SSLSession sslSession = connection.sslSession();
+        SSLSessionContext sessionContext = Objects.isNull(sslSession) ? null : sslSession.getSessionContext();
+        if (Objects.isNull(sessionContext) || !this.sessionContextSet.add(sessionContext))
+            return;
+
+        if (this.tlsConfig.containsKey(SESSION_CACHE_SIZE_CONFIG_KEY))
+            sessionContext.setSessionCacheSize(this.tlsConfig.getInteger(SESSION_CACHE_SIZE_CONFIG_KEY));
+
+        if (this.tlsConfig.containsKey(SESSION_TIMEOUT_CONFIG_KEY))
+            sessionContext.setSessionTimeout(this.tlsConfig.getInteger(SESSION_TIMEOUT_CONFIG_KEY));
+    }
+
+    /**
+     * Reloads the key material, and completes once the next handshakes use it, or fails keeping the current one.
+     */
+    public Future<Void> reload() {
+        Promise<Void> promise = Promise.promise();
+        this.vertx.<Void>executeBlocking(blockingPromise -> {
+            try {
+                long lastModified = lastModified(this.keyCertFiles);
+                this.keyCertOptions.reload(this.vertx);
+                this.keyCertLastModified = lastModified;
+                logger.info("ServerTls: key material reloaded");
+                blockingPromise.complete();
+            } catch (Exception e) {
+                logger.error("ServerTls: reloading the key material failed, keeping the current one", e);
+                blockingPromise.fail(e);
+            }
+        }, false, promise);
+        return promise.future();
+    }
+
+    public boolean isOpenSsl() {
+        return this.openSsl;
+    }
+
+    protected void reloadIfModified() {
+        this.vertx.<Boolean>executeBlocking(blockingPromise -> blockingPromise.complete(
+                lastModified(this.keyCertFiles) != this.keyCertLastModified), false, modifiedAsyncResult -> {
+            if (modifiedAsyncResult.succeeded() && modifiedAsyncResult.result())
+                this.reload();
+        });
+    }
+
+    protected static KeyCertOptions keyCertOptions(JsonObject keyCertConfig) {
+        String type = keyCertConfig.getString(TYPE_CONFIG_KEY, PEM_TYPE);
+        switch (type) {
+            case PEM_TYPE:
+                return new PemKeyCertOptions()
+                        .setKeyPath(Objects.requireNonNull(keyCertConfig.getString(KEY_PATH_CONFIG_KEY),
+                                "ServerTls: keyCert.keyPath is required"))
+                        .setCertPath(Objects.requireNonNull(keyCertConfig.getString(CERT_PATH_CONFIG_KEY),
+                                "ServerTls: keyCert.certPath is required"));
+            case PKCS12_TYPE:
+                return pfxOptions(keyCertConfig);
+            case JKS_TYPE:
+                return jksOptions(keyCertConfig);
+            default:
+                throw new IllegalArgumentException("ServerTls: unknown key material type " + type);
+        }
+    }
+
+    protected static TrustOptions trustOptions(JsonObject trustConfig) {
+        String type = trustConfig.getString(TYPE_CONFIG_KEY, PEM_TYPE);
+        switch (type) {
+            case PEM_TYPE:
+                PemTrustOptions pemTrustOptions = new PemTrustOptions();
+                trustConfig.getJsonArray(CERT_PATHS_CONFIG_KEY, new JsonArray()).forEach(certPath ->
+                        pemTrustOptions.addCertPath(certPath.toString()));
+                return pemTrustOptions;
+            case PKCS12_TYPE:
+                return pfxOptions(trustConfig);
+            case JKS_TYPE:
+                return jksOptions(trustConfig);
+            default:
+                throw new IllegalArgumentException("ServerTls: unknown trust type " + type);
+        }
+    }
+
+    protected static PfxOptions pfxOptions(JsonObject config) {
+        return new PfxOptions()
+                .setPath(Objects.requireNonNull(config.getString(PATH_CONFIG_KEY), "ServerTls: path is required"))
+                .setPassword(config.getString(PASSWORD_CONFIG_KEY));
+    }
+
+    protected static JksOptions jksOptions(JsonObject config) {
+        return new JksOptions()
+                .setPath(Objects.requireNonNull(config.getString(PATH_CONFIG_KEY), "ServerTls: path is required"))
+                .setPassword(config.getString(PASSWORD_CONFIG_KEY));
+    }
+
+    protected static List<File> files(JsonObject keyCertConfig) {
+        List<File> files = new ArrayList<>();
+        for (String key : new String[]{PATH_CONFIG_KEY, KEY_PATH_CONFIG_KEY, CERT_PATH_CONFIG_KEY})
+            if (keyCertConfig.containsKey(key))
+                files.add(new File(keyCertConfig.getString(key)));
+        return files;
+    }
+
+    protected static long lastModified(List<File> files) {
+        long lastModified = 0;
+        for (File file : files)
+            lastModified = Math.max(lastModified, file.lastModified());
+        return lastModified;
+    }
+}
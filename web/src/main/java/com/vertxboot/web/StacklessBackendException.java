@@ -0,0 +1,26 @@
+package com.vertxboot.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A BackendException without a stack trace, for expected client errors, such as invalid input, where the stack trace
+ * is never used, and filling it in on every failed request is the most expensive part of the failure.
+ */
+public class StacklessBackendException extends BackendException {
+    private static final long serialVersionUID = 1L;
+
+    public StacklessBackendException(ErrorCode errorCode, String detail) {
+        super(errorCode, toList(detail), null, false);
+    }
+
+    public StacklessBackendException(ErrorCode errorCode, List<String> details) {
+        super(errorCode, details, null, false);
+    }
+
+    private static List<String> toList(String detail) {
+        List<String> details = new ArrayList<>();
+        details.add(detail);
+        return details;
+    }
+}
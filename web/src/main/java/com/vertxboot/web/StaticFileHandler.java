@@ -0,0 +1,426 @@
+package com.vertxboot.web;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.file.FileProps;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+import java.net.FileNameMap;
+import java.net.URLConnection;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Serves the files of a directory with HttpServerResponse.sendFile, which the kernel copies straight from the page
+ * cache to the socket (sendfile on linux) when the connection is neither TLS nor compressed, so the files never go
+ * through the heap. The directories are mounted by the files block of the server config, for example:
+ * <pre>
+ * "server": {
+ *   "files": {"/static": {"root": "public", "maxAge": 86400, "index": "index.html"},
+ *             "/downloads": {"root": "/var/artifacts", "attachment": true, "metadataTtl": 5000}}
+ * }
+ * </pre>
+ * where maxAge is the Cache-Control max-age in seconds, index the file served for the directories, and attachment
+ * makes the browsers download the files rather than display them. The metadata of the files, their size, modification
+ * time, and ETag, is cached for metadataTtl milliseconds (1000 by default), up to metadataCacheSize files, so a hot
+ * file is served without a file system call.
+ * <p>
+ * The Content-Type is looked up by the extension of the file, in the contentTypes object of the block, for example
+ * {"contentTypes": {"wasm": "application/wasm"}}, then in the types of the usual web files, then in the file name map
+ * of the JDK, and is application/octet-stream otherwise.
+ * <p>
+ * GET and HEAD are answered with 304 when If-None-Match or If-Modified-Since match the file, and a single byte range
+ * is answered with 206, or 416 when it is not satisfiable, honoring If-Range. Multiple ranges are answered with the
+ * whole file. Paths escaping the root, and hidden files, are answered with 404.
+ * <p>
+ * The mounted directories are routed behind the interceptors of their paths, like the rest handlers (see RestLoader),
+ * and the rest handlers serving downloads themselves, for example after an authorization check, use send.
+ */
+public class StaticFileHandler implements Handler<RoutingContext> {
+    protected static final String FILES_CONFIG_KEY = "files";
+    protected static final String ROOT_CONFIG_KEY = "root";
+    protected static final String MAX_AGE_CONFIG_KEY = "maxAge";
+    protected static final String INDEX_CONFIG_KEY = "index";
+    protected static final String ATTACHMENT_CONFIG_KEY = "attachment";
+    protected static final String METADATA_TTL_CONFIG_KEY = "metadataTtl";
+    protected static final String METADATA_CACHE_SIZE_CONFIG_KEY = "metadataCacheSize";
+    protected static final String CONTENT_TYPES_CONFIG_KEY = "contentTypes";
+    protected static final long DEFAULT_MAX_AGE = 0L;
+    protected static final long DEFAULT_METADATA_TTL = 1000L;
+    protected static final int DEFAULT_METADATA_CACHE_SIZE = 10000;
+    protected static final String BYTES_UNIT = "bytes=";
+    protected static final String OCTET_STREAM = "application/octet-stream";
+    protected static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    protected static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+    protected static final FileNameMap fileNameMap = URLConnection.getFileNameMap();
+
+    static {
+        CONTENT_TYPES.put("html", "text/html");
+        CONTENT_TYPES.put("htm", "text/html");
+        CONTENT_TYPES.put("css", "text/css");
+        CONTENT_TYPES.put("js", "application/javascript");
+        CONTENT_TYPES.put("mjs", "application/javascript");
+        CONTENT_TYPES.put("json", "application/json");
+        CONTENT_TYPES.put("map", "application/json");
+        CONTENT_TYPES.put("xml", "application/xml");
+        CONTENT_TYPES.put("txt", "text/plain");
+        CONTENT_TYPES.put("csv", "text/csv");
+        CONTENT_TYPES.put("md", "text/markdown");
+        CONTENT_TYPES.put("svg", "image/svg+xml");
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("jpg", "image/jpeg");
+        CONTENT_TYPES.put("jpeg", "image/jpeg");
+        CONTENT_TYPES.put("gif", "image/gif");
+        CONTENT_TYPES.put("webp", "image/webp");
+        CONTENT_TYPES.put("avif", "image/avif");
+        CONTENT_TYPES.put("ico", "image/x-icon");
+        CONTENT_TYPES.put("woff", "font/woff");
+        CONTENT_TYPES.put("woff2", "font/woff2");
+        CONTENT_TYPES.put("ttf", "font/ttf");
+        CONTENT_TYPES.put("otf", "font/otf");
+        CONTENT_TYPES.put("wasm", "application/wasm");
+        CONTENT_TYPES.put("pdf", "application/pdf");
+        CONTENT_TYPES.put("zip", "application/zip");
+        CONTENT_TYPES.put("gz", "application/gzip");
+        CONTENT_TYPES.put("tar", "application/x-tar");
+        CONTENT_TYPES.put("jar", "application/java-archive");
+        CONTENT_TYPES.put("mp3", "audio/mpeg");
+        CONTENT_TYPES.put("ogg", "audio/ogg");
+        CONTENT_TYPES.put("wav", "audio/wav");
+        CONTENT_TYPES.put("mp4", "video/mp4");
+        CONTENT_TYPES.put("webm", "video/webm");
+    }
+
+    protected static Logger logger = LoggerFactory.getLogger(StaticFileHandler.class);
+    protected static final ThreadLocal<SimpleDateFormat> httpDateFormat = ThreadLocal.withInitial(() -> {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.ENGLISH);
+        simpleDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return simpleDateFormat;
+    });
+
+    protected final Vertx vertx;
+    protected final String mountPath;
+    protected final Path root;
+    protected final String cacheControl;
+    protected final String index;
+    protected final boolean attachment;
+    protected final long metadataTtlNanos;
+    protected final int metadataCacheSize;
+    protected final Map<String, String> contentTypes = new HashMap<>();
+    protected final Map<String, FileMetadata> metadataMap = new ConcurrentHashMap<>();
+
+    protected StaticFileHandler(Vertx vertx, String mountPath, JsonObject filesConfig) {
+        this.vertx = vertx;
+        this.mountPath = mountPath.endsWith("/") ? mountPath.substring(0, mountPath.length() - 1) : mountPath;
+        this.root = Paths.get(Objects.requireNonNull(filesConfig.getString(ROOT_CONFIG_KEY),
+                "StaticFileHandler: missing root of " + mountPath)).toAbsolutePath().normalize();
+        long maxAge = filesConfig.getLong(MAX_AGE_CONFIG_KEY, DEFAULT_MAX_AGE);
+        this.cacheControl = maxAge > 0 ? "public, max-age=" + maxAge : "no-cache";
+        this.index = filesConfig.getString(INDEX_CONFIG_KEY);
+        this.attachment = filesConfig.getBoolean(ATTACHMENT_CONFIG_KEY, false);
+        this.metadataTtlNanos = TimeUnit.MILLISECONDS.toNanos(
+                filesConfig.getLong(METADATA_TTL_CONFIG_KEY, DEFAULT_METADATA_TTL));
+        this.metadataCacheSize = filesConfig.getInteger(METADATA_CACHE_SIZE_CONFIG_KEY, DEFAULT_METADATA_CACHE_SIZE);
+        filesConfig.getJsonObject(CONTENT_TYPES_CONFIG_KEY, new JsonObject()).forEach(entry ->
+                this.contentTypes.put(entry.getKey().toLowerCase(Locale.ROOT), String.valueOf(entry.getValue())));
+    }
+
+    /**
+     * Creates the handlers of the directories mounted by the given server config, which are routed by every http
+     * server instance of a ServerManager.
+     */
+    public static List<StaticFileHandler> load(Vertx vertx, JsonObject serverConfig) {
+        JsonObject filesConfig = serverConfig.getJsonObject(FILES_CONFIG_KEY, new JsonObject());
+        List<StaticFileHandler> staticFileHandlers = new ArrayList<>();
+        filesConfig.forEach(entry -> {
+            StaticFileHandler staticFileHandler = new StaticFileHandler(vertx, entry.getKey(),
+                    (JsonObject) entry.getValue());
+            logger.info("StaticFileHandler: serving " + staticFileHandler.root + " on " +
+                    staticFileHandler.getMountPath());
+            staticFileHandlers.add(staticFileHandler);
+        });
+
+        return Collections.unmodifiableList(staticFileHandlers);
+    }
+
+    /**
+     * Creates a handler of the given root directory, with the given options of the files block, to send the files of
+     * a rest handler.
+     */
+    public static StaticFileHandler create(Vertx vertx, String root, JsonObject options) {
+        return new StaticFileHandler(vertx, "", options.copy().put(ROOT_CONFIG_KEY, root));
+    }
+
+    /**
+     * Returns the route path of the handler, matching every path under its mount path.
+     */
+    public String getMountPath() {
+        return this.mountPath + "/*";
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        HttpMethod method = routingContext.request().method();
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+            routingContext.next();
+            return;
+        }
+
+        String path = routingContext.normalisedPath();
+        this.send(routingContext, path.length() > this.mountPath.length() ? path.substring(this.mountPath.length()) :
+                "/");
+    }
+
+    /**
+     * Sends the file of the given path, relative to the root, or answers with 404 if there is no such file.
+     */
+    public void send(RoutingContext routingContext, String path) {
+        Path file = this.root.resolve(path.startsWith("/") ? path.substring(1) : path).normalize();
+        if (!file.startsWith(this.root) || isHidden(this.root.relativize(file))) {
+            ResponseWriter.writeError(routingContext, ErrorCode.RESOURCE_NOT_FOUND);
+            return;
+        }
+
+        this.metadata(file.toString(), fileMetadata -> {
+            if (Objects.nonNull(fileMetadata) && fileMetadata.directory && Objects.nonNull(this.index)) {
+                this.metadata(file.resolve(this.index).toString(), indexMetadata -> this.send(routingContext,
+                        indexMetadata));
+                return;
+            }
+
+            this.send(routingContext, fileMetadata);
+        });
+    }
+
+    protected void send(RoutingContext routingContext, FileMetadata fileMetadata) {
+        HttpServerResponse response = routingContext.response();
+        if (response.closed() || response.ended())
+            return;
+
+        if (Objects.isNull(fileMetadata) || fileMetadata.directory) {
+            ResponseWriter.writeError(routingContext, ErrorCode.RESOURCE_NOT_FOUND);
+            return;
+        }
+
+        HttpServerRequest request = routingContext.request();
+        response.putHeader(HttpHeaders.ETAG, fileMetadata.etag)
+                .putHeader(HttpHeaders.LAST_MODIFIED, fileMetadata.lastModifiedDate)
+                .putHeader(HttpHeaders.CACHE_CONTROL, this.cacheControl)
+                .putHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (this.notModified(request, fileMetadata)) {
+            response.setStatusCode(HttpResponseStatus.NOT_MODIFIED.code()).end();
+            return;
+        }
+
+        response.putHeader(HttpHeaders.CONTENT_TYPE, fileMetadata.contentType)
+                .putHeader(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY);
+        if (this.attachment)
+            response.putHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" +
+                    fileMetadata.fileName.replace("\"", "") + "\"");
+
+        long offset = 0;
+        long length = fileMetadata.size;
+        String range = request.getHeader(HttpHeaderNames.RANGE);
+        if (Objects.nonNull(range) && this.rangeApplies(request, fileMetadata)) {
+            long[] bounds = parseRange(range, fileMetadata.size);
+            if (Objects.nonNull(bounds) && bounds.length == 0) {
+                response.setStatusCode(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE.code())
+                        .putHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileMetadata.size)
+                        .end();
+                return;
+            }
+
+            if (Objects.nonNull(bounds)) {
+                offset = bounds[0];
+                length = bounds[1] - bounds[0] + 1;
+                response.setStatusCode(HttpResponseStatus.PARTIAL_CONTENT.code())
+                        .putHeader(HttpHeaders.CONTENT_RANGE, "bytes " + bounds[0] + "-" + bounds[1] + "/" +
+                                fileMetadata.size);
+            }
+        }
+
+        if (request.method() == HttpMethod.HEAD) {
+            response.putHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(length)).end();
+            return;
+        }
+
+        response.sendFile(fileMetadata.path, offset, length, sendAsyncResult -> {
+            if (sendAsyncResult.failed()) {
+                logger.error("StaticFileHandler: sending " + fileMetadata.path + " failed", sendAsyncResult.cause());
+                this.metadataMap.remove(fileMetadata.path);
+                if (!response.headWritten())
+                    routingContext.fail(sendAsyncResult.cause());
+                else response.close();
+            }
+        });
+    }
+
+    /**
+     * Returns the metadata of the given file to the given handler, from the cache if it was read less than the
+     * metadata ttl ago, or null if there is no such file.
+     */
+    protected void metadata(String path, Handler<FileMetadata> handler) {
+        FileMetadata cachedMetadata = this.metadataMap.get(path);
+        if (Objects.nonNull(cachedMetadata) && System.nanoTime() - cachedMetadata.readTime < this.metadataTtlNanos) {
+            handler.handle(cachedMetadata);
+            return;
+        }
+
+        this.vertx.fileSystem().props(path, propsAsyncResult -> {
+            if (propsAsyncResult.failed()) {
+                this.metadataMap.remove(path);
+                handler.handle(null);
+                return;
+            }
+
+            FileMetadata fileMetadata = new FileMetadata(path, propsAsyncResult.result(), this::contentType);
+            if (this.metadataMap.size() >= this.metadataCacheSize)
+                this.metadataMap.clear();
+            this.metadataMap.put(path, fileMetadata);
+            handler.handle(fileMetadata);
+        });
+    }
+
+    protected boolean notModified(HttpServerRequest request, FileMetadata fileMetadata) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (Objects.nonNull(ifNoneMatch))
+            return ResponseCacheHandler.matches(ifNoneMatch, fileMetadata.etag);
+
+        Date ifModifiedSince = parseDate(request.getHeader(HttpHeaders.IF_MODIFIED_SINCE));
+        return Objects.nonNull(ifModifiedSince) &&
+                fileMetadata.lastModified / 1000 <= ifModifiedSince.getTime() / 1000;
+    }
+
+    /**
+     * Returns false if the range of the request is conditioned by an If-Range that does not match the file anymore.
+     */
+    protected boolean rangeApplies(HttpServerRequest request, FileMetadata fileMetadata) {
+        String ifRange = request.getHeader(HttpHeaderNames.IF_RANGE);
+        if (Objects.isNull(ifRange))
+            return true;
+
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+            return ifRange.equals(fileMetadata.etag);
+
+        Date ifRangeDate = parseDate(ifRange);
+        return Objects.nonNull(ifRangeDate) && fileMetadata.lastModified / 1000 == ifRangeDate.getTime() / 1000;
+    }
+
+    /**
+     * Returns the first and last byte positions of the given single byte range, an empty array if it is not
+     * satisfiable, or null if it is malformed or has multiple ranges, in which case the whole file is sent.
+     */
+    protected static long[] parseRange(String range, long size) {
+        if (!range.startsWith(BYTES_UNIT) || range.indexOf(',') >= 0)
+            return null;
+
+        String spec = range.substring(BYTES_UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0)
+            return null;
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0)
+                    return new long[0];
+                return new long[]{Math.max(0, size - suffix), size - 1};
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size)
+                return new long[0];
+            return start <= end ? new long[]{start, end} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    protected static Date parseDate(String date) {
+        if (Objects.isNull(date))
+            return null;
+
+        try {
+            return httpDateFormat.get().parse(date);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    protected static boolean isHidden(Path relativePath) {
+        for (Path element : relativePath)
+            if (element.toString().startsWith("."))
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Returns the Content-Type of the given file name, by its extension.
+     */
+    protected String contentType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0)
+            return OCTET_STREAM;
+
+        String extension = fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        String contentType = this.contentTypes.get(extension);
+        if (Objects.isNull(contentType))
+            contentType = CONTENT_TYPES.get(extension);
+        if (Objects.isNull(contentType))
+            contentType = fileNameMap.getContentTypeFor(fileName);
+        return Objects.isNull(contentType) ? OCTET_STREAM : contentType;
+    }
+
+    protected static class FileMetadata {
+        protected final String path;
+        protected final String fileName;
+        protected final boolean directory;
+        protected final long size;
+        protected final long lastModified;
+        protected final String lastModifiedDate;
+        protected final String etag;
+        protected final String contentType;
+        protected final long readTime;
+
+        protected FileMetadata(String path, FileProps fileProps, Function<String, String> contentTypes) {
+            this.path = path;
+            Path fileName = Paths.get(path).getFileName();
+            this.fileName = Objects.isNull(fileName) ? "" : fileName.toString();
+            this.directory = fileProps.isDirectory();
+            this.size = fileProps.size();
+            this.lastModified = fileProps.lastModifiedTime();
+            this.lastModifiedDate = httpDateFormat.get().format(new Date(this.lastModified));
+            this.etag = '"' + Long.toHexString(this.size) + "-" + Long.toHexString(this.lastModified) + '"';
+            this.contentType = contentTypes.apply(this.fileName);
+            this.readTime = System.nanoTime();
+        }
+    }
+}
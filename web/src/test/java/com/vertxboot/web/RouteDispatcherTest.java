@@ -0,0 +1,115 @@
+package com.vertxboot.web;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Matches request paths against the segment radix trees compiled by the RouteDispatcher, without an http server.
+ */
+public class RouteDispatcherTest {
+    protected static final long TIMEOUT = 10000;
+    protected static final List<Handler<RoutingContext>> HANDLERS = Collections.singletonList(RoutingContext::next);
+
+    protected static Vertx vertx;
+
+    @BeforeClass
+    public static void createVertx() {
+        vertx = Vertx.vertx();
+    }
+
+    @AfterClass
+    public static void closeVertx() throws Exception {
+        CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+        vertx.close(closeAsyncResult -> closeFuture.complete(null));
+        closeFuture.get(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void prefersStaticSegmentsOverParamsOverWildcards() {
+        RouteDispatcher routeDispatcher = dispatcher("/files/latest", "/files/:id", "/files/*");
+
+        assertEquals("/files/latest", match(routeDispatcher, HttpMethod.GET, "/files/latest").route.path);
+        assertEquals("/files/:id", match(routeDispatcher, HttpMethod.GET, "/files/42").route.path);
+        assertEquals("/files/*", match(routeDispatcher, HttpMethod.GET, "/files/42/content").route.path);
+        assertNull(match(routeDispatcher, HttpMethod.GET, "/other"));
+        assertNull(match(routeDispatcher, HttpMethod.POST, "/files/latest"));
+    }
+
+    @Test
+    public void backtracksFromStaticSegmentsToParams() {
+        RouteDispatcher routeDispatcher = dispatcher("/users/me/settings", "/users/:id/profile");
+
+        RouteDispatcher.Match match = match(routeDispatcher, HttpMethod.GET, "/users/me/profile");
+        assertEquals("/users/:id/profile", match.route.path);
+        assertEquals(1, match.paramCount);
+        assertEquals("id", match.paramNames[0]);
+        assertEquals("me", match.paramValues[0]);
+        assertEquals("/users/me/settings", match(routeDispatcher, HttpMethod.GET, "/users/me/settings").route.path);
+    }
+
+    @Test
+    public void backtracksFromParamsToWildcards() {
+        RouteDispatcher routeDispatcher = dispatcher("/docs/:id/raw", "/docs/*");
+
+        RouteDispatcher.Match match = match(routeDispatcher, HttpMethod.GET, "/docs/42/html");
+        assertEquals("/docs/*", match.route.path);
+        assertEquals(0, match.paramCount);
+    }
+
+    @Test
+    public void rejectsConflictingRoutes() {
+        RouteDispatcher routeDispatcher = dispatcher("/items/:id", "/items/*");
+
+        assertFalse(add(routeDispatcher, "/items/:name/details"));
+        assertFalse(add(routeDispatcher, "/items/:id"));
+        assertFalse(add(routeDispatcher, "/items/*"));
+        assertFalse(add(routeDispatcher, "/items/a*b"));
+        assertTrue(add(routeDispatcher, "/items/:id/details"));
+        assertEquals(3, routeDispatcher.getRouteCount());
+    }
+
+    @Test
+    public void decodesPathParams() {
+        assertEquals("a b+c", RouteDispatcher.decodePathParam("a%20b+c"));
+        assertEquals("a+b", RouteDispatcher.decodePathParam("a+b"));
+        assertNull(RouteDispatcher.decodePathParam("a%2"));
+    }
+
+    protected static RouteDispatcher dispatcher(String... paths) {
+        RouteDispatcher routeDispatcher = new RouteDispatcher(vertx);
+        for (String path : paths)
+            assertTrue(add(routeDispatcher, path));
+        return routeDispatcher;
+    }
+
+    protected static boolean add(RouteDispatcher routeDispatcher, String path) {
+        return routeDispatcher.add(EnumSet.of(HttpMethod.GET), path, HANDLERS);
+    }
+
+    protected static RouteDispatcher.Match match(RouteDispatcher routeDispatcher, HttpMethod httpMethod, String path) {
+        RouteDispatcher.Node rootNode = routeDispatcher.rootNodeMap.get(httpMethod);
+        if (Objects.isNull(rootNode))
+            return null;
+
+        String[] pathSegments = RouteDispatcher.splitRequestPath(path);
+        RouteDispatcher.Match match = new RouteDispatcher.Match(pathSegments);
+        return rootNode.match(pathSegments, 0, match) ? match : null;
+    }
+}
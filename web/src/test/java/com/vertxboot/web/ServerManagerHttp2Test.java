@@ -0,0 +1,158 @@
+package com.vertxboot.web;
+
+import com.vertxboot.beans.BeanFactory;
+import com.vertxboot.beans.SingletonBean;
+import com.vertxboot.commons.config.AppConfig;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.reflections.Reflections;
+import org.reflections.scanners.MethodAnnotationsScanner;
+import org.reflections.scanners.SubTypesScanner;
+import org.reflections.scanners.TypeAnnotationsScanner;
+import org.reflections.util.ClasspathHelper;
+import org.reflections.util.ConfigurationBuilder;
+import org.reflections.util.FilterBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs HTTP/2 clients against the http servers started by the ServerManager, in clear text with prior knowledge, and
+ * over TLS negotiated with ALPN, with the self signed certificate of useSsl.
+ */
+public class ServerManagerHttp2Test {
+    protected static final int CLEAR_TEXT_PORT = 18443;
+    protected static final int TLS_PORT = 18444;
+    protected static final long TIMEOUT = 10000;
+
+    protected static Vertx vertx;
+
+    @RestHandler
+    @RestMapping(httpMethod = HttpMethod.GET, path = "/http2/version")
+    public static class VersionRestHandler extends BaseRestHandler {
+        public static VersionRestHandler instance() {
+            return new VersionRestHandler();
+        }
+
+        @Override
+        public void handle(RoutingContext routingContext) {
+            routingContext.response().end(routingContext.request().version().name());
+        }
+    }
+
+    @BeforeClass
+    public static void startServers() throws Exception {
+        vertx = Vertx.vertx();
+        BeanFactory.instance().registerBean(Reflections.class, new SingletonBean<Reflections>().initialize(
+                new Reflections(new ConfigurationBuilder()
+                        .setUrls(ClasspathHelper.forClass(ServerManagerHttp2Test.class))
+                        .filterInputsBy(new FilterBuilder().include(
+                                FilterBuilder.prefix(ServerManagerHttp2Test.class.getName())))
+                        .setScanners(new TypeAnnotationsScanner(), new SubTypesScanner(),
+                                new MethodAnnotationsScanner()))));
+
+        await(ServerManager.startServer(vertx, appConfig(new JsonObject()
+                .put("serverPort", CLEAR_TEXT_PORT)
+                .put("instances", 1)
+                .put("http2", new JsonObject().put("enabled", true))), null));
+        await(ServerManager.startServer(vertx, appConfig(new JsonObject()
+                .put("serverPort", TLS_PORT)
+                .put("instances", 1)
+                .put("useSsl", true)
+                .put("http2", new JsonObject().put("enabled", true))), null));
+    }
+
+    @AfterClass
+    public static void closeVertx() throws Exception {
+        CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+        vertx.close(closeAsyncResult -> closeFuture.complete(null));
+        closeFuture.get(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void clearTextWithPriorKnowledge() throws Exception {
+        HttpClient httpClient = vertx.createHttpClient(new HttpClientOptions()
+                .setProtocolVersion(HttpVersion.HTTP_2)
+                .setHttp2ClearTextUpgrade(false));
+
+        assertEquals(HttpVersion.HTTP_2.name(), get(httpClient, CLEAR_TEXT_PORT));
+        httpClient.close();
+    }
+
+    @Test
+    public void tlsWithAlpn() throws Exception {
+        HttpClient httpClient = vertx.createHttpClient(new HttpClientOptions()
+                .setProtocolVersion(HttpVersion.HTTP_2)
+                .setSsl(true)
+                .setUseAlpn(true)
+                .setTrustAll(true)
+                .setVerifyHost(false));
+
+        assertEquals(HttpVersion.HTTP_2.name(), get(httpClient, TLS_PORT));
+        httpClient.close();
+    }
+
+    @Test
+    public void tlsFallsBackToHttp11() throws Exception {
+        HttpClient httpClient = vertx.createHttpClient(new HttpClientOptions()
+                .setSsl(true)
+                .setUseAlpn(true)
+                .setTrustAll(true)
+                .setVerifyHost(false));
+
+        assertEquals(HttpVersion.HTTP_1_1.name(), get(httpClient, TLS_PORT));
+        httpClient.close();
+    }
+
+    /**
+     * Returns the body of a GET of the version rest handler, after checking that the client used the same version.
+     */
+    protected static String get(HttpClient httpClient, int port) throws Exception {
+        CompletableFuture<String> bodyFuture = new CompletableFuture<>();
+        httpClient.get(port, "localhost", "/http2/version", response -> {
+            if (response.statusCode() != 200)
+                bodyFuture.completeExceptionally(new AssertionError("Unexpected status " + response.statusCode()));
+            else response.bodyHandler(body -> bodyFuture.complete(response.version().name() + ":" + body));
+        }).exceptionHandler(bodyFuture::completeExceptionally).end();
+
+        String[] versions = bodyFuture.get(TIMEOUT, TimeUnit.MILLISECONDS).split(":");
+        assertEquals("the client and the server disagree on the HTTP version", versions[0], versions[1]);
+        return versions[1];
+    }
+
+    protected static <T> T await(Future<T> future) throws Exception {
+        CompletableFuture<T> completableFuture = new CompletableFuture<>();
+        future.setHandler(asyncResult -> {
+            if (asyncResult.succeeded())
+                completableFuture.complete(asyncResult.result());
+            else completableFuture.completeExceptionally(asyncResult.cause());
+        });
+        return completableFuture.get(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    protected static AppConfig appConfig(JsonObject serverConfig) {
+        JsonObject config = new JsonObject().put("server", serverConfig);
+        return new AppConfig() {
+            @Override
+            public JsonObject getSync() {
+                return config;
+            }
+
+            @Override
+            public Future<JsonObject> get() {
+                return Future.succeededFuture(config);
+            }
+        };
+    }
+}